@@ -2,20 +2,24 @@ package analizador;
 
 import main.Arbol;
 import main.AjedrezArbolVisualizer;
-import modelo.Jugada;
+import main.DisposicionArbol;
 import modelo.Partida;
 import modelo.ResultadoAnalisis;
-import modelo.Turno;
 
 import javax.swing.*;
 import java.awt.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class AnalizadorGramatico {
-    
+
+    // Etapa única de lectura del texto, compartida por todas las operaciones
+    private final AnalizadorSintactico analizadorSintactico = new AnalizadorSintactico();
+
     /**
      * Analiza una partida de ajedrez en formato texto
      * @param textoPartida Texto de la partida en notación SAN
@@ -23,20 +27,16 @@ public class AnalizadorGramatico {
      */
     public ResultadoAnalisis analizar(String textoPartida) {
         try {
-            List<String> movimientos = obtenerMovimientosDeTexto(textoPartida);
+            Partida partida = analizadorSintactico.extraerPartida(textoPartida);
 
-            if (movimientos.isEmpty()) {
+            if (partida.contarTurnos() == 0) {
                 return new ResultadoAnalisis(false, "No hay movimientos válidos en el texto");
             }
 
-            Partida partida = crearPartidaDesdeMovimientos(movimientos);
-            
             // Crear y mostrar el árbol visual
-            Arbol arbol = new Arbol();
-            arbol.construirDesdePartida(partida);
-            mostrarArbolVisual(arbol);
+            mostrarArbolVisual(construirArbol(partida));
 
-            return new ResultadoAnalisis(true, partida.contarTurnos());
+            return new ResultadoAnalisis(partida);
 
         } catch (Exception error) {
             return new ResultadoAnalisis(false, "Error: " + error.getMessage());
@@ -44,68 +44,60 @@ public class AnalizadorGramatico {
     }
 
     /**
-     * Muestra el árbol visual de la partida
-     * @param arbol Árbol a visualizar
+     * Muestra el árbol de una partida ya analizada, sin volver a leer el texto
+     * @param resultado Resultado de AnalizadorSintactico.analizar
+     * @return El mismo resultado
      */
-    private void mostrarArbolVisual(Arbol arbol) {
-        SwingUtilities.invokeLater(() -> {
-            AjedrezArbolVisualizer.mostrarArbolAjedrez(arbol);
-        });
+    public ResultadoAnalisis analizar(ResultadoAnalisis resultado) {
+        if (resultado.esValido() && resultado.getPartida() != null) {
+            mostrarArbolVisual(construirArbol(resultado.getPartida()));
+        }
+        return resultado;
     }
 
     /**
-     * Extrae los movimientos del texto de la partida
-     * @param texto Texto de la partida
-     * @return Lista de movimientos
+     * Muestra un árbol ya construido para la partida analizada
+     * @param resultado Resultado del análisis
+     * @param arbol Árbol de la partida (por ejemplo, el de AnalizadorIncremental); no debe cambiar después
+     * @return El mismo resultado
      */
-    private List<String> obtenerMovimientosDeTexto(String texto) {
-        List<String> movimientos = new ArrayList<>();
-
-        // Definir patrón para buscar movimientos en el texto
-        String patron = "(\\d+)\\.\\s*([A-Za-z0-9\\-O\\+#x=]+)(?:\\s+([A-Za-z0-9\\-O\\+#x=]+))?";
-        Pattern buscador = Pattern.compile(patron);
-        Matcher resultado = buscador.matcher(texto);
-
-        // Buscar todos los movimientos en el texto
-        while (resultado.find()) {
-            // Añadir movimiento blanco
-            movimientos.add(resultado.group(2).trim());
-
-            // Añadir movimiento negro si existe
-            String movimientoNegro = resultado.group(3);
-            if (movimientoNegro != null && !movimientoNegro.isEmpty()) {
-                movimientos.add(movimientoNegro.trim());
-            }
+    public ResultadoAnalisis analizar(ResultadoAnalisis resultado, Arbol arbol) {
+        if (resultado.esValido() && arbol != null) {
+            mostrarArbolVisual(arbol);
         }
+        return resultado;
+    }
 
-        return movimientos;
+    /**
+     * Construye el árbol binario de una partida
+     * @param partida Partida analizada
+     * @return Árbol de la partida
+     */
+    public Arbol construirArbol(Partida partida) {
+        Arbol arbol = new Arbol();
+        arbol.construirDesdePartida(partida);
+        return arbol;
     }
 
     /**
-     * Crea una partida a partir de una lista de movimientos
-     * @param movimientos Lista de movimientos
-     * @return Partida creada
+     * Lee los turnos del texto y construye su árbol sin mostrarlo, para poder hacerlo
+     * fuera del hilo de eventos y mostrarlo después con mostrarArbolVisual
+     * @param textoPartida Texto de la partida en notación SAN
+     * @return Árbol de la partida, o null si el texto no tiene movimientos
      */
-    private Partida crearPartidaDesdeMovimientos(List<String> movimientos) {
-        Partida partida = new Partida();
-        int numeroTurno = 1;
+    public Arbol construirArbol(String textoPartida) {
+        Partida partida = analizadorSintactico.extraerPartida(textoPartida);
+        return partida.contarTurnos() == 0 ? null : construirArbol(partida);
+    }
 
-        for (int i = 0; i < movimientos.size(); i += 2) {
-            Turno turno = new Turno(numeroTurno);
-            
-            // Jugada blanca
-            turno.setJugadaBlanca(new Jugada(movimientos.get(i)));
-            
-            // Jugada negra (si existe)
-            if (i + 1 < movimientos.size()) {
-                turno.setJugadaNegra(new Jugada(movimientos.get(i + 1)));
-            }
-            
-            partida.agregarTurno(turno);
-            numeroTurno++;
-        }
-        
-        return partida;
+    /**
+     * Muestra el árbol visual de la partida
+     * @param arbol Árbol a visualizar
+     */
+    public void mostrarArbolVisual(Arbol arbol) {
+        SwingUtilities.invokeLater(() -> {
+            AjedrezArbolVisualizer.mostrarArbolAjedrez(arbol);
+        });
     }
 
     /**
@@ -115,16 +107,13 @@ public class AnalizadorGramatico {
      */
     public String analizarYObtenerArbol(String textoPartida) {
         try {
-            // Obtener los movimientos del texto
-            List<String> movimientos = obtenerMovimientosDeTexto(textoPartida);
+            // Obtener los turnos del texto
+            Partida partida = analizadorSintactico.extraerPartida(textoPartida);
             
-            if (movimientos.isEmpty()) {
+            if (partida.contarTurnos() == 0) {
                 return "No se encontraron movimientos válidos en el texto.";
             }
             
-            // Crear la partida a partir de los movimientos
-            Partida partida = crearPartidaDesdeMovimientos(movimientos);
-            
             // Generar el árbol de derivación como texto
             return generarArbolDerivacionTexto(partida);
             
@@ -132,39 +121,59 @@ public class AnalizadorGramatico {
             return "Error al analizar la partida: " + e.getMessage();
         }
     }
+
+    /**
+     * Devuelve el árbol de derivación de una partida ya analizada
+     * @param resultado Resultado de AnalizadorSintactico.analizar
+     * @return Árbol de derivación en formato texto
+     */
+    public String obtenerArbolDerivacion(ResultadoAnalisis resultado) {
+        if (!resultado.esValido() || resultado.getPartida() == null) {
+            return "No se encontraron movimientos válidos en el texto.";
+        }
+        return generarArbolDerivacionTexto(resultado.getPartida());
+    }
     
     /**
      * Genera un árbol de derivación en formato texto
      * @param partida Partida a analizar
      * @return Árbol de derivación en formato texto
      */
-    private String generarArbolDerivacionTexto(Partida partida) {
-        StringBuilder sb = new StringBuilder();
-        
-        sb.append("<partida>\n");
-        
-        for (Turno turno : partida.getTurnos()) {
-            sb.append("  <turno>\n");
-            sb.append("    <numero_turno>").append(turno.obtenerNumero()).append("</numero_turno>\n");
-            
-            // Jugada blanca
-            sb.append("    <jugada_blanca>\n");
-            sb.append("      <jugada>").append(turno.getJugadaBlanca().getNotacion()).append("</jugada>\n");
-            sb.append("    </jugada_blanca>\n");
-            
-            // Jugada negra (si existe)
-            if (turno.getJugadaNegra() != null) {
-                sb.append("    <jugada_negra>\n");
-                sb.append("      <jugada>").append(turno.getJugadaNegra().getNotacion()).append("</jugada>\n");
-                sb.append("    </jugada_negra>\n");
-            }
-            
-            sb.append("  </turno>\n");
+    public String generarArbolDerivacionTexto(Partida partida) {
+        StringWriter texto = new StringWriter();
+        try (EscritorDerivacion escritor = new EscritorDerivacion(texto, EscritorDerivacion.XML)) {
+            escritor.escribir(partida);
+        } catch (IOException e) {
+            // Un StringWriter no produce errores de escritura
+            throw new UncheckedIOException(e);
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Escribe el árbol de derivación de cada partida válida de un texto PGN, sin
+     * cargar la entrada ni la salida completas en memoria
+     * @param entrada Texto con una o varias partidas
+     * @param salida Escritor en formato XML o JSON; no se cierra
+     * @return Número de partidas escritas
+     */
+    public int exportarArbolesDerivacion(Reader entrada, EscritorDerivacion salida) throws IOException {
+        int escritasAntes = salida.contarPartidas();
+        try {
+            analizadorSintactico.analizar(entrada, (numeroPartida, partida, resultado) -> {
+                if (resultado.esValido()) {
+                    try {
+                        salida.escribir(partida);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
-        
-        sb.append("</partida>");
-        
-        return sb.toString();
+        salida.flush();
+        return salida.contarPartidas() - escritasAntes;
     }
 }
 
@@ -176,6 +185,12 @@ class PanelArbolJugadas extends JPanel {
     private int tamanoNodo = 30;
     private double escala = 1.0;
 
+    // Posición x de cada jugada relativa a la raíz, por índice + 1 (llave del Arbol),
+    // y borde izquierdo y anchura del árbol; se recalculan si cambia el número de jugadas
+    private int[] posiciones = new int[1];
+    private int minimoX;
+    private int anchoArbol;
+
     public PanelArbolJugadas(List<String> jugadas) {
         this.jugadas = jugadas;
         setBackground(Color.WHITE);
@@ -189,9 +204,10 @@ class PanelArbolJugadas extends JPanel {
     public Dimension getPreferredSize() {
         // Calcular niveles del árbol
         int niveles = calcularNivelesArbol();
+        calcularPosiciones();
 
-        // Calcular ancho y alto necesarios
-        int ancho = (int) Math.pow(2, niveles) * tamanoNodo * 2;
+        // El ancho crece con el número de hojas, no con 2^niveles
+        int ancho = anchoArbol + tamanoNodo * 2;
         int alto = niveles * 100 + 50;
 
         return new Dimension(ancho, alto);
@@ -204,6 +220,24 @@ class PanelArbolJugadas extends JPanel {
         return (int) Math.ceil(Math.log(jugadas.size() + 1) / Math.log(2));
     }
 
+    /**
+     * Dispone las jugadas como DisposicionArbol, sin solapar subárboles
+     */
+    private void calcularPosiciones() {
+        if (posiciones.length == jugadas.size() + 1) {
+            return;
+        }
+        posiciones = DisposicionArbol.calcularPosiciones(jugadas.size(), DisposicionArbol.SEPARACION_MINIMA * tamanoNodo / 2);
+        int minimo = 0;
+        int maximo = 0;
+        for (int i = 1; i < posiciones.length; i++) {
+            minimo = Math.min(minimo, posiciones[i]);
+            maximo = Math.max(maximo, posiciones[i]);
+        }
+        minimoX = minimo;
+        anchoArbol = maximo - minimo + tamanoNodo;
+    }
+
     /**
      * Dibuja el componente
      */
@@ -220,8 +254,9 @@ class PanelArbolJugadas extends JPanel {
 
         // Calcular dimensiones del árbol
         int niveles = calcularNivelesArbol();
+        calcularPosiciones();
         int altoEstimado = niveles * 100;
-        int anchoEstimado = (int) Math.pow(2, niveles - 1) * tamanoNodo * 3;
+        int anchoEstimado = anchoArbol + tamanoNodo * 2;
 
         // Calcular escala para ajustar el árbol a la ventana
         escala = Math.min(
@@ -237,16 +272,22 @@ class PanelArbolJugadas extends JPanel {
         // Aplicar la escala al dibujo
         g2d.scale(escala, escala);
 
+        // Centrar el árbol en el ancho visible, o pegarlo al borde si no cabe
+        int anchoVisible = (int) (getWidth() / escala);
+        int origen = Math.max((anchoVisible - anchoArbol) / 2, 0) + tamanoNodo / 2 - minimoX;
+
         // Dibujar el árbol comenzando por la raíz
-        dibujarNodo(g2d, 0, getWidth() / (int)escala / 2, 50);
+        dibujarNodo(g2d, 0, origen, 50);
     }
 
     /**
      * Dibuja un nodo y sus hijos recursivamente
+     * @param origen Coordenada x de la raíz
      */
-    private void dibujarNodo(Graphics2D g2d, int indice, int x, int y) {
+    private void dibujarNodo(Graphics2D g2d, int indice, int origen, int y) {
         // Si el índice está fuera de la lista, no dibujar
         if (indice >= jugadas.size()) return;
+        int x = origen + posiciones[indice + 1];
 
         // Elegir color según tipo de nodo
         if (indice == 0) {
@@ -274,40 +315,33 @@ class PanelArbolJugadas extends JPanel {
         int hijoIzquierdo = 2 * indice + 1;
         int hijoDerecho = 2 * indice + 2;
 
-        // Calcular separación entre nodos
-        int nivel = (int) (Math.log(indice + 1) / Math.log(2));
-        int separacion = getWidth() / (int)escala / (int)Math.pow(2, nivel + 2);
-        if (separacion < tamanoNodo * 2) {
-            separacion = tamanoNodo * 2;
-        }
-
         // Altura vertical entre niveles
         int alturaVertical = 100;
 
         // Dibujar hijo izquierdo si existe
         if (hijoIzquierdo < jugadas.size()) {
             // Calcular posición
-            int hijoX = x - separacion;
+            int hijoX = origen + posiciones[hijoIzquierdo + 1];
             int hijoY = y + alturaVertical;
 
             // Dibujar línea hacia el hijo
             g2d.drawLine(x, y + tamanoNodo/2, hijoX, hijoY - tamanoNodo/2);
 
             // Dibujar nodo hijo recursivamente
-            dibujarNodo(g2d, hijoIzquierdo, hijoX, hijoY);
+            dibujarNodo(g2d, hijoIzquierdo, origen, hijoY);
         }
 
         // Dibujar hijo derecho si existe
         if (hijoDerecho < jugadas.size()) {
             // Calcular posición
-            int hijoX = x + separacion;
+            int hijoX = origen + posiciones[hijoDerecho + 1];
             int hijoY = y + alturaVertical;
 
             // Dibujar línea hacia el hijo
             g2d.drawLine(x, y + tamanoNodo/2, hijoX, hijoY - tamanoNodo/2);
 
             // Dibujar nodo hijo recursivamente
-            dibujarNodo(g2d, hijoDerecho, hijoX, hijoY);
+            dibujarNodo(g2d, hijoDerecho, origen, hijoY);
         }
     }
 }
@@ -0,0 +1,245 @@
+package analizador;
+
+import main.Arbol;
+import modelo.Diagnosticos;
+import modelo.Partida;
+import modelo.Posicion;
+import modelo.ResultadoAnalisis;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+
+/**
+ * Analiza el texto de una partida que se va editando, rehaciendo solo lo que cambia
+ *
+ * Guarda dónde termina cada turno ya analizado junto con la Partida, el Arbol y
+ * la posición del tablero. Al recibir el texto editado busca el primer carácter
+ * distinto, conserva los turnos que el buscador leyó antes de ese carácter y
+ * analiza solo desde ahí: la Partida y el Arbol se recortan y se amplían en lugar
+ * de crearse de nuevo. Añadir una jugada al final cuesta lo mismo que analizar
+ * esa jugada, sea cual sea la longitud de la partida.
+ *
+ * Las jugadas siempre se comprueban contra el tablero, como en AnalizadorSintactico
+ * por defecto. La Partida y el Arbol son siempre los mismos objetos y cambian en
+ * cada llamada a analizar.
+ *
+ * Un análisis largo puede informar de su avance y cancelarse con un Seguimiento.
+ * Si se cancela, los turnos ya leídos se conservan: el siguiente análisis del
+ * mismo texto sigue desde donde se quedó. No es seguro entre hilos; se debe usar
+ * siempre desde el mismo hilo o desde hilos que no lo usen a la vez.
+ */
+public class AnalizadorIncremental {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    // Turnos entre dos avisos al seguimiento (potencia de dos)
+    private static final int TURNOS_POR_AVISO = 32;
+
+    //-------------------------
+    // SEGUIMIENTO
+    //-------------------------
+
+    /**
+     * Recibe el avance de un análisis y decide si se cancela
+     * Se llama desde el hilo que analiza.
+     */
+    public interface Seguimiento {
+        /**
+         * @param procesados Caracteres del texto ya analizados
+         * @param total Longitud del texto
+         */
+        void avance(int procesados, int total);
+
+        boolean cancelado();
+    }
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    // Se detiene en el primer error, igual que AnalizadorSintactico.analizar(String)
+    private final Diagnosticos primerError = new Diagnosticos(1);
+
+    // Estado de los turnos válidos del último texto analizado
+    private final Partida partida = new Partida();
+    private final Arbol arbol = new Arbol();
+    private final Posicion posicion = new Posicion();
+
+    // Último texto recibido
+    private String texto = "";
+
+    // Por turno válido: fin de su coincidencia en el texto, último carácter que el
+    // buscador tuvo que mirar para decidirla y jugadas hechas hasta ese turno
+    private int[] finesTurno = new int[CAPACIDAD_INICIAL];
+    private int[] limitesTurno = new int[CAPACIDAD_INICIAL];
+    private int[] jugadasHasta = new int[CAPACIDAD_INICIAL];
+
+    // Turnos conservados en el último análisis, para medir cuánto se ha reutilizado
+    private int turnosReutilizados;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    public AnalizadorIncremental() {
+        arbol.reiniciar(posicion.obtenerHash());
+    }
+
+    //-------------------------
+    // MÉTODOS PÚBLICOS
+    //-------------------------
+
+    /**
+     * Analiza el texto completo de la partida tras una edición
+     * @param nuevoTexto Texto actual de la partida
+     * @return Resultado con la partida, o con el primer error encontrado
+     */
+    public ResultadoAnalisis analizar(String nuevoTexto) {
+        return analizar(nuevoTexto, null);
+    }
+
+    /**
+     * Analiza el texto completo de la partida tras una edición, informando del avance
+     * @param nuevoTexto Texto actual de la partida
+     * @param seguimiento Recibe el avance y puede cancelar el análisis; puede ser null
+     * @return Resultado con la partida, con el primer error encontrado, o null si se canceló
+     */
+    public ResultadoAnalisis analizar(String nuevoTexto, Seguimiento seguimiento) {
+        // Conservar los turnos cuya lectura no llegó al primer carácter cambiado
+        int cambio = primeraDiferencia(texto, nuevoTexto);
+        int conservados = partida.contarTurnos();
+        while (conservados > 0 && limitesTurno[conservados - 1] >= cambio) {
+            conservados--;
+        }
+        recortar(conservados);
+        turnosReutilizados = conservados;
+        texto = nuevoTexto;
+        primerError.limpiar();
+
+        // Analizar desde el final del último turno conservado
+        Matcher buscador = AnalizadorSintactico.BUSCADOR_DE_TURNOS.matcher(nuevoTexto);
+        int inicio = conservados == 0 ? 0 : finesTurno[conservados - 1];
+        boolean valida = true;
+        int leidos = 0;
+        if (buscador.find(inicio)) {
+            do {
+                int jugadasAntes = posicion.obtenerProfundidad();
+                if (!AnalizadorSintactico.agregarTurno(nuevoTexto, buscador, partida, posicion, primerError)) {
+                    // El turno no se añadió; deshacer la jugada blanca si llegó a hacerse
+                    while (posicion.obtenerProfundidad() > jugadasAntes) {
+                        posicion.deshacerMovimiento();
+                    }
+                    valida = false;
+                    break;
+                }
+                registrarTurno(buscador.end(), jugadasAntes);
+                if (seguimiento != null && (++leidos & (TURNOS_POR_AVISO - 1)) == 0) {
+                    if (seguimiento.cancelado()) {
+                        return null;
+                    }
+                    seguimiento.avance(buscador.end(), nuevoTexto.length());
+                }
+            } while (buscador.find());
+        }
+        if (seguimiento != null) {
+            seguimiento.avance(nuevoTexto.length(), nuevoTexto.length());
+        }
+
+        if (valida && partida.contarTurnos() == 0) {
+            primerError.registrar(Diagnosticos.SIN_TURNOS, 0, Diagnosticos.NINGUNO, 0, null, 0, 0);
+            valida = false;
+        }
+        return valida ? new ResultadoAnalisis(partida) : new ResultadoAnalisis(primerError);
+    }
+
+    /**
+     * Partida con los turnos válidos del último texto (hasta el primer error)
+     */
+    public Partida obtenerPartida() {
+        return partida;
+    }
+
+    /**
+     * Árbol de la partida, con la clave Zobrist de cada posición
+     */
+    public Arbol obtenerArbol() {
+        return arbol;
+    }
+
+    /**
+     * Número de turnos que el último análisis tomó del anterior sin volver a leerlos
+     */
+    public int contarTurnosReutilizados() {
+        return turnosReutilizados;
+    }
+
+    /**
+     * Olvida el texto anterior; el siguiente análisis empieza desde cero
+     */
+    public void reiniciar() {
+        recortar(0);
+        texto = "";
+        turnosReutilizados = 0;
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    /**
+     * Posición del primer carácter distinto entre dos textos
+     * @return La posición, o Integer.MAX_VALUE si los textos son iguales
+     */
+    private static int primeraDiferencia(String anterior, String nuevo) {
+        int longitud = Math.min(anterior.length(), nuevo.length());
+        for (int i = 0; i < longitud; i++) {
+            if (anterior.charAt(i) != nuevo.charAt(i)) {
+                return i;
+            }
+        }
+        return anterior.length() == nuevo.length() ? Integer.MAX_VALUE : longitud;
+    }
+
+    /**
+     * Deja la partida, el árbol y el tablero como estaban tras los primeros turnos
+     */
+    private void recortar(int turnos) {
+        int jugadas = turnos == 0 ? 0 : jugadasHasta[turnos - 1];
+        while (posicion.obtenerProfundidad() > jugadas) {
+            posicion.deshacerMovimiento();
+        }
+        partida.truncar(turnos);
+        arbol.truncar(jugadas + 1);
+    }
+
+    /**
+     * Guarda los límites del último turno añadido y lleva sus jugadas al árbol
+     */
+    private void registrarTurno(int fin, int jugadasAntes) {
+        int turno = partida.contarTurnos() - 1;
+        if (turno == finesTurno.length) {
+            finesTurno = Arrays.copyOf(finesTurno, turno * 2);
+            limitesTurno = Arrays.copyOf(limitesTurno, turno * 2);
+            jugadasHasta = Arrays.copyOf(jugadasHasta, turno * 2);
+        }
+
+        // Tras una jugada blanca sola, el buscador mira los espacios siguientes y
+        // un carácter más buscando la negra; editar ahí puede cambiar el turno
+        int limite = fin;
+        while (limite < texto.length() && Character.isWhitespace(texto.charAt(limite))) {
+            limite++;
+        }
+        finesTurno[turno] = fin;
+        limitesTurno[turno] = limite;
+        jugadasHasta[turno] = posicion.obtenerProfundidad();
+
+        arbol.agregarJugada(partida.obtenerNotacionBlancas(turno), posicion.obtenerHash(jugadasAntes + 1));
+        if (posicion.obtenerProfundidad() > jugadasAntes + 1) {
+            arbol.agregarJugada(partida.obtenerNotacionNegras(turno), posicion.obtenerHash());
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package analizador;
+
+import modelo.ResultadoAnalisis;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Analiza archivos PGN grandes usando todos los núcleos disponibles
+ *
+ * El archivo se proyecta en memoria con FileChannel.map y se divide en fragmentos
+ * que empiezan siempre al comienzo de una partida. Cada fragmento se analiza en un
+ * hilo del ForkJoinPool con su propio LectorPartidas y los resultados se unen
+ * conservando el orden de las partidas en el archivo.
+ *
+ * Se considera comienzo de partida una línea que empieza con '[' o con "1." y que
+ * va precedida de una línea vacía (o del comienzo del archivo).
+ */
+public class AnalizadorMasivo {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Tamaño máximo de un fragmento proyectado (map admite como mucho 2 GB)
+    private static final long TAMANO_MAXIMO_FRAGMENTO = 64L * 1024 * 1024;
+
+    // Fragmentos por hilo, para repartir mejor partidas de tamaño desigual
+    private static final int FRAGMENTOS_POR_HILO = 4;
+
+    // Bloque leído al buscar el comienzo de una partida
+    private static final int TAMANO_BLOQUE_BUSQUEDA = 64 * 1024;
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private final ForkJoinPool grupoHilos;
+
+    // Si es true, cada jugada se comprueba contra la posición del tablero
+    private boolean comprobarLegalidad = true;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    /**
+     * Crea un analizador que usa el grupo de hilos común
+     */
+    public AnalizadorMasivo() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Crea un analizador que usa el grupo de hilos indicado
+     */
+    public AnalizadorMasivo(ForkJoinPool grupoHilos) {
+        this.grupoHilos = grupoHilos;
+    }
+
+    //-------------------------
+    // MÉTODOS PÚBLICOS
+    //-------------------------
+
+    /**
+     * Analiza todas las partidas del archivo
+     * @param ruta Archivo PGN
+     * @return Un resultado por partida, en el orden en que aparecen en el archivo
+     */
+    public List<ResultadoAnalisis> analizarArchivo(Path ruta) throws IOException {
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            long[] limites = calcularLimites(canal);
+
+            // Lanzar un análisis por fragmento
+            List<Future<List<ResultadoAnalisis>>> pendientes = new ArrayList<>();
+            for (int i = 0; i + 1 < limites.length; i++) {
+                long inicio = limites[i];
+                long fin = limites[i + 1];
+                if (fin > inicio) {
+                    MappedByteBuffer fragmento = canal.map(FileChannel.MapMode.READ_ONLY, inicio, fin - inicio);
+                    boolean legalidad = comprobarLegalidad;
+                    pendientes.add(grupoHilos.submit(() -> analizarFragmento(fragmento, legalidad)));
+                }
+            }
+
+            // Unir los resultados en el orden del archivo
+            List<ResultadoAnalisis> resultados = new ArrayList<>();
+            for (Future<List<ResultadoAnalisis>> pendiente : pendientes) {
+                resultados.addAll(esperar(pendiente));
+            }
+            return resultados;
+        }
+    }
+
+    /**
+     * Indica si las jugadas deben ser legales en la posición además de tener forma SAN válida
+     */
+    public void establecerComprobarLegalidad(boolean comprobarLegalidad) {
+        this.comprobarLegalidad = comprobarLegalidad;
+    }
+
+    /**
+     * Obtiene el número de hilos que usa el analizador
+     */
+    public int obtenerParalelismo() {
+        return grupoHilos.getParallelism();
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    /**
+     * Divide el archivo en fragmentos que empiezan al comienzo de una partida
+     * @return Posiciones de corte, incluyendo 0 y el tamaño del archivo
+     */
+    private long[] calcularLimites(FileChannel canal) throws IOException {
+        long tamano = canal.size();
+
+        int fragmentos = grupoHilos.getParallelism() * FRAGMENTOS_POR_HILO;
+        long paso = Math.max(1, (tamano + fragmentos - 1) / fragmentos);
+        paso = Math.min(paso, TAMANO_MAXIMO_FRAGMENTO);
+
+        List<Long> cortes = new ArrayList<>();
+        cortes.add(0L);
+
+        long posicion = 0;
+        while (posicion + paso < tamano) {
+            long corte = buscarInicioPartida(canal, posicion + paso, tamano);
+            if (corte >= tamano) {
+                break;
+            }
+            if (corte - posicion > Integer.MAX_VALUE) {
+                throw new IOException("Partida demasiado grande cerca de la posición " + posicion);
+            }
+            cortes.add(corte);
+            posicion = corte;
+        }
+
+        long[] limites = new long[cortes.size() + 1];
+        for (int i = 0; i < cortes.size(); i++) {
+            limites[i] = cortes.get(i);
+        }
+        limites[cortes.size()] = tamano;
+        return limites;
+    }
+
+    /**
+     * Busca el primer comienzo de partida a partir de una posición
+     * @return Posición del comienzo, o el tamaño del archivo si no hay más partidas
+     */
+    private long buscarInicioPartida(FileChannel canal, long desde, long tamano) throws IOException {
+        ByteBuffer bloque = ByteBuffer.allocate(TAMANO_BLOQUE_BUSQUEDA);
+
+        // Estado: cuántos saltos de línea seguidos (ignorando '\r') preceden a la posición
+        int saltosSeguidos = 0;
+        long posicion = desde;
+        byte anterior = 0;
+
+        while (posicion < tamano) {
+            bloque.clear();
+            int leidos = canal.read(bloque, posicion);
+            if (leidos <= 0) {
+                break;
+            }
+            for (int i = 0; i < leidos; i++) {
+                byte b = bloque.get(i);
+                if (saltosSeguidos >= 2 && (b == '[' || b == '1')) {
+                    if (b == '[') {
+                        return posicion + i;
+                    }
+                    // "1." requiere mirar el byte siguiente
+                    anterior = b;
+                    saltosSeguidos = -1;
+                    continue;
+                }
+                if (saltosSeguidos == -1) {
+                    if (anterior == '1' && b == '.') {
+                        return posicion + i - 1;
+                    }
+                    saltosSeguidos = 0;
+                }
+                if (b == '\n') {
+                    saltosSeguidos++;
+                } else if (b != '\r' && b != ' ' && b != '\t') {
+                    saltosSeguidos = 0;
+                }
+            }
+            posicion += leidos;
+        }
+        return tamano;
+    }
+
+    /**
+     * Analiza un fragmento proyectado en memoria
+     */
+    private static List<ResultadoAnalisis> analizarFragmento(ByteBuffer fragmento, boolean comprobarLegalidad)
+            throws IOException {
+        List<ResultadoAnalisis> resultados = new ArrayList<>();
+        LectorPartidas lector = new LectorPartidas(new LectorBytes(fragmento));
+        lector.establecerComprobarLegalidad(comprobarLegalidad);
+        lector.leerTodo((numero, partida, resultado) -> {
+            // Solo se conserva el resumen; las partidas no se acumulan en memoria
+            resultados.add(resultado.esValido()
+                    ? new ResultadoAnalisis(resultado.getNumeroTurnos())
+                    : resultado);
+        });
+        return resultados;
+    }
+
+    private static List<ResultadoAnalisis> esperar(Future<List<ResultadoAnalisis>> pendiente) throws IOException {
+        try {
+            return pendiente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Análisis interrumpido", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Error al analizar un fragmento: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Lee un ByteBuffer como caracteres de un byte
+     *
+     * La notación SAN y la estructura PGN son ASCII; los bytes de caracteres
+     * multibyte solo aparecen dentro de etiquetas y comentarios, que se ignoran.
+     */
+    private static class LectorBytes extends Reader {
+        private final ByteBuffer datos;
+
+        LectorBytes(ByteBuffer datos) {
+            this.datos = datos;
+        }
+
+        @Override
+        public int read(char[] destino, int desplazamiento, int longitud) {
+            int restantes = datos.remaining();
+            if (restantes == 0) {
+                return -1;
+            }
+            int cantidad = Math.min(longitud, restantes);
+            for (int i = 0; i < cantidad; i++) {
+                destino[desplazamiento + i] = (char) (datos.get() & 0xFF);
+            }
+            return cantidad;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
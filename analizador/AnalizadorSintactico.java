@@ -1,12 +1,19 @@
 package analizador;
 
+import modelo.CodigoJugada;
+import modelo.Diagnosticos;
+import modelo.IndiceJugadas;
 import modelo.Jugada;
 import modelo.Partida;
+import modelo.Posicion;
 import modelo.ResultadoAnalisis;
 import modelo.Turno;
 import util.ValidadorSAN;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -17,115 +24,285 @@ import java.util.regex.Pattern;
 public class AnalizadorSintactico {
 
     // Expresión que busca movimientos en formato: número. jugadaBlanca jugadaNegra
-    private String expresionRegular = "(\\d+)\\.\\s*([A-Za-z0-9\\-O\\+#x=]+)(?:\\s+([A-Za-z0-9\\-O\\+#x=]+))?";
-    private Pattern buscadorDeTurnos;
+    private static final String EXPRESION_REGULAR = "(\\d+)\\.\\s*([A-Za-z0-9\\-O\\+#x=]+)(?:\\s+([A-Za-z0-9\\-O\\+#x=]+))?";
+
+    // Patrón compilado una sola vez y compartido por todos los analizadores
+    static final Pattern BUSCADOR_DE_TURNOS = Pattern.compile(EXPRESION_REGULAR);
+
+    // Búfer de errores reutilizado por analizar(String), que se detiene en el primer error
+    private final Diagnosticos primerError = new Diagnosticos(1);
+
+    // Si es true, cada jugada se comprueba contra la posición del tablero
+    private boolean comprobarLegalidad = true;
 
     /**
      * Constructor que prepara el analizador
      */
     public AnalizadorSintactico() {
-        this.buscadorDeTurnos = Pattern.compile(expresionRegular);
+    }
+
+    /**
+     * Indica si las jugadas deben ser legales en la posición además de tener forma SAN válida
+     */
+    public void establecerComprobarLegalidad(boolean comprobarLegalidad) {
+        this.comprobarLegalidad = comprobarLegalidad;
+    }
+
+    public boolean comprobarLegalidad() {
+        return comprobarLegalidad;
     }
 
     /**
      * Procesa el texto de una partida de ajedrez
      */
     public ResultadoAnalisis analizar(String textoAjedrez) {
+        primerError.limpiar();
+
+        Partida nuevaPartida = analizar(textoAjedrez, primerError);
+
+        // Si hay algún error, devolver un resultado fallido
+        if (nuevaPartida == null) {
+            return new ResultadoAnalisis(primerError);
+        }
+
+        // Devolver resultado exitoso con la partida ya codificada
+        return new ResultadoAnalisis(nuevaPartida);
+    }
+
+    /**
+     * Valida el texto de una partida registrando los errores en lugar de lanzar excepciones
+     * Se siguen revisando los turnos tras un error mientras el búfer admita más errores.
+     * @param textoAjedrez Texto de la partida
+     * @param diagnosticos Búfer donde se añaden los errores encontrados
+     * @return La partida si no hay errores, o null en caso contrario
+     */
+    public Partida analizar(String textoAjedrez, Diagnosticos diagnosticos) {
         // Crear una partida nueva
         Partida nuevaPartida = new Partida();
+        boolean valida = true;
 
-        try {
-            // Buscar todos los turnos en el texto
-            List<Turno> turnosEncontrados = buscarTurnos(textoAjedrez);
+        // Tablero sobre el que se juegan las jugadas para comprobar su legalidad
+        Posicion posicion = comprobarLegalidad ? new Posicion() : null;
 
-            // Verificar que haya al menos un turno
-            if (turnosEncontrados.size() == 0) {
-                return new ResultadoAnalisis("No se encontró ningún turno en el texto");
-            }
-
-            // Revisar cada turno y agregarlo a la partida
-            for (Turno t : turnosEncontrados) {
-                comprobarTurno(t);
-                nuevaPartida.agregarTurno(t);
+        // Recorrer los turnos del texto, validando y codificando cada uno sin copiarlo
+        Matcher buscador = BUSCADOR_DE_TURNOS.matcher(textoAjedrez);
+        while (buscador.find()) {
+            if (!agregarTurno(textoAjedrez, buscador, nuevaPartida, posicion, diagnosticos)) {
+                valida = false;
+                // Tras un error la posición ya no es fiable; solo se sigue revisando la forma
+                posicion = null;
+                if (!diagnosticos.admiteMas()) {
+                    break;
+                }
             }
+        }
 
-            // Devolver resultado exitoso con la cantidad de turnos
-            return new ResultadoAnalisis(nuevaPartida.contarTurnos());
-
-        } catch (Exception error) {
-            // Si hay algún error, devolver un resultado fallido
-            return new ResultadoAnalisis(error.getMessage());
+        // Verificar que haya al menos un turno
+        if (valida && nuevaPartida.contarTurnos() == 0) {
+            diagnosticos.registrar(Diagnosticos.SIN_TURNOS, 0, Diagnosticos.NINGUNO, 0, null, 0, 0);
+            return null;
         }
+
+        return valida ? nuevaPartida : null;
     }
 
     /**
-     * Encuentra todos los turnos en el texto de la partida
+     * Extrae los turnos del texto sin validar las jugadas
+     * Las jugadas que no cumplen la gramática se conservan como texto. Las jugadas
+     * se emparejan en el orden en que aparecen y los turnos se numeran desde 1,
+     * sin tener en cuenta los números escritos: "3. e4 e5 7. d4" da los turnos 1 y 2.
+     * @param textoAjedrez Texto de la partida
+     * @return Partida con los turnos encontrados
      */
-    private List<Turno> buscarTurnos(String texto) {
-        // Lista para guardar los turnos encontrados
-        List<Turno> listaTurnos = new ArrayList<>();
+    public Partida extraerPartida(String textoAjedrez) {
+        Partida partida = new Partida();
 
-        // Buscar en el texto usando la expresión regular
-        Matcher buscador = buscadorDeTurnos.matcher(texto);
+        // Turno al que aún le falta la jugada negra; Partida copia el turno al añadirlo
+        Turno pendiente = null;
 
-        // Por cada coincidencia encontrada
+        Matcher buscador = BUSCADOR_DE_TURNOS.matcher(textoAjedrez);
         while (buscador.find()) {
-            // Extraer información del turno
-            String numeroComoTexto = buscador.group(1);
-            String movimientoBlancas = buscador.group(2).trim();
-            String movimientoNegras = buscador.group(3);
+            for (int grupo = 2; grupo <= 3 && buscador.start(grupo) >= 0; grupo++) {
+                Jugada jugada = new Jugada(buscador.group(grupo));
+                if (pendiente == null) {
+                    pendiente = new Turno(partida.contarTurnos() + 1);
+                    pendiente.setJugadaBlanca(jugada);
+                } else {
+                    pendiente.setJugadaNegra(jugada);
+                    partida.agregarTurno(pendiente);
+                    pendiente = null;
+                }
+            }
+        }
+        if (pendiente != null) {
+            partida.agregarTurno(pendiente);
+        }
 
-            // Convertir el número de texto a entero
-            int numero = Integer.parseInt(numeroComoTexto);
+        return partida;
+    }
 
-            // Crear un nuevo turno
-            Turno nuevoTurno = new Turno(numero);
+    /**
+     * Procesa partidas desde un flujo sin cargar el texto completo en memoria
+     * @param entrada Texto PGN con una o varias partidas
+     * @param receptor Recibe cada partida validada en cuanto termina
+     * @return Número de partidas leídas
+     */
+    public int analizar(Reader entrada, LectorPartidas.ReceptorPartidas receptor) throws IOException {
+        return crearLector(new LectorPartidas(entrada)).leerTodo(receptor);
+    }
 
-            // Agregar el movimiento de las blancas
-            nuevoTurno.setJugadaBlanca(new Jugada(movimientoBlancas));
+    /**
+     * Procesa partidas desde un canal de bytes UTF-8 sin cargar el texto completo en memoria
+     */
+    public int analizar(ReadableByteChannel canal, LectorPartidas.ReceptorPartidas receptor) throws IOException {
+        return crearLector(new LectorPartidas(canal)).leerTodo(receptor);
+    }
 
-            // Agregar el movimiento de las negras si existe
-            if (movimientoNegras != null && !movimientoNegras.isEmpty()) {
-                nuevoTurno.setJugadaNegra(new Jugada(movimientoNegras.trim()));
+    /**
+     * Añade a un índice invertido las jugadas de cada partida válida de un flujo
+     * @param entrada Texto PGN con una o varias partidas
+     * @param indice Índice donde se añaden las partidas
+     * @return Número de partidas añadidas
+     */
+    public int indexar(Reader entrada, IndiceJugadas indice) throws IOException {
+        int[] agregadas = new int[1];
+        analizar(entrada, (numeroPartida, partida, resultado) -> {
+            if (resultado.esValido()) {
+                indice.agregarPartida(partida);
+                agregadas[0]++;
             }
+        });
+        return agregadas[0];
+    }
 
-            // Agregar el turno a la lista
-            listaTurnos.add(nuevoTurno);
-        }
+    /**
+     * Analiza un archivo PGN completo en paralelo
+     * @param ruta Archivo con una o varias partidas
+     * @return Un resultado por partida, en el orden del archivo
+     */
+    public List<ResultadoAnalisis> analizarArchivo(Path ruta) throws IOException {
+        AnalizadorMasivo analizadorMasivo = new AnalizadorMasivo();
+        analizadorMasivo.establecerComprobarLegalidad(comprobarLegalidad);
+        return analizadorMasivo.analizarArchivo(ruta);
+    }
 
-        return listaTurnos;
+    private LectorPartidas crearLector(LectorPartidas lector) {
+        lector.establecerComprobarLegalidad(comprobarLegalidad);
+        return lector;
     }
 
     /**
-     * Verifica que un turno sea válido según las reglas
+     * Valida el turno encontrado por el buscador y lo añade a la partida
+     * @return false si el turno tiene errores (quedan registrados en diagnosticos)
      */
-    private void comprobarTurno(Turno turno) throws Exception {
-        // El número del turno debe ser positivo
-        if (turno.obtenerNumero() <= 0) {
-            throw new Exception("El turno tiene un número inválido: " + turno.obtenerNumero());
-        }
+    static boolean agregarTurno(String texto, Matcher buscador, Partida partida, Posicion posicion,
+                                Diagnosticos diagnosticos) {
+        // Convertir el número de texto a entero
+        int inicioNumero = buscador.start(1);
+        int finNumero = buscador.end(1);
+        int numero = leerNumero(texto, inicioNumero, finNumero);
 
-        // Debe tener movimiento de blancas
-        Jugada movBlancas = turno.getJugadaBlanca();
-        if (movBlancas == null || movBlancas.getNotacion().isEmpty()) {
-            throw new Exception("El turno " + turno.obtenerNumero() + " no tiene movimiento de blancas");
+        // El número del turno debe ser positivo
+        if (numero <= 0) {
+            diagnosticos.registrar(Diagnosticos.NUMERO_TURNO_INVALIDO, numero, Diagnosticos.NINGUNO,
+                    inicioNumero, texto, inicioNumero, finNumero);
+            return false;
         }
 
         // El movimiento de blancas debe ser válido
-        String notacionBlancas = movBlancas.getNotacion();
-        if (!ValidadorSAN.esJugadaValida(notacionBlancas)) {
-            throw new Exception("En el turno " + turno.obtenerNumero() + ", el movimiento de blancas '" +
-                    notacionBlancas + "' no es válido");
+        boolean valido = true;
+        int inicioBlancas = buscador.start(2);
+        int finBlancas = buscador.end(2);
+        int clasificacionBlancas = ValidadorSAN.clasificar(texto, inicioBlancas, finBlancas);
+        if (clasificacionBlancas == ValidadorSAN.INVALIDA) {
+            diagnosticos.registrar(Diagnosticos.JUGADA_INVALIDA, numero, Diagnosticos.BLANCAS,
+                    inicioBlancas, texto, inicioBlancas, finBlancas);
+            valido = false;
+            if (!diagnosticos.admiteMas()) {
+                return false;
+            }
         }
 
         // Si hay movimiento de negras, debe ser válido
-        Jugada movNegras = turno.getJugadaNegra();
-        if (movNegras != null) {
-            String notacionNegras = movNegras.getNotacion();
-            if (!ValidadorSAN.esJugadaValida(notacionNegras)) {
-                throw new Exception("En el turno " + turno.obtenerNumero() + ", el movimiento de negras '" +
-                        notacionNegras + "' no es válido");
+        int inicioNegras = buscador.start(3);
+        int finNegras = buscador.end(3);
+        int clasificacionNegras = ValidadorSAN.INVALIDA;
+        if (inicioNegras >= 0) {
+            clasificacionNegras = ValidadorSAN.clasificar(texto, inicioNegras, finNegras);
+            if (clasificacionNegras == ValidadorSAN.INVALIDA) {
+                diagnosticos.registrar(Diagnosticos.JUGADA_INVALIDA, numero, Diagnosticos.NEGRAS,
+                        inicioNegras, texto, inicioNegras, finNegras);
+                valido = false;
+            }
+        }
+
+        if (!valido) {
+            return false;
+        }
+
+        int codigoBlancas = CodigoJugada.codificar(texto, inicioBlancas, finBlancas, clasificacionBlancas);
+        int codigoNegras = inicioNegras >= 0
+                ? CodigoJugada.codificar(texto, inicioNegras, finNegras, clasificacionNegras)
+                : Partida.SIN_JUGADA;
+
+        // Las jugadas deben poder hacerse en el tablero
+        if (posicion != null) {
+            if (!jugarEnPosicion(posicion, codigoBlancas, numero, Diagnosticos.BLANCAS,
+                    inicioBlancas, texto, inicioBlancas, finBlancas, diagnosticos)) {
+                return false;
+            }
+            if (inicioNegras >= 0 && !jugarEnPosicion(posicion, codigoNegras, numero, Diagnosticos.NEGRAS,
+                    inicioNegras, texto, inicioNegras, finNegras, diagnosticos)) {
+                return false;
+            }
+        }
+
+        if (codigoBlancas != CodigoJugada.SIN_CODIGO && codigoNegras != CodigoJugada.SIN_CODIGO) {
+            partida.agregarTurno(numero, codigoBlancas, codigoNegras);
+            return true;
+        }
+
+        // Desambiguación poco habitual (por ejemplo "Nff3"): se conserva el texto
+        Turno turno = new Turno(numero);
+        turno.setJugadaBlanca(new Jugada(texto.substring(inicioBlancas, finBlancas)));
+        if (inicioNegras >= 0) {
+            turno.setJugadaNegra(new Jugada(texto.substring(inicioNegras, finNegras)));
+        }
+        partida.agregarTurno(turno);
+        return true;
+    }
+
+    /**
+     * Busca el movimiento legal que corresponde a una jugada y lo hace en la posición
+     * @param posicionEntrada Posición del token en la entrada, para el diagnóstico
+     * @return false si la jugada es ilegal o ambigua (queda registrada en diagnosticos)
+     */
+    static boolean jugarEnPosicion(Posicion posicion, int codigo, int numero, int color, long posicionEntrada,
+                                   CharSequence texto, int inicio, int fin, Diagnosticos diagnosticos) {
+        // Las desambiguaciones no canónicas (sin código) no identifican un único movimiento
+        int movimiento = codigo == CodigoJugada.SIN_CODIGO ? Posicion.SIN_MOVIMIENTO : posicion.resolver(codigo);
+        if (movimiento < 0) {
+            diagnosticos.registrar(movimiento == Posicion.MOVIMIENTO_AMBIGUO
+                            ? Diagnosticos.JUGADA_AMBIGUA : Diagnosticos.JUGADA_ILEGAL,
+                    numero, color, posicionEntrada, texto, inicio, fin);
+            return false;
+        }
+        posicion.hacerMovimiento(movimiento);
+        return true;
+    }
+
+    /**
+     * Convierte los dígitos de texto[inicio, fin) en un número
+     * @return El número, o -1 si es demasiado grande
+     */
+    private static int leerNumero(CharSequence texto, int inicio, int fin) {
+        long numero = 0;
+        for (int i = inicio; i < fin; i++) {
+            numero = numero * 10 + (texto.charAt(i) - '0');
+            if (numero > Integer.MAX_VALUE) {
+                return -1;
             }
         }
+        return (int) numero;
     }
 }
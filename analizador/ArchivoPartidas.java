@@ -0,0 +1,315 @@
+package analizador;
+
+import main.Arbol;
+import modelo.CodigoJugada;
+import modelo.Jugada;
+import modelo.Partida;
+import modelo.Turno;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Archivo binario con partidas ya analizadas, leído directamente desde memoria
+ *
+ * El archivo se proyecta en memoria con un MappedByteBuffer y las consultas leen
+ * los registros en su sitio, sin crear objetos por jugada: abrir un archivo solo
+ * comprueba la cabecera, y las páginas se cargan a medida que se consultan.
+ *
+ * Formato (little endian, versión 1):
+ * <pre>
+ * Cabecera (32 bytes): "PGNB", versión, número de partidas, opciones (0),
+ *                      posición de la tabla de registros (long), CRC32, relleno
+ * Registro por partida, alineado a 8 bytes:
+ *   número de turnos, resultado, número de jugadas, bytes de textos  (4 x int)
+ *   por turno: número, código blancas, código negras                 (3 x int)
+ *   relleno hasta 8 bytes
+ *   claves Zobrist de la posición inicial y tras cada jugada         (long)
+ *   textos de las jugadas sin código: longitud (short) y UTF-8
+ *   relleno hasta 8 bytes
+ * Tabla de registros: posición de cada registro en el archivo        (long)
+ * </pre>
+ * Los códigos siguen a Partida (SIN_JUGADA si falta la jugada); una jugada que
+ * solo existe como texto se guarda como codigoLiteral(k), con k su índice en los
+ * textos del registro. El CRC32 cubre todo lo que sigue a la cabecera.
+ */
+public class ArchivoPartidas implements AutoCloseable {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // "PGNB" leído como int little endian
+    static final int MAGICO = 'P' | 'G' << 8 | 'N' << 16 | 'B' << 24;
+    static final int VERSION = 1;
+    static final int TAMANO_CABECERA = 32;
+
+    // Un MappedByteBuffer no puede pasar de Integer.MAX_VALUE bytes
+    static final long TAMANO_MAXIMO = Integer.MAX_VALUE;
+
+    static final int TAMANO_CABECERA_REGISTRO = 16;
+    static final int TAMANO_TURNO = 12;
+
+    // Primer valor usado para las jugadas guardadas como texto
+    private static final int PRIMER_LITERAL = -3;
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private final FileChannel canal;
+    private final MappedByteBuffer datos;
+    private final int numeroPartidas;
+    private final long posicionTabla;
+    private final int crcGuardado;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    private ArchivoPartidas(FileChannel canal, MappedByteBuffer datos) throws IOException {
+        this.canal = canal;
+        this.datos = datos;
+        datos.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (datos.capacity() < TAMANO_CABECERA || datos.getInt(0) != MAGICO) {
+            throw new IOException("No es un archivo de partidas");
+        }
+        if (datos.getInt(4) != VERSION) {
+            throw new IOException("Versión de archivo no soportada: " + datos.getInt(4));
+        }
+        numeroPartidas = datos.getInt(8);
+        posicionTabla = datos.getLong(16);
+        crcGuardado = datos.getInt(24);
+
+        if (numeroPartidas < 0 || posicionTabla < TAMANO_CABECERA
+                || posicionTabla + 8L * numeroPartidas != datos.capacity()) {
+            throw new IOException("Archivo de partidas incompleto o dañado");
+        }
+    }
+
+    //-------------------------
+    // MÉTODOS PÚBLICOS
+    //-------------------------
+
+    /**
+     * Abre un archivo comprobando solo la cabecera
+     */
+    public static ArchivoPartidas abrir(Path ruta) throws IOException {
+        return abrir(ruta, false);
+    }
+
+    /**
+     * Abre un archivo de partidas
+     * @param verificar Si es true se comprueba además el CRC32 de todo el contenido
+     */
+    public static ArchivoPartidas abrir(Path ruta, boolean verificar) throws IOException {
+        FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ);
+        try {
+            long tamano = canal.size();
+            if (tamano > TAMANO_MAXIMO) {
+                throw new IOException("Archivo de partidas demasiado grande: " + tamano + " bytes");
+            }
+            ArchivoPartidas archivo = new ArchivoPartidas(canal, canal.map(FileChannel.MapMode.READ_ONLY, 0, tamano));
+            if (verificar && !archivo.verificar()) {
+                throw new IOException("El CRC32 del archivo de partidas no coincide");
+            }
+            return archivo;
+        } catch (IOException | RuntimeException e) {
+            canal.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Recalcula el CRC32 del contenido y lo compara con el de la cabecera
+     */
+    public boolean verificar() {
+        CRC32 crc = new CRC32();
+        crc.update(datos.slice(TAMANO_CABECERA, datos.capacity() - TAMANO_CABECERA));
+        return (int) crc.getValue() == crcGuardado;
+    }
+
+    public int contarPartidas() {
+        return numeroPartidas;
+    }
+
+    public int contarTurnos(int partida) {
+        return datos.getInt(registro(partida));
+    }
+
+    public int obtenerResultado(int partida) {
+        return datos.getInt(registro(partida) + 4);
+    }
+
+    /**
+     * Número de jugadas (medios movimientos) de una partida
+     */
+    public int contarJugadas(int partida) {
+        return datos.getInt(registro(partida) + 8);
+    }
+
+    public int obtenerNumeroTurno(int partida, int turno) {
+        return datos.getInt(posicionTurno(partida, turno));
+    }
+
+    /**
+     * Código de la jugada blanca de un turno
+     * @return Código, Partida.SIN_JUGADA o CodigoJugada.SIN_CODIGO si solo hay texto
+     */
+    public int obtenerCodigoBlancas(int partida, int turno) {
+        return codigoPublico(datos.getInt(posicionTurno(partida, turno) + 4));
+    }
+
+    /**
+     * Código de la jugada negra de un turno
+     * @return Código, Partida.SIN_JUGADA o CodigoJugada.SIN_CODIGO si solo hay texto
+     */
+    public int obtenerCodigoNegras(int partida, int turno) {
+        return codigoPublico(datos.getInt(posicionTurno(partida, turno) + 8));
+    }
+
+    /**
+     * Clave Zobrist de una posición de la partida
+     * @param jugada 0 para la posición inicial, n para la posición tras la jugada n
+     * @return La clave, o TablaPosiciones.SIN_HASH si la posición no se pudo calcular
+     */
+    public long obtenerHash(int partida, int jugada) {
+        int registro = registro(partida);
+        if (jugada < 0 || jugada > datos.getInt(registro + 8)) {
+            throw new IllegalArgumentException("Jugada fuera de rango: " + jugada);
+        }
+        return datos.getLong(posicionHashes(registro) + 8 * jugada);
+    }
+
+    /**
+     * Crea la Partida guardada en un registro
+     */
+    public Partida cargarPartida(int partida) {
+        int registro = registro(partida);
+        int turnos = datos.getInt(registro);
+        Partida resultado = new Partida();
+        resultado.establecerResultado(datos.getInt(registro + 4));
+
+        int posicion = registro + TAMANO_CABECERA_REGISTRO;
+        for (int i = 0; i < turnos; i++, posicion += TAMANO_TURNO) {
+            int numero = datos.getInt(posicion);
+            int blancas = datos.getInt(posicion + 4);
+            int negras = datos.getInt(posicion + 8);
+            if (blancas > PRIMER_LITERAL && negras > PRIMER_LITERAL) {
+                resultado.agregarTurno(numero, blancas, negras);
+            } else {
+                Turno turno = new Turno(numero);
+                turno.setJugadaBlanca(crearJugada(registro, blancas));
+                turno.setJugadaNegra(crearJugada(registro, negras));
+                resultado.agregarTurno(turno);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Construye el Arbol de una partida usando las claves guardadas, sin reproducir las jugadas
+     */
+    public Arbol cargarArbol(int partida) {
+        int registro = registro(partida);
+        int turnos = datos.getInt(registro);
+        int hashes = posicionHashes(registro);
+
+        Arbol arbol = new Arbol();
+        arbol.reiniciar(datos.getLong(hashes));
+
+        int posicion = registro + TAMANO_CABECERA_REGISTRO;
+        int jugada = 1;
+        for (int i = 0; i < turnos; i++, posicion += TAMANO_TURNO) {
+            for (int color = 4; color <= 8; color += 4) {
+                int codigo = datos.getInt(posicion + color);
+                if (codigo != Partida.SIN_JUGADA) {
+                    arbol.agregarJugada(notacion(registro, codigo), datos.getLong(hashes + 8 * jugada++));
+                }
+            }
+        }
+        return arbol;
+    }
+
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    //-------------------------
+    // MÉTODOS DEL FORMATO
+    //-------------------------
+
+    /**
+     * Valor guardado para la jugada sin código número k de un registro
+     */
+    static int codigoLiteral(int indice) {
+        return PRIMER_LITERAL - indice;
+    }
+
+    /**
+     * Redondea una posición al siguiente múltiplo de 8
+     */
+    static long alinear(long posicion) {
+        return (posicion + 7) & ~7L;
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private int registro(int partida) {
+        if (partida < 0 || partida >= numeroPartidas) {
+            throw new IllegalArgumentException("Partida fuera de rango: " + partida);
+        }
+        return (int) datos.getLong((int) posicionTabla + 8 * partida);
+    }
+
+    private int posicionTurno(int partida, int turno) {
+        int registro = registro(partida);
+        if (turno < 0 || turno >= datos.getInt(registro)) {
+            throw new IllegalArgumentException("Índice de turno fuera de rango: " + turno);
+        }
+        return registro + TAMANO_CABECERA_REGISTRO + TAMANO_TURNO * turno;
+    }
+
+    private int posicionHashes(int registro) {
+        return (int) alinear(registro + TAMANO_CABECERA_REGISTRO + (long) TAMANO_TURNO * datos.getInt(registro));
+    }
+
+    private static int codigoPublico(int guardado) {
+        return guardado <= PRIMER_LITERAL ? CodigoJugada.SIN_CODIGO : guardado;
+    }
+
+    private Jugada crearJugada(int registro, int codigo) {
+        if (codigo == Partida.SIN_JUGADA) {
+            return null;
+        }
+        return codigo <= PRIMER_LITERAL ? new Jugada(leerLiteral(registro, PRIMER_LITERAL - codigo)) : new Jugada(codigo);
+    }
+
+    private String notacion(int registro, int codigo) {
+        return codigo <= PRIMER_LITERAL ? leerLiteral(registro, PRIMER_LITERAL - codigo) : CodigoJugada.decodificar(codigo);
+    }
+
+    /**
+     * Lee el texto número k de un registro saltando los anteriores
+     */
+    private String leerLiteral(int registro, int indice) {
+        int posicion = posicionHashes(registro) + 8 * (datos.getInt(registro + 8) + 1);
+        for (int i = 0; i < indice; i++) {
+            posicion += 2 + (datos.getShort(posicion) & 0xFFFF);
+        }
+        int longitud = datos.getShort(posicion) & 0xFFFF;
+        byte[] bytes = new byte[longitud];
+        datos.get(posicion + 2, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
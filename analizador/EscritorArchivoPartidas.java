@@ -0,0 +1,300 @@
+package analizador;
+
+import modelo.CodigoJugada;
+import modelo.Partida;
+import modelo.Posicion;
+import modelo.TablaPosiciones;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Escribe partidas ya analizadas en el formato binario de ArchivoPartidas
+ *
+ * Los registros se escriben uno tras otro a través de un búfer directo de tamaño
+ * fijo, calculando el CRC32 a medida que salen. Al cerrar se añade la tabla de
+ * posiciones de los registros y se completa la cabecera.
+ *
+ * ArchivoPartidas proyecta el archivo en un solo MappedByteBuffer, así que no se
+ * admite una partida que lo haría pasar de ArchivoPartidas.TAMANO_MAXIMO contando
+ * la tabla: agregar lanza IOException y el archivo sigue siendo válido con las
+ * partidas anteriores.
+ */
+public class EscritorArchivoPartidas implements AutoCloseable {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    private static final int TAMANO_BUFFER = 64 * 1024;
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private final FileChannel canal;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANO_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32 crc = new CRC32();
+
+    // Tablero usado para calcular la clave Zobrist de cada posición
+    private final Posicion posicion = new Posicion();
+
+    // Posición en el archivo de cada registro
+    private long[] desplazamientos = new long[1024];
+    private int numeroPartidas;
+
+    // Bytes escritos desde el comienzo del archivo (incluido lo pendiente en el búfer)
+    private long escritos;
+
+    // Textos de las jugadas sin código de la partida en curso
+    private byte[][] literales = new byte[4][];
+
+    // Tamaño que no debe pasar el archivo, tabla incluida
+    private final long tamanoMaximo;
+
+    private boolean cerrado;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    /**
+     * Crea (o reemplaza) un archivo de partidas
+     */
+    public EscritorArchivoPartidas(Path ruta) throws IOException {
+        this(ruta, ArchivoPartidas.TAMANO_MAXIMO);
+    }
+
+    /**
+     * Crea (o reemplaza) un archivo de partidas con un límite de tamaño menor
+     */
+    EscritorArchivoPartidas(Path ruta, long tamanoMaximo) throws IOException {
+        this.tamanoMaximo = tamanoMaximo;
+        canal = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+
+        // La cabecera se escribe al cerrar; de momento se reserva su espacio
+        canal.position(ArchivoPartidas.TAMANO_CABECERA);
+        escritos = ArchivoPartidas.TAMANO_CABECERA;
+    }
+
+    //-------------------------
+    // MÉTODOS PÚBLICOS
+    //-------------------------
+
+    /**
+     * Escribe un archivo con todas las partidas indicadas
+     */
+    public static void escribir(Path ruta, Iterable<Partida> partidas) throws IOException {
+        try (EscritorArchivoPartidas escritor = new EscritorArchivoPartidas(ruta)) {
+            for (Partida partida : partidas) {
+                escritor.agregar(partida);
+            }
+        }
+    }
+
+    /**
+     * Añade una partida al archivo
+     */
+    public void agregar(Partida partida) throws IOException {
+        if (cerrado) {
+            throw new IOException("El archivo ya está cerrado");
+        }
+        int turnos = partida.contarTurnos();
+
+        // Los textos de las jugadas sin código se preparan antes para conocer su tamaño
+        int numeroLiterales = 0;
+        int bytesLiterales = 0;
+        for (int i = 0; i < turnos; i++) {
+            for (int color = 0; color < 2; color++) {
+                if (codigo(partida, i, color) == CodigoJugada.SIN_CODIGO) {
+                    String literal = color == 0 ? partida.obtenerNotacionBlancas(i) : partida.obtenerNotacionNegras(i);
+                    if (numeroLiterales == literales.length) {
+                        literales = Arrays.copyOf(literales, literales.length * 2);
+                    }
+                    literales[numeroLiterales] = literal.getBytes(StandardCharsets.UTF_8);
+                    if (literales[numeroLiterales].length > 0xFFFF) {
+                        throw new IOException("Jugada demasiado larga en el turno " + partida.obtenerNumeroTurno(i));
+                    }
+                    bytesLiterales += 2 + literales[numeroLiterales++].length;
+                }
+            }
+        }
+
+        // Con este registro y su entrada en la tabla, el archivo debe poder abrirse
+        long tamanoTurnos = ArchivoPartidas.alinear(ArchivoPartidas.TAMANO_CABECERA_REGISTRO
+                + (long) ArchivoPartidas.TAMANO_TURNO * turnos);
+        long tamanoRegistro = ArchivoPartidas.alinear(tamanoTurnos + 8L * (partida.contarJugadas() + 1) + bytesLiterales);
+        if (escritos + tamanoRegistro + 8L * (numeroPartidas + 1) > tamanoMaximo) {
+            Arrays.fill(literales, 0, numeroLiterales, null);
+            throw new IOException("El archivo de partidas pasaría de " + tamanoMaximo
+                    + " bytes con la partida " + (numeroPartidas + 1));
+        }
+        if (numeroPartidas == desplazamientos.length) {
+            desplazamientos = Arrays.copyOf(desplazamientos, desplazamientos.length * 2);
+        }
+        desplazamientos[numeroPartidas++] = escritos;
+
+        // Cabecera del registro
+        escribirInt(turnos);
+        escribirInt(partida.obtenerResultado());
+        escribirInt(partida.contarJugadas());
+        escribirInt(bytesLiterales);
+
+        // Turnos: número y código de cada jugada; las jugadas sin código apuntan a su texto
+        int literal = 0;
+        for (int i = 0; i < turnos; i++) {
+            escribirInt(partida.obtenerNumeroTurno(i));
+            for (int color = 0; color < 2; color++) {
+                int codigo = codigo(partida, i, color);
+                escribirInt(codigo == CodigoJugada.SIN_CODIGO ? ArchivoPartidas.codigoLiteral(literal++) : codigo);
+            }
+        }
+        alinear();
+
+        // Claves Zobrist de las posiciones, en el orden de las llaves del Arbol
+        posicion.reiniciar();
+        boolean conocida = true;
+        escribirLong(posicion.obtenerHash());
+        for (int i = 0; i < turnos; i++) {
+            for (int color = 0; color < 2; color++) {
+                int codigo = codigo(partida, i, color);
+                if (codigo == Partida.SIN_JUGADA) {
+                    continue;
+                }
+                conocida = conocida && reproducir(codigo);
+                escribirLong(conocida ? posicion.obtenerHash() : TablaPosiciones.SIN_HASH);
+            }
+        }
+
+        // Textos de las jugadas sin código: longitud en bytes y UTF-8
+        for (int i = 0; i < numeroLiterales; i++) {
+            escribirShort(literales[i].length);
+            escribirBytes(literales[i]);
+            literales[i] = null;
+        }
+        alinear();
+    }
+
+    public int contarPartidas() {
+        return numeroPartidas;
+    }
+
+    /**
+     * Escribe la tabla de registros y la cabecera y cierra el archivo
+     */
+    @Override
+    public void close() throws IOException {
+        if (cerrado) {
+            return;
+        }
+        cerrado = true;
+        try {
+            long posicionTabla = escritos;
+            for (int i = 0; i < numeroPartidas; i++) {
+                escribirLong(desplazamientos[i]);
+            }
+            vaciar();
+
+            ByteBuffer cabecera = ByteBuffer.allocate(ArchivoPartidas.TAMANO_CABECERA).order(ByteOrder.LITTLE_ENDIAN);
+            cabecera.putInt(ArchivoPartidas.MAGICO);
+            cabecera.putInt(ArchivoPartidas.VERSION);
+            cabecera.putInt(numeroPartidas);
+            cabecera.putInt(0);
+            cabecera.putLong(posicionTabla);
+            cabecera.putInt((int) crc.getValue());
+            cabecera.putInt(0);
+            cabecera.flip();
+            while (cabecera.hasRemaining()) {
+                canal.write(cabecera, cabecera.position());
+            }
+        } finally {
+            canal.close();
+        }
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private static int codigo(Partida partida, int turno, int color) {
+        return color == 0 ? partida.obtenerCodigoBlancas(turno) : partida.obtenerCodigoNegras(turno);
+    }
+
+    private boolean reproducir(int codigo) {
+        if (codigo == CodigoJugada.SIN_CODIGO) {
+            return false;
+        }
+        int movimiento = posicion.resolver(codigo);
+        if (movimiento < 0) {
+            return false;
+        }
+        posicion.hacerMovimiento(movimiento);
+        return true;
+    }
+
+    private void escribirInt(int valor) throws IOException {
+        asegurarEspacio(4);
+        buffer.putInt(valor);
+        escritos += 4;
+    }
+
+    private void escribirLong(long valor) throws IOException {
+        asegurarEspacio(8);
+        buffer.putLong(valor);
+        escritos += 8;
+    }
+
+    private void escribirShort(int valor) throws IOException {
+        asegurarEspacio(2);
+        buffer.putShort((short) valor);
+        escritos += 2;
+    }
+
+    private void escribirBytes(byte[] bytes) throws IOException {
+        // Los textos pueden ser más largos que el espacio libre del búfer
+        int escritosTexto = 0;
+        while (escritosTexto < bytes.length) {
+            if (!buffer.hasRemaining()) {
+                vaciar();
+            }
+            int cantidad = Math.min(buffer.remaining(), bytes.length - escritosTexto);
+            buffer.put(bytes, escritosTexto, cantidad);
+            escritosTexto += cantidad;
+        }
+        escritos += bytes.length;
+    }
+
+    /**
+     * Rellena con ceros hasta un múltiplo de 8 bytes
+     */
+    private void alinear() throws IOException {
+        while ((escritos & 7) != 0) {
+            asegurarEspacio(1);
+            buffer.put((byte) 0);
+            escritos++;
+        }
+    }
+
+    private void asegurarEspacio(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            vaciar();
+        }
+    }
+
+    private void vaciar() throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        buffer.clear();
+    }
+}
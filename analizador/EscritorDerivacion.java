@@ -0,0 +1,363 @@
+package analizador;
+
+import modelo.CodigoJugada;
+import modelo.Partida;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escribe el árbol de derivación de las partidas directamente en un flujo de salida
+ *
+ * El texto se compone en un búfer de caracteres de tamaño fijo que se vacía
+ * cuando se llena, de modo que la memoria usada no depende del número ni del
+ * tamaño de las partidas. Hay dos formatos:
+ * <ul>
+ *   <li>XML: el mismo documento &lt;partida&gt; que generarArbolDerivacionTexto</li>
+ *   <li>JSON: un objeto por partida con la lista de turnos</li>
+ * </ul>
+ * Con varias partidas, cada documento empieza en una línea nueva (en JSON, un
+ * objeto por línea). Los textos de las jugadas se escapan según el formato.
+ */
+public class EscritorDerivacion implements Flushable, Closeable {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    public static final int XML = 0;
+    public static final int JSON = 1;
+
+    private static final int TAMANO_BUFFER = 8 * 1024;
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private final int formato;
+
+    // Destino: un Writer, o un canal al que se envían los caracteres codificados en UTF-8
+    private final Writer escritor;
+    private final WritableByteChannel canal;
+    private final CharsetEncoder codificador;
+    private final ByteBuffer bytes;
+
+    // Búfer de caracteres reutilizado para todas las partidas
+    private final char[] buffer = new char[TAMANO_BUFFER];
+    private final CharBuffer vistaBuffer = CharBuffer.wrap(buffer);
+    private int ocupado;
+
+    private int partidasEscritas;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    /**
+     * @param destino Recibe el texto generado
+     * @param formato XML o JSON
+     */
+    public EscritorDerivacion(Writer destino, int formato) {
+        this.formato = comprobarFormato(formato);
+        this.escritor = destino;
+        this.canal = null;
+        this.codificador = null;
+        this.bytes = null;
+    }
+
+    /**
+     * @param destino Recibe el texto generado en UTF-8
+     * @param formato XML o JSON
+     */
+    public EscritorDerivacion(OutputStream destino, int formato) {
+        this(Channels.newChannel(destino), formato);
+    }
+
+    /**
+     * @param destino Recibe el texto generado en UTF-8
+     * @param formato XML o JSON
+     */
+    public EscritorDerivacion(WritableByteChannel destino, int formato) {
+        this.formato = comprobarFormato(formato);
+        this.escritor = null;
+        this.canal = destino;
+        this.codificador = StandardCharsets.UTF_8.newEncoder();
+        // Un carácter ocupa como mucho 3 bytes en UTF-8 (4 un par suplente, que son 2 caracteres)
+        this.bytes = ByteBuffer.allocate(TAMANO_BUFFER * 3);
+    }
+
+    //-------------------------
+    // MÉTODOS PÚBLICOS
+    //-------------------------
+
+    /**
+     * Escribe el árbol de derivación de una partida
+     */
+    public void escribir(Partida partida) throws IOException {
+        if (partidasEscritas++ > 0) {
+            agregar('\n');
+        }
+        if (formato == XML) {
+            escribirXML(partida);
+        } else {
+            escribirJSON(partida);
+        }
+    }
+
+    /**
+     * Número de partidas escritas hasta ahora
+     */
+    public int contarPartidas() {
+        return partidasEscritas;
+    }
+
+    /**
+     * Envía al destino el texto pendiente
+     */
+    @Override
+    public void flush() throws IOException {
+        vaciar(false);
+        if (escritor != null) {
+            escritor.flush();
+        }
+    }
+
+    /**
+     * Envía el texto pendiente y cierra el destino
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            vaciar(true);
+        } finally {
+            if (escritor != null) {
+                escritor.close();
+            } else {
+                canal.close();
+            }
+        }
+    }
+
+    //-------------------------
+    // FORMATOS
+    //-------------------------
+
+    private void escribirXML(Partida partida) throws IOException {
+        agregar("<partida>\n");
+
+        for (int i = 0; i < partida.contarTurnos(); i++) {
+            agregar("  <turno>\n");
+            agregar("    <numero_turno>");
+            agregarNumero(partida.obtenerNumeroTurno(i));
+            agregar("</numero_turno>\n");
+
+            // Jugada blanca
+            agregar("    <jugada_blanca>\n");
+            agregar("      <jugada>");
+            agregarJugada(partida.obtenerCodigoBlancas(i), partida, i, true);
+            agregar("</jugada>\n");
+            agregar("    </jugada_blanca>\n");
+
+            // Jugada negra (si existe)
+            int negras = partida.obtenerCodigoNegras(i);
+            if (negras != Partida.SIN_JUGADA) {
+                agregar("    <jugada_negra>\n");
+                agregar("      <jugada>");
+                agregarJugada(negras, partida, i, false);
+                agregar("</jugada>\n");
+                agregar("    </jugada_negra>\n");
+            }
+
+            agregar("  </turno>\n");
+        }
+
+        agregar("</partida>");
+    }
+
+    private void escribirJSON(Partida partida) throws IOException {
+        agregar("{\"turnos\":[");
+
+        for (int i = 0; i < partida.contarTurnos(); i++) {
+            if (i > 0) {
+                agregar(',');
+            }
+            agregar("{\"numero_turno\":");
+            agregarNumero(partida.obtenerNumeroTurno(i));
+
+            int blancas = partida.obtenerCodigoBlancas(i);
+            if (blancas != Partida.SIN_JUGADA) {
+                agregar(",\"jugada_blanca\":{\"jugada\":\"");
+                agregarJugada(blancas, partida, i, true);
+                agregar("\"}");
+            }
+
+            int negras = partida.obtenerCodigoNegras(i);
+            if (negras != Partida.SIN_JUGADA) {
+                agregar(",\"jugada_negra\":{\"jugada\":\"");
+                agregarJugada(negras, partida, i, false);
+                agregar("\"}");
+            }
+            agregar('}');
+        }
+
+        agregar("]}");
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private static int comprobarFormato(int formato) {
+        if (formato != XML && formato != JSON) {
+            throw new IllegalArgumentException("Formato de derivación desconocido: " + formato);
+        }
+        return formato;
+    }
+
+    private void agregar(char caracter) throws IOException {
+        if (ocupado == buffer.length) {
+            vaciar(false);
+        }
+        buffer[ocupado++] = caracter;
+    }
+
+    private void agregar(String texto) throws IOException {
+        int copiados = 0;
+        while (copiados < texto.length()) {
+            if (ocupado == buffer.length) {
+                vaciar(false);
+            }
+            int cantidad = Math.min(buffer.length - ocupado, texto.length() - copiados);
+            texto.getChars(copiados, copiados + cantidad, buffer, ocupado);
+            ocupado += cantidad;
+            copiados += cantidad;
+        }
+    }
+
+    /**
+     * Escribe un número sin crear un String
+     */
+    private void agregarNumero(int numero) throws IOException {
+        if (numero < 0) {
+            agregar('-');
+            numero = -numero;
+        }
+        int divisor = 1;
+        while (numero / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            agregar((char) ('0' + numero / divisor % 10));
+        }
+    }
+
+    /**
+     * Escribe una jugada; las que tienen código se decodifican directamente en el búfer
+     * y solo las guardadas como texto necesitan escaparse
+     */
+    private void agregarJugada(int codigo, Partida partida, int turno, boolean blancas) throws IOException {
+        if (codigo == Partida.SIN_JUGADA) {
+            return;
+        }
+        if (codigo != CodigoJugada.SIN_CODIGO) {
+            if (buffer.length - ocupado < CodigoJugada.LONGITUD_MAXIMA) {
+                vaciar(false);
+            }
+            ocupado += CodigoJugada.decodificar(codigo, buffer, ocupado);
+            return;
+        }
+
+        String texto = blancas ? partida.obtenerNotacionBlancas(turno) : partida.obtenerNotacionNegras(turno);
+        if (formato == XML) {
+            agregarTextoXML(texto);
+        } else {
+            agregarTextoJSON(texto);
+        }
+    }
+
+    private void agregarTextoXML(String texto) throws IOException {
+        for (int i = 0; i < texto.length(); i++) {
+            char caracter = texto.charAt(i);
+            switch (caracter) {
+                case '&':
+                    agregar("&amp;");
+                    break;
+                case '<':
+                    agregar("&lt;");
+                    break;
+                case '>':
+                    agregar("&gt;");
+                    break;
+                case '"':
+                    agregar("&quot;");
+                    break;
+                case '\'':
+                    agregar("&apos;");
+                    break;
+                default:
+                    agregar(caracter);
+                    break;
+            }
+        }
+    }
+
+    private void agregarTextoJSON(String texto) throws IOException {
+        for (int i = 0; i < texto.length(); i++) {
+            char caracter = texto.charAt(i);
+            if (caracter == '"' || caracter == '\\') {
+                agregar('\\');
+                agregar(caracter);
+            } else if (caracter < 0x20) {
+                agregar("\\u00");
+                agregar(Character.forDigit(caracter >> 4, 16));
+                agregar(Character.forDigit(caracter & 0xF, 16));
+            } else {
+                agregar(caracter);
+            }
+        }
+    }
+
+    /**
+     * Envía el contenido del búfer al destino y lo deja vacío
+     * @param fin true si no se va a escribir nada más (cierra la codificación)
+     */
+    private void vaciar(boolean fin) throws IOException {
+        if (ocupado == 0 && !fin) {
+            return;
+        }
+        if (escritor != null) {
+            escritor.write(buffer, 0, ocupado);
+            ocupado = 0;
+            return;
+        }
+
+        vistaBuffer.limit(ocupado).position(0);
+        CoderResult estado = codificador.encode(vistaBuffer, bytes, fin);
+        if (!estado.isError() && fin) {
+            estado = codificador.flush(bytes);
+        }
+        if (estado.isError()) {
+            estado.throwException();
+        }
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            canal.write(bytes);
+        }
+        bytes.clear();
+
+        // Un suplente alto al final del búfer espera a su pareja en el siguiente bloque
+        int pendientes = vistaBuffer.remaining();
+        System.arraycopy(buffer, vistaBuffer.position(), buffer, 0, pendientes);
+        ocupado = pendientes;
+    }
+}
@@ -0,0 +1,481 @@
+package analizador;
+
+import modelo.CodigoJugada;
+import modelo.Diagnosticos;
+import modelo.Jugada;
+import modelo.Partida;
+import modelo.Posicion;
+import modelo.ResultadoAnalisis;
+import modelo.Turno;
+import util.ValidadorSAN;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lee partidas en formato PGN desde un flujo de caracteres sin cargar el texto completo
+ *
+ * El texto se recorre a través de un búfer de tamaño fijo. Cada jugada se valida en
+ * cuanto se termina de leer y cada partida se entrega al receptor al encontrar su
+ * final, de modo que la memoria usada no depende del tamaño de la entrada.
+ *
+ * Una partida termina con una marca de resultado (1-0, 0-1, 1/2-1/2, *), con una
+ * etiqueta [..] después de haber leído jugadas, con un nuevo "1." o con el fin del flujo.
+ * Los comentarios {..} y ;, las variantes (..) y las anotaciones $n se ignoran.
+ *
+ * Mientras no haya errores, cada jugada se hace además sobre un tablero para
+ * comprobar que es legal (se puede desactivar con establecerComprobarLegalidad).
+ */
+public class LectorPartidas {
+
+    /**
+     * Recibe cada partida a medida que se completa su lectura
+     */
+    public interface ReceptorPartidas {
+        /**
+         * @param numeroPartida Posición de la partida en la entrada, empezando en 1
+         * @param partida Turnos leídos (incompletos si la partida tiene errores)
+         * @param resultado Resultado de la validación de la partida
+         */
+        void partidaLeida(int numeroPartida, Partida partida, ResultadoAnalisis resultado);
+    }
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Tamaño del búfer de lectura
+    private static final int TAMANO_BUFFER = 8192;
+
+    // Longitud máxima que se conserva de un token (las jugadas SAN son mucho más cortas)
+    private static final int LONGITUD_MAXIMA_TOKEN = 32;
+
+    // Estados del lector
+    private static final int ESTADO_NORMAL = 0;
+    private static final int ESTADO_COMENTARIO_LLAVES = 1;
+    private static final int ESTADO_COMENTARIO_LINEA = 2;
+    private static final int ESTADO_ETIQUETA = 3;
+    private static final int ESTADO_ETIQUETA_CADENA = 4;
+    private static final int ESTADO_VARIANTE = 5;
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private final Reader entrada;
+    private final char[] buffer = new char[TAMANO_BUFFER];
+
+    // Token en construcción y una vista reutilizable para validarlo sin copiarlo
+    private final char[] token = new char[LONGITUD_MAXIMA_TOKEN];
+    private final CharBuffer vistaToken = CharBuffer.wrap(token);
+    private int longitudToken;
+    private boolean tokenDesbordado;
+
+    private int estado;
+    private int profundidadVariante;
+    private boolean escapeEnCadena;
+
+    // Partida en construcción
+    private Partida partida;
+
+    // Turno en construcción, guardado como códigos compactos
+    private boolean turnoAbierto;
+    private int numeroTurno;
+    private int codigoBlancas;
+    private int codigoNegras;
+    private String literalBlancas;
+    private String literalNegras;
+    private boolean esperandoNegras;
+    // Posición del número del turno y si ya se avisó de que le falta la jugada blanca
+    private long inicioNumeroTurno;
+    private boolean faltaBlancasRegistrada;
+    private boolean hayContenido;
+    private int jugadasLeidas;
+
+    // Tablero de la partida en curso, para comprobar la legalidad de las jugadas
+    private final Posicion tablero = new Posicion();
+    private boolean comprobarLegalidad = true;
+
+    // Errores de la partida en curso; el receptor puede consultarlos al recibirla
+    private final Diagnosticos diagnosticos = new Diagnosticos();
+
+    // Posición en la entrada del siguiente carácter y del token en construcción
+    private long posicion;
+    private long inicioToken;
+    private int partidasLeidas;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    /**
+     * Crea un lector sobre un flujo de caracteres
+     */
+    public LectorPartidas(Reader entrada) {
+        this.entrada = entrada;
+    }
+
+    /**
+     * Crea un lector sobre un canal de bytes codificado en UTF-8
+     */
+    public LectorPartidas(ReadableByteChannel canal) {
+        this(Channels.newReader(canal, StandardCharsets.UTF_8));
+    }
+
+    //-------------------------
+    // MÉTODOS PÚBLICOS
+    //-------------------------
+
+    /**
+     * Lee la entrada completa entregando cada partida al receptor
+     * @return Número de partidas leídas
+     */
+    public int leerTodo(ReceptorPartidas receptor) throws IOException {
+        reiniciarPartida();
+
+        int leidos;
+        while ((leidos = entrada.read(buffer, 0, buffer.length)) != -1) {
+            for (int i = 0; i < leidos; i++) {
+                procesarCaracter(buffer[i], receptor);
+                posicion++;
+            }
+        }
+
+        // El fin del flujo cierra el último token y la última partida
+        cerrarToken(receptor);
+        terminarPartida(receptor);
+
+        return partidasLeidas;
+    }
+
+    /**
+     * Indica si las jugadas deben ser legales en la posición además de tener forma SAN válida
+     */
+    public void establecerComprobarLegalidad(boolean comprobarLegalidad) {
+        this.comprobarLegalidad = comprobarLegalidad;
+    }
+
+    /**
+     * Errores de la partida que se está entregando al receptor
+     * El búfer se reutiliza, por lo que solo es válido durante la llamada a partidaLeida.
+     */
+    public Diagnosticos obtenerDiagnosticos() {
+        return diagnosticos;
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private void procesarCaracter(char c, ReceptorPartidas receptor) {
+        switch (estado) {
+            case ESTADO_COMENTARIO_LLAVES:
+                if (c == '}') estado = ESTADO_NORMAL;
+                return;
+            case ESTADO_COMENTARIO_LINEA:
+                if (c == '\n') estado = ESTADO_NORMAL;
+                return;
+            case ESTADO_ETIQUETA:
+                if (c == '"') estado = ESTADO_ETIQUETA_CADENA;
+                else if (c == ']') estado = ESTADO_NORMAL;
+                return;
+            case ESTADO_ETIQUETA_CADENA:
+                if (escapeEnCadena) escapeEnCadena = false;
+                else if (c == '\\') escapeEnCadena = true;
+                else if (c == '"') estado = ESTADO_ETIQUETA;
+                return;
+            case ESTADO_VARIANTE:
+                if (c == '(') {
+                    profundidadVariante++;
+                } else if (c == ')' && --profundidadVariante == 0) {
+                    estado = ESTADO_NORMAL;
+                }
+                return;
+            default:
+                break;
+        }
+
+        switch (c) {
+            case ' ': case '\t': case '\r': case '\n':
+                cerrarToken(receptor);
+                break;
+            case '{':
+                cerrarToken(receptor);
+                estado = ESTADO_COMENTARIO_LLAVES;
+                break;
+            case ';':
+                cerrarToken(receptor);
+                estado = ESTADO_COMENTARIO_LINEA;
+                break;
+            case '(':
+                cerrarToken(receptor);
+                estado = ESTADO_VARIANTE;
+                profundidadVariante = 1;
+                break;
+            case '[':
+                cerrarToken(receptor);
+                // Una etiqueta después de las jugadas indica que empieza otra partida
+                if (jugadasLeidas > 0) {
+                    terminarPartida(receptor);
+                }
+                estado = ESTADO_ETIQUETA;
+                break;
+            case '.':
+                if (longitudToken > 0 && esNumero()) {
+                    // El número de turno se cierra en el punto; la jugada puede ir pegada
+                    abrirTurno(leerNumero(), receptor);
+                    longitudToken = 0;
+                } else if (longitudToken == 0) {
+                    // Puntos suspensivos "N..." : la siguiente jugada es de las negras.
+                    // Si el turno no tiene jugada blanca, ese es el error, y no la
+                    // ilegalidad de la jugada negra en un tablero con turno de blancas
+                    if (turnoAbierto && !hayJugadaBlanca()) {
+                        registrarFaltaBlancas();
+                        esperandoNegras = true;
+                    }
+                } else {
+                    agregarCaracter(c);
+                }
+                break;
+            default:
+                agregarCaracter(c);
+                break;
+        }
+    }
+
+    private void agregarCaracter(char c) {
+        if (longitudToken == 0) {
+            inicioToken = posicion;
+        }
+        if (longitudToken < LONGITUD_MAXIMA_TOKEN) {
+            token[longitudToken++] = c;
+        } else {
+            tokenDesbordado = true;
+        }
+    }
+
+    private void cerrarToken(ReceptorPartidas receptor) {
+        if (longitudToken == 0) {
+            return;
+        }
+
+        int marcaResultado = reconocerResultado();
+        if (marcaResultado >= 0) {
+            hayContenido = true;
+            partida.establecerResultado(marcaResultado);
+            terminarPartida(receptor);
+        } else if (token[0] != '$') {
+            // Las anotaciones numéricas $n no afectan a la partida
+            procesarJugada();
+        }
+
+        longitudToken = 0;
+        tokenDesbordado = false;
+    }
+
+    private void abrirTurno(int numero, ReceptorPartidas receptor) {
+        hayContenido = true;
+
+        // "N..." continúa el turno N con la jugada de las negras
+        if (turnoAbierto && numeroTurno == numero && hayJugadaBlanca()) {
+            esperandoNegras = true;
+            return;
+        }
+
+        // Un nuevo "1." después de otras jugadas empieza otra partida
+        if (numero == 1 && jugadasLeidas > 0) {
+            terminarPartida(receptor);
+            hayContenido = true;
+        }
+
+        cerrarTurno();
+
+        if (numero <= 0) {
+            diagnosticos.registrar(Diagnosticos.NUMERO_TURNO_INVALIDO, numero, Diagnosticos.NINGUNO,
+                    inicioToken, vistaToken, 0, longitudToken);
+        }
+
+        turnoAbierto = true;
+        numeroTurno = numero;
+        inicioNumeroTurno = inicioToken;
+        faltaBlancasRegistrada = false;
+        codigoBlancas = Partida.SIN_JUGADA;
+        codigoNegras = Partida.SIN_JUGADA;
+        literalBlancas = null;
+        literalNegras = null;
+        esperandoNegras = false;
+    }
+
+    private void procesarJugada() {
+        hayContenido = true;
+        jugadasLeidas++;
+
+        if (!turnoAbierto) {
+            diagnosticos.registrar(Diagnosticos.JUGADA_FUERA_DE_TURNO, 0, Diagnosticos.NINGUNO,
+                    inicioToken, vistaToken, 0, longitudToken);
+            return;
+        }
+
+        boolean esNegras = esperandoNegras || hayJugadaBlanca();
+        int clasificacion = tokenDesbordado
+                ? ValidadorSAN.INVALIDA
+                : ValidadorSAN.clasificar(vistaToken, 0, longitudToken);
+
+        int codigo;
+        String literal = null;
+        if (clasificacion == ValidadorSAN.INVALIDA) {
+            diagnosticos.registrar(Diagnosticos.JUGADA_INVALIDA, numeroTurno,
+                    esNegras ? Diagnosticos.NEGRAS : Diagnosticos.BLANCAS,
+                    inicioToken, vistaToken, 0, longitudToken);
+            // La jugada ocupa su lugar en el turno para seguir revisando las demás
+            codigo = CodigoJugada.SIN_CODIGO;
+        } else {
+            // Codificar directamente desde el búfer; solo las formas raras se copian como texto
+            codigo = CodigoJugada.codificar(vistaToken, 0, longitudToken, clasificacion);
+            if (codigo == CodigoJugada.SIN_CODIGO) {
+                literal = new String(token, 0, longitudToken);
+            }
+
+            // Tras el primer error la posición ya no es fiable y no se comprueba la legalidad
+            if (comprobarLegalidad && !diagnosticos.hayErrores()) {
+                AnalizadorSintactico.jugarEnPosicion(tablero, codigo, numeroTurno,
+                        esNegras ? Diagnosticos.NEGRAS : Diagnosticos.BLANCAS,
+                        inicioToken, vistaToken, 0, longitudToken, diagnosticos);
+            }
+        }
+
+        if (esNegras) {
+            codigoNegras = codigo;
+            literalNegras = literal;
+            cerrarTurno();
+        } else {
+            codigoBlancas = codigo;
+            literalBlancas = literal;
+        }
+    }
+
+    /**
+     * Añade el turno en construcción a la partida
+     */
+    private void cerrarTurno() {
+        if (!turnoAbierto) {
+            return;
+        }
+        if (!hayJugadaBlanca()) {
+            registrarFaltaBlancas();
+        } else if (!diagnosticos.hayErrores()) {
+            if (literalBlancas == null && literalNegras == null) {
+                partida.agregarTurno(numeroTurno, codigoBlancas, codigoNegras);
+            } else {
+                Turno turno = new Turno(numeroTurno);
+                turno.setJugadaBlanca(crearJugada(codigoBlancas, literalBlancas));
+                turno.setJugadaNegra(crearJugada(codigoNegras, literalNegras));
+                partida.agregarTurno(turno);
+            }
+        }
+        turnoAbierto = false;
+        esperandoNegras = false;
+    }
+
+    /**
+     * Registra una sola vez que el turno abierto no tiene jugada blanca, en la posición de su número
+     */
+    private void registrarFaltaBlancas() {
+        if (!faltaBlancasRegistrada) {
+            diagnosticos.registrar(Diagnosticos.SIN_MOVIMIENTO_BLANCAS, numeroTurno, Diagnosticos.BLANCAS,
+                    inicioNumeroTurno, null, 0, 0);
+            faltaBlancasRegistrada = true;
+        }
+    }
+
+    private static Jugada crearJugada(int codigo, String literal) {
+        if (literal != null) {
+            return new Jugada(literal);
+        }
+        return codigo == Partida.SIN_JUGADA ? null : new Jugada(codigo);
+    }
+
+    private void terminarPartida(ReceptorPartidas receptor) {
+        cerrarTurno();
+
+        if (hayContenido) {
+            partidasLeidas++;
+            ResultadoAnalisis resultado;
+            if (diagnosticos.hayErrores()) {
+                resultado = new ResultadoAnalisis(diagnosticos);
+            } else if (partida.contarTurnos() == 0) {
+                diagnosticos.registrar(Diagnosticos.SIN_TURNOS, 0, Diagnosticos.NINGUNO,
+                        posicion, null, 0, 0);
+                resultado = new ResultadoAnalisis(diagnosticos);
+            } else {
+                resultado = new ResultadoAnalisis(partida);
+            }
+            receptor.partidaLeida(partidasLeidas, partida, resultado);
+        }
+
+        reiniciarPartida();
+    }
+
+    private void reiniciarPartida() {
+        partida = new Partida();
+        turnoAbierto = false;
+        esperandoNegras = false;
+        hayContenido = false;
+        jugadasLeidas = 0;
+        diagnosticos.limpiar();
+        tablero.reiniciar();
+    }
+
+    private boolean hayJugadaBlanca() {
+        return turnoAbierto && codigoBlancas != Partida.SIN_JUGADA;
+    }
+
+    private boolean esNumero() {
+        for (int i = 0; i < longitudToken; i++) {
+            if (token[i] < '0' || token[i] > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int leerNumero() {
+        int numero = 0;
+        for (int i = 0; i < longitudToken; i++) {
+            numero = numero * 10 + (token[i] - '0');
+            if (numero > 1_000_000) {
+                // Un número de turno tan grande solo puede ser un error de la entrada
+                return -1;
+            }
+        }
+        return numero;
+    }
+
+    /**
+     * Reconoce las marcas de resultado
+     * @return Resultado de la partida o -1 si el token no es una marca de resultado
+     */
+    private int reconocerResultado() {
+        if (coincide("1-0")) return Partida.VICTORIA_BLANCAS;
+        if (coincide("0-1")) return Partida.VICTORIA_NEGRAS;
+        if (coincide("1/2-1/2")) return Partida.TABLAS;
+        if (coincide("*")) return Partida.RESULTADO_DESCONOCIDO;
+        return -1;
+    }
+
+    private boolean coincide(String texto) {
+        if (longitudToken != texto.length()) {
+            return false;
+        }
+        for (int i = 0; i < longitudToken; i++) {
+            if (token[i] != texto.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
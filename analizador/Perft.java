@@ -0,0 +1,80 @@
+package analizador;
+
+import modelo.Posicion;
+
+/**
+ * Comprueba el generador de movimientos de Posicion contando nodos (perft)
+ *
+ * Recorre el árbol de movimientos legales hasta una profundidad y compara el
+ * número de hojas con valores de referencia publicados. Las pruebas comparan el
+ * recuento de POSICIONES con NODOS_ESPERADOS; la velocidad se mide en BancoPerft.
+ */
+public class Perft {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Posiciones de referencia y número de nodos a profundidad 1, 2, 3...
+    static final String[] POSICIONES = {
+            Posicion.FEN_INICIAL,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"
+    };
+
+    static final long[][] NODOS_ESPERADOS = {
+            {20, 400, 8902, 197281, 4865609, 119060324},
+            {48, 2039, 97862, 4085603, 193690690},
+            {14, 191, 2812, 43238, 674624, 11030083},
+            {6, 264, 9467, 422333, 15833292},
+            {44, 1486, 62379, 2103487, 89941194}
+    };
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private final Posicion posicion;
+
+    // Una lista de movimientos por nivel, reservadas una sola vez
+    private final int[][] listas;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    public Perft(Posicion posicion, int profundidadMaxima) {
+        this.posicion = posicion;
+        this.listas = new int[Math.max(1, profundidadMaxima)][Posicion.MAXIMO_MOVIMIENTOS];
+    }
+
+    //-------------------------
+    // MÉTODOS PÚBLICOS
+    //-------------------------
+
+    /**
+     * Cuenta las hojas del árbol de movimientos legales
+     */
+    public long contar(int profundidad) {
+        if (profundidad == 0) {
+            return 1;
+        }
+        int[] lista = listas[profundidad - 1];
+        int cantidad = posicion.generarLegales(lista, 0);
+
+        // En el último nivel basta con contar los movimientos legales
+        if (profundidad == 1) {
+            return cantidad;
+        }
+
+        long nodos = 0;
+        for (int i = 0; i < cantidad; i++) {
+            posicion.hacerMovimiento(lista[i]);
+            nodos += contar(profundidad - 1);
+            posicion.deshacerMovimiento();
+        }
+        return nodos;
+    }
+}
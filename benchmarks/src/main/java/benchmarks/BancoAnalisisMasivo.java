@@ -0,0 +1,125 @@
+package benchmarks;
+
+import analizador.AnalizadorMasivo;
+import modelo.ResultadoAnalisis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide cómo escala AnalizadorMasivo con el número de hilos
+ *
+ * Sin archivo se genera uno temporal con numeroPartidas partidas sintéticas; con
+ * "-p archivo=partidas.pgn" se analiza ese archivo y numeroPartidas no se usa.
+ * La aceleración es el cociente entre el tiempo con un hilo y el de cada valor de hilos.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class BancoAnalisisMasivo {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Partidas usadas para generar el archivo sintético
+    private static final String[] PARTIDAS_MODELO = {
+            "1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 4. Ba4 Nf6 5. O-O Be7 6. Re1 b5 7. Bb3 d6 8. c3 O-O 1-0",
+            "1. d4 Nf6 2. c4 e6 3. Nc3 Bb4 4. e3 O-O 5. Bd3 d5 6. Nf3 c5 7. O-O Nc6 1/2-1/2",
+            "1. e4 c5 2. Nf3 d6 3. d4 cxd4 4. Nxd4 Nf6 5. Nc3 a6 6. Be3 e5 7. Nb3 Be6 0-1",
+            "1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7# 1-0",
+            "1. d4 d5 2. c4 Zz9 3. Nc3 Nf6 *"
+    };
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    @Param({"1", "2", "4", "8"})
+    public int hilos;
+
+    @Param({"100000"})
+    public int numeroPartidas;
+
+    // Archivo PGN a analizar; vacío para usar el sintético
+    @Param({""})
+    public String archivo;
+
+    private Path ruta;
+    private boolean temporal;
+    private ForkJoinPool grupoHilos;
+    private AnalizadorMasivo analizador;
+
+    //-------------------------
+    // PREPARACIÓN
+    //-------------------------
+
+    @Setup(Level.Trial)
+    public void preparar() throws IOException {
+        if (archivo.isEmpty()) {
+            ruta = generarArchivo(numeroPartidas);
+            temporal = true;
+        } else {
+            ruta = Paths.get(archivo);
+        }
+        grupoHilos = new ForkJoinPool(hilos);
+        analizador = new AnalizadorMasivo(grupoHilos);
+    }
+
+    @TearDown(Level.Trial)
+    public void terminar() throws IOException {
+        grupoHilos.shutdown();
+        if (temporal) {
+            Files.deleteIfExists(ruta);
+        }
+    }
+
+    //-------------------------
+    // MEDICIONES
+    //-------------------------
+
+    @Benchmark
+    public List<ResultadoAnalisis> analizarArchivo() throws IOException {
+        return analizador.analizarArchivo(ruta);
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private static Path generarArchivo(int partidas) throws IOException {
+        Path archivo = Files.createTempFile("banco-analisis", ".pgn");
+        try (BufferedWriter escritor = Files.newBufferedWriter(archivo, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < partidas; i++) {
+                escritor.write("[Event \"Banco " + i + "\"]\n");
+                escritor.write("[Site \"?\"]\n\n");
+                escritor.write(PARTIDAS_MODELO[i % PARTIDAS_MODELO.length]);
+                escritor.write("\n\n");
+            }
+        }
+        return archivo;
+    }
+}
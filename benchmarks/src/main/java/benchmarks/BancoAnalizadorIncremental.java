@@ -0,0 +1,51 @@
+package benchmarks;
+
+import analizador.AnalizadorIncremental;
+import modelo.ResultadoAnalisis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide el análisis tras añadir o borrar la última jugada de la partida
+ *
+ * Cada llamada alterna entre el texto completo y el texto sin su última jugada,
+ * así que el analizador incremental solo rehace el último turno.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancoAnalizadorIncremental {
+
+    private final AnalizadorIncremental analizador = new AnalizadorIncremental();
+
+    private String[] textos;
+    private int siguiente;
+
+    @Setup(Level.Trial)
+    public void preparar(PartidasBanco partidas) {
+        // Quitar la marca de resultado, si la hay, y después la última jugada
+        String texto = partidas.texto.replaceFirst("\\s+(1-0|0-1|1/2-1/2|\\*)$", "");
+        textos = new String[]{texto, texto.substring(0, texto.lastIndexOf(' '))};
+        analizador.analizar(texto);
+    }
+
+    @Benchmark
+    public ResultadoAnalisis editarUltimaJugada() {
+        siguiente ^= 1;
+        return analizador.analizar(textos[siguiente]);
+    }
+}
@@ -0,0 +1,44 @@
+package benchmarks;
+
+import analizador.AnalizadorSintactico;
+import modelo.ResultadoAnalisis;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide AnalizadorSintactico.analizar con y sin comprobación de legalidad
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancoAnalizadorSintactico {
+
+    private final AnalizadorSintactico analizador = new AnalizadorSintactico();
+    private final AnalizadorSintactico analizadorSinLegalidad = new AnalizadorSintactico();
+
+    public BancoAnalizadorSintactico() {
+        analizadorSinLegalidad.establecerComprobarLegalidad(false);
+    }
+
+    @Benchmark
+    public ResultadoAnalisis analizar(PartidasBanco partidas) {
+        return analizador.analizar(partidas.texto);
+    }
+
+    @Benchmark
+    public ResultadoAnalisis analizarSinLegalidad(PartidasBanco partidas) {
+        return analizadorSinLegalidad.analizar(partidas.texto);
+    }
+}
@@ -0,0 +1,30 @@
+package benchmarks;
+
+import main.Arbol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide Arbol.construirDesdePartida a partir de una partida ya analizada
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancoArbol {
+
+    @Benchmark
+    public Arbol construirDesdePartida(PartidasBanco partidas) {
+        Arbol arbol = new Arbol();
+        arbol.construirDesdePartida(partidas.partida);
+        return arbol;
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import analizador.AnalizadorGramatico;
+import analizador.EscritorDerivacion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide AnalizadorGramatico.analizarYObtenerArbol (texto de entrada a árbol de derivación)
+ * y la escritura de la derivación de una partida ya analizada con EscritorDerivacion
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancoDerivacion {
+
+    private final AnalizadorGramatico analizador = new AnalizadorGramatico();
+
+    // Escritores sobre un flujo que descarta los bytes, para medir solo la generación y la codificación
+    private final EscritorDerivacion escritorXML = new EscritorDerivacion(OutputStream.nullOutputStream(), EscritorDerivacion.XML);
+    private final EscritorDerivacion escritorJSON = new EscritorDerivacion(OutputStream.nullOutputStream(), EscritorDerivacion.JSON);
+
+    @Benchmark
+    public String analizarYObtenerArbol(PartidasBanco partidas) {
+        return analizador.analizarYObtenerArbol(partidas.texto);
+    }
+
+    @Benchmark
+    public String generarArbolDerivacionTexto(PartidasBanco partidas) {
+        return analizador.generarArbolDerivacionTexto(partidas.partida);
+    }
+
+    @Benchmark
+    public int escribirXML(PartidasBanco partidas) throws IOException {
+        escritorXML.escribir(partidas.partida);
+        return escritorXML.contarPartidas();
+    }
+
+    @Benchmark
+    public int escribirJSON(PartidasBanco partidas) throws IOException {
+        escritorJSON.escribir(partidas.partida);
+        return escritorJSON.contarPartidas();
+    }
+}
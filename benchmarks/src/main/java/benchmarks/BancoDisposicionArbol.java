@@ -0,0 +1,124 @@
+package benchmarks;
+
+import main.Arbol;
+import main.DisposicionArbol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la disposición del árbol del visualizador y la búsqueda del nodo bajo el ratón
+ *
+ * busquedaRecursiva reproduce la búsqueda que recorría el árbol en cada
+ * movimiento del ratón, como referencia para buscarNodo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancoDisposicionArbol {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    private static final int ANCHURA = 4000;
+    private static final int RADIO = 25;
+    private static final int SEPARACION_VERTICAL = 70;
+    private static final int MARGEN_SUPERIOR = 50;
+    private static final int PUNTOS = 1024;
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    @Param({"1000", "50000"})
+    public int nodos;
+
+    private Arbol arbol;
+    private DisposicionArbol disposicion;
+
+    // Puntos de consulta, la mitad sobre un nodo y la otra mitad al azar
+    private final int[] puntosX = new int[PUNTOS];
+    private final int[] puntosY = new int[PUNTOS];
+    private int siguiente;
+
+    //-------------------------
+    // PREPARACIÓN
+    //-------------------------
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        arbol = new Arbol();
+        for (int i = 1; i < nodos; i++) {
+            arbol.agregarJugada("e4", 0L);
+        }
+        disposicion = new DisposicionArbol(arbol, ANCHURA, RADIO, SEPARACION_VERTICAL, MARGEN_SUPERIOR);
+
+        SplittableRandom azar = new SplittableRandom(7);
+        for (int i = 0; i < PUNTOS; i++) {
+            if (i % 2 == 0) {
+                int llave = 1 + azar.nextInt(nodos);
+                puntosX[i] = disposicion.obtenerX(llave) + azar.nextInt(-RADIO / 2, RADIO / 2);
+                puntosY[i] = disposicion.obtenerY(llave) + azar.nextInt(-RADIO / 2, RADIO / 2);
+            } else {
+                puntosX[i] = azar.nextInt(disposicion.obtenerMinimoX(), disposicion.obtenerMaximoX());
+                puntosY[i] = azar.nextInt(0, disposicion.obtenerMaximoY());
+            }
+        }
+    }
+
+    //-------------------------
+    // MEDICIONES
+    //-------------------------
+
+    @Benchmark
+    public DisposicionArbol construirDisposicion() {
+        return new DisposicionArbol(arbol, ANCHURA, RADIO, SEPARACION_VERTICAL, MARGEN_SUPERIOR);
+    }
+
+    @Benchmark
+    public int buscarNodo() {
+        int i = siguiente++ & (PUNTOS - 1);
+        return disposicion.buscarNodo(puntosX[i], puntosY[i]);
+    }
+
+    @Benchmark
+    public Arbol.Nodo busquedaRecursiva() {
+        int i = siguiente++ & (PUNTOS - 1);
+        return buscarRecursivo(arbol.partida, puntosX[i], puntosY[i], ANCHURA / 2, MARGEN_SUPERIOR, ANCHURA / 4);
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private static Arbol.Nodo buscarRecursivo(Arbol.Nodo nodo, int x, int y, int nodoX, int nodoY, int separacion) {
+        if (nodo == null) return null;
+
+        if (Math.sqrt(Math.pow(x - nodoX, 2) + Math.pow(y - nodoY, 2)) <= RADIO) {
+            return nodo;
+        }
+
+        int siguienteSeparacion = Math.max(separacion / 2, RADIO * 2);
+        Arbol.Nodo encontrado = buscarRecursivo(nodo.obtenerIzquierda(), x, y,
+                nodoX - siguienteSeparacion, nodoY + SEPARACION_VERTICAL, siguienteSeparacion);
+        if (encontrado != null) return encontrado;
+        return buscarRecursivo(nodo.obtenerDerecha(), x, y,
+                nodoX + siguienteSeparacion, nodoY + SEPARACION_VERTICAL, siguienteSeparacion);
+    }
+}
@@ -0,0 +1,218 @@
+package benchmarks;
+
+import modelo.CodigoJugada;
+import modelo.IndiceJugadas;
+import modelo.Partida;
+import modelo.Posicion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara consultas sobre IndiceJugadas con un recorrido de todas las partidas
+ *
+ * Las partidas se generan con jugadas legales al azar (semilla fija) y se guardan
+ * a la vez en el índice y en una lista de Partida para el recorrido lineal.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancoIndiceJugadas {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    private static final int JUGADAS_MAXIMAS = 120;
+    private static final long SEMILLA = 20240601L;
+    private static final String LETRAS_PIEZA = " NBRQK";
+
+    // Medio movimiento de la última jugada negra antes de la jugada 10
+    private static final int ULTIMA_JUGADA_ANTES_DE_10 = 18;
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    @Param({"20000"})
+    public int numeroPartidas;
+
+    private IndiceJugadas indice;
+    private Partida[] partidas;
+
+    //-------------------------
+    // PREPARACIÓN
+    //-------------------------
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        SplittableRandom azar = new SplittableRandom(SEMILLA);
+        indice = new IndiceJugadas();
+        partidas = new Partida[numeroPartidas];
+        for (int i = 0; i < numeroPartidas; i++) {
+            partidas[i] = generarPartida(azar);
+            indice.agregarPartida(partidas[i]);
+        }
+    }
+
+    //-------------------------
+    // CONSULTAS
+    //-------------------------
+
+    /**
+     * Partidas en las que las negras enrocan largo antes de la jugada 10
+     */
+    @Benchmark
+    public int[] enroqueLargoNegrasIndice() {
+        int[] jugadas = indice.buscarTodas(IndiceJugadas.NEGRAS, IndiceJugadas.tipo(CodigoJugada.ENROQUE_LARGO));
+        return indice.obtenerPartidas(indice.filtrarJugadas(jugadas, 1, ULTIMA_JUGADA_ANTES_DE_10));
+    }
+
+    @Benchmark
+    public int enroqueLargoNegrasRecorrido() {
+        int encontradas = 0;
+        for (Partida partida : partidas) {
+            int turnos = Math.min(partida.contarTurnos(), ULTIMA_JUGADA_ANTES_DE_10 / 2);
+            for (int i = 0; i < turnos; i++) {
+                int codigo = partida.obtenerCodigoNegras(i);
+                if (codigo >= 0 && CodigoJugada.pieza(codigo) == CodigoJugada.ENROQUE_LARGO) {
+                    encontradas++;
+                    break;
+                }
+            }
+        }
+        return encontradas;
+    }
+
+    /**
+     * Jugadas que promocionan dando jaque (OR de las piezas de promoción, AND con jaque)
+     */
+    @Benchmark
+    public int[] promocionConJaqueIndice() {
+        int[] jugadas = new int[0];
+        for (int pieza = CodigoJugada.CABALLO; pieza <= CodigoJugada.DAMA; pieza++) {
+            jugadas = IndiceJugadas.union(jugadas, indice.buscarTodas(IndiceJugadas.promocion(pieza), IndiceJugadas.JAQUE));
+        }
+        return jugadas;
+    }
+
+    @Benchmark
+    public int promocionConJaqueRecorrido() {
+        int encontradas = 0;
+        for (Partida partida : partidas) {
+            for (int i = 0; i < partida.contarTurnos(); i++) {
+                encontradas += promocionConJaque(partida.obtenerCodigoBlancas(i));
+                encontradas += promocionConJaque(partida.obtenerCodigoNegras(i));
+            }
+        }
+        return encontradas;
+    }
+
+    /**
+     * Capturas de caballo en e5
+     */
+    @Benchmark
+    public int[] caballoCapturaE5Indice() {
+        return indice.buscarTodas(IndiceJugadas.tipo(CodigoJugada.CABALLO), IndiceJugadas.CAPTURA,
+                IndiceJugadas.destino(36));
+    }
+
+    @Benchmark
+    public int caballoCapturaE5Recorrido() {
+        int encontradas = 0;
+        for (Partida partida : partidas) {
+            for (int i = 0; i < partida.contarTurnos(); i++) {
+                encontradas += caballoCapturaE5(partida.obtenerCodigoBlancas(i));
+                encontradas += caballoCapturaE5(partida.obtenerCodigoNegras(i));
+            }
+        }
+        return encontradas;
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private static int promocionConJaque(int codigo) {
+        return codigo >= 0 && CodigoJugada.promocion(codigo) != CodigoJugada.PEON
+                && (CodigoJugada.esJaque(codigo) || CodigoJugada.esMate(codigo)) ? 1 : 0;
+    }
+
+    private static int caballoCapturaE5(int codigo) {
+        return codigo >= 0 && CodigoJugada.pieza(codigo) == CodigoJugada.CABALLO
+                && CodigoJugada.esCaptura(codigo) && CodigoJugada.destino(codigo) == 36 ? 1 : 0;
+    }
+
+    /**
+     * Juega movimientos legales al azar hasta el final de la partida o JUGADAS_MAXIMAS
+     */
+    private static Partida generarPartida(SplittableRandom azar) {
+        Posicion posicion = new Posicion();
+        int[] movimientos = new int[Posicion.MAXIMO_MOVIMIENTOS];
+        int[] codigos = new int[JUGADAS_MAXIMAS];
+        int jugadas = 0;
+
+        int cantidad = posicion.generarLegales(movimientos, 0);
+        while (cantidad > 0 && jugadas < JUGADAS_MAXIMAS) {
+            int movimiento = movimientos[azar.nextInt(cantidad)];
+            StringBuilder notacion = notacionSinJaque(posicion, movimiento);
+            posicion.hacerMovimiento(movimiento);
+            cantidad = posicion.generarLegales(movimientos, 0);
+            // El código compacto de un enroque no guarda el jaque
+            if (posicion.enJaque() && Posicion.especial(movimiento) != Posicion.ENROQUE) {
+                notacion.append(cantidad == 0 ? '#' : '+');
+            }
+            codigos[jugadas++] = CodigoJugada.codificar(notacion);
+        }
+
+        Partida partida = new Partida();
+        for (int i = 0; i < jugadas; i += 2) {
+            partida.agregarTurno(i / 2 + 1, codigos[i], i + 1 < jugadas ? codigos[i + 1] : Partida.SIN_JUGADA);
+        }
+        return partida;
+    }
+
+    /**
+     * Notación SAN de un movimiento sin desambiguación ni jaque (el índice no usa la desambiguación)
+     */
+    private static StringBuilder notacionSinJaque(Posicion posicion, int movimiento) {
+        int origen = Posicion.origen(movimiento);
+        int destino = Posicion.destino(movimiento);
+        StringBuilder notacion = new StringBuilder(8);
+        if (Posicion.especial(movimiento) == Posicion.ENROQUE) {
+            return notacion.append(destino % 8 == 6 ? "O-O" : "O-O-O");
+        }
+
+        int tipo = posicion.obtenerPieza(origen) % 6;
+        boolean captura = posicion.obtenerPieza(destino) != Posicion.VACIA
+                || Posicion.especial(movimiento) == Posicion.AL_PASO;
+        if (tipo != CodigoJugada.PEON) {
+            notacion.append(LETRAS_PIEZA.charAt(tipo));
+        } else if (captura) {
+            notacion.append((char) ('a' + origen % 8));
+        }
+        if (captura) {
+            notacion.append('x');
+        }
+        notacion.append((char) ('a' + destino % 8)).append((char) ('1' + destino / 8));
+        if (Posicion.promocion(movimiento) != 0) {
+            notacion.append('=').append(LETRAS_PIEZA.charAt(Posicion.promocion(movimiento)));
+        }
+        return notacion;
+    }
+}
@@ -0,0 +1,66 @@
+package benchmarks;
+
+import analizador.Perft;
+import modelo.Posicion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide la velocidad del generador de movimientos de Posicion con Perft
+ *
+ * Los nodos por segundo salen de dividir el recuento de la posición entre el
+ * tiempo medido. La corrección de los recuentos la comprueba PerftTest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class BancoPerft {
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    @Param({
+            Posicion.FEN_INICIAL,
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"
+    })
+    public String fen;
+
+    @Param({"4"})
+    public int profundidad;
+
+    private Perft perft;
+
+    //-------------------------
+    // PREPARACIÓN
+    //-------------------------
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        perft = new Perft(new Posicion(fen), profundidad);
+    }
+
+    //-------------------------
+    // MEDICIONES
+    //-------------------------
+
+    @Benchmark
+    public long contar() {
+        return perft.contar(profundidad);
+    }
+}
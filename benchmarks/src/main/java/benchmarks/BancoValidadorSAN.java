@@ -0,0 +1,34 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import util.ValidadorSAN;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mide ValidadorSAN.esJugadaValida sobre todas las jugadas de una partida
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BancoValidadorSAN {
+
+    @Benchmark
+    public int validarJugadas(PartidasBanco partidas) {
+        int validas = 0;
+        for (String jugada : partidas.jugadas) {
+            if (ValidadorSAN.esJugadaValida(jugada)) {
+                validas++;
+            }
+        }
+        return validas;
+    }
+}
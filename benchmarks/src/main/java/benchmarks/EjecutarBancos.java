@@ -0,0 +1,38 @@
+package benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Ejecuta las mediciones JMH y guarda los resultados en JSON
+ *
+ * Acepta las mismas opciones que el lanzador de JMH (por ejemplo un filtro
+ * "BancoArbol" o "-p tamano=larga"). Si no se indica -rf/-rff, los resultados
+ * se escriben en resultados-jmh.json para poder comparar ejecuciones.
+ */
+public class EjecutarBancos {
+
+    private static final String ARCHIVO_RESULTADOS = "resultados-jmh.json";
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        CommandLineOptions opciones = new CommandLineOptions(args);
+        ChainedOptionsBuilder constructor = new OptionsBuilder().parent(opciones);
+
+        if (!opciones.getResultFormat().hasValue()) {
+            constructor.resultFormat(ResultFormatType.JSON);
+        }
+        if (!opciones.getResult().hasValue()) {
+            constructor.result(ARCHIVO_RESULTADOS);
+        }
+        if (opciones.getIncludes().isEmpty()) {
+            constructor.include("benchmarks\\..*");
+        }
+
+        new Runner(constructor.build()).run();
+    }
+}
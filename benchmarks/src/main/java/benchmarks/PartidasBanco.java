@@ -0,0 +1,108 @@
+package benchmarks;
+
+import analizador.AnalizadorSintactico;
+import modelo.Partida;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Partidas de distinto tamaño compartidas por todas las mediciones
+ *
+ * corta: mate del pastor (7 jugadas)
+ * tipica: partida de torneo de 40 turnos (80 jugadas)
+ * larga: 500 jugadas, maniobras de caballos que se repiten
+ */
+@State(Scope.Benchmark)
+public class PartidasBanco {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    static final String PARTIDA_CORTA = "1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 4. Qxf7#";
+
+    // Kasparov - Topalov, Wijk aan Zee 1999 (hasta la jugada 40)
+    static final String PARTIDA_TIPICA =
+            "1. e4 d6 2. d4 Nf6 3. Nc3 g6 4. Be3 Bg7 5. Qd2 c6 6. f3 b5 7. Nge2 Nbd7 "
+            + "8. Bh6 Bxh6 9. Qxh6 Bb7 10. a3 e5 11. O-O-O Qe7 12. Kb1 a6 13. Nc1 O-O-O "
+            + "14. Nb3 exd4 15. Rxd4 c5 16. Rd1 Nb6 17. g3 Kb8 18. Na5 Ba8 19. Bh3 d5 "
+            + "20. Qf4+ Ka7 21. Rhe1 d4 22. Nd5 Nbxd5 23. exd5 Qd6 24. Rxd4 cxd4 "
+            + "25. Re7+ Kb6 26. Qxd4+ Kxa5 27. b4+ Ka4 28. Qc3 Qxd5 29. Ra7 Bb7 "
+            + "30. Rxb7 Qc4 31. Qxf6 Kxa3 32. Qxa6+ Kxb4 33. c3+ Kxc3 34. Qa1+ Kd2 "
+            + "35. Qb2+ Kd1 36. Bf1 Rd2 37. Rd7 Rxd7 38. Bxc4 bxc4 39. Qxh8 Rd3 "
+            + "40. Qa8 c3 1-0";
+
+    // Ciclo de 8 jugadas que devuelve la posición inicial
+    private static final String[] CICLO_LARGO = {"Nf3", "Nf6", "Nc3", "Nc6", "Ng1", "Ng8", "Nb1", "Nb8"};
+    private static final int JUGADAS_LARGA = 500;
+
+    static final String PARTIDA_LARGA = generarPartidaLarga();
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    @Param({"corta", "tipica", "larga"})
+    public String tamano;
+
+    // Texto de la partida elegida
+    public String texto;
+
+    // Partida ya analizada, para las mediciones que empiezan después del análisis
+    public Partida partida;
+
+    // Jugadas sueltas de la partida, para medir el validador
+    public String[] jugadas;
+
+    //-------------------------
+    // MÉTODOS PÚBLICOS
+    //-------------------------
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        switch (tamano) {
+            case "corta":
+                texto = PARTIDA_CORTA;
+                break;
+            case "tipica":
+                texto = PARTIDA_TIPICA;
+                break;
+            default:
+                texto = PARTIDA_LARGA;
+                break;
+        }
+
+        partida = new AnalizadorSintactico().analizar(texto).getPartida();
+        if (partida == null) {
+            throw new IllegalStateException("La partida de prueba '" + tamano + "' no es válida");
+        }
+
+        jugadas = new String[partida.contarJugadas()];
+        int n = 0;
+        for (int i = 0; i < partida.contarTurnos(); i++) {
+            jugadas[n++] = partida.obtenerNotacionBlancas(i);
+            String negras = partida.obtenerNotacionNegras(i);
+            if (negras != null) {
+                jugadas[n++] = negras;
+            }
+        }
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private static String generarPartidaLarga() {
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < JUGADAS_LARGA; i++) {
+            if (i % 2 == 0) {
+                texto.append(i / 2 + 1).append(". ");
+            }
+            texto.append(CICLO_LARGO[i % CICLO_LARGO.length]).append(' ');
+        }
+        return texto.append("1/2-1/2").toString();
+    }
+}
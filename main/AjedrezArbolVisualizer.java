@@ -1,30 +1,57 @@
 package main;
 
+import modelo.Posicion;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class AjedrezArbolVisualizer extends JPanel implements MouseWheelListener, MouseMotionListener, MouseListener {
+    // Altura del centro de la raíz
+    private static final int MARGEN_SUPERIOR = 50;
+
+    // Anchura máxima de una etiqueta de jugada ("Qa1xb2=Q") a tamaño normal
+    private static final int ANCHO_ETIQUETA = 70;
+
+    // Zoom: scale = FACTOR_ZOOM ^ nivelZoom, entre 0.1 y 5 aproximadamente
+    private static final double FACTOR_ZOOM = 1.1;
+    private static final int ZOOM_MINIMO = -24;
+    private static final int ZOOM_MAXIMO = 16;
+
+    // Teselas del árbol ya dibujadas: 256 x 256 píxeles, hasta 128 (32 MB) entre todos los niveles de zoom
+    private static final int TAMANO_TESELA = 256;
+    private static final int MAXIMO_TESELAS = 128;
+
+    private final Arbol arbol;
     private Arbol.Nodo raiz;
     private int nodeRadius = 25;
-    private int horizontalGap = 100;
     private int verticalGap = 70;
     private int treeHeight;
 
+    // Coordenadas de los nodos e índice para encontrar el nodo bajo el ratón
+    private DisposicionArbol disposicion;
+
+    // Teselas indexadas por nivel de zoom y posición; se vacía al cambiar la disposición
+    private final CacheImagenes teselas = new CacheImagenes(MAXIMO_TESELAS);
+
+    // Dibuja las teselas y los nodos resaltados; se crea con la disposición
+    private DibujoArbol dibujo;
+
+    private int nivelZoom = 0;
     private double scale = 1.0;
     private double translateX = 0;
     private double translateY = 0;
     private Point lastPoint;
 
-    private Color[] levelColors = {
-            new Color(100, 180, 255),  // Azul para la raíz
-            new Color(220, 220, 220)   // Gris claro para el resto
-    };
-
     private Arbol.Nodo hoverNode = null;
     private Arbol.Nodo selectedNode = null;
 
@@ -32,16 +59,24 @@ public class AjedrezArbolVisualizer extends JPanel implements MouseWheelListener
     private JLabel jugadaLabel;
     private JLabel infoLabel;
 
-    private Map<Object, Image> tableroCache = new HashMap<>();
+    // Miniatura del tablero del nodo seleccionado, en el panel de detalles
+    private final JLabel tableroLabel = new JLabel();
+
+    // Miniaturas de los tableros, dibujadas en segundo plano y guardadas en una caché acotada
+    private final MiniaturasTablero miniaturas;
 
     public AjedrezArbolVisualizer(Arbol arbol, JPanel detallesPanel, JLabel jugadaLabel, JLabel infoLabel) {
+        this.arbol = arbol;
         this.raiz = arbol.partida;
-        this.treeHeight = calculateHeight(raiz);
+        this.treeHeight = arbol.altura();
         this.detallesPanel = detallesPanel;
         this.jugadaLabel = jugadaLabel;
         this.infoLabel = infoLabel;
+        this.miniaturas = new MiniaturasTablero(arbol, this::miniaturaTerminada);
+        tableroLabel.setAlignmentX(Component.LEFT_ALIGNMENT);
 
-        int width = (int) Math.pow(2, treeHeight) * horizontalGap;
+        // La disposición crece con el número de hojas; se deja un radio de margen a cada lado
+        int width = DisposicionArbol.calcularAnchura(arbol.tamano(), nodeRadius) + 2 * nodeRadius;
         int height = (treeHeight + 1) * verticalGap + 50;
         setPreferredSize(new Dimension(width, height));
 
@@ -58,33 +93,45 @@ public class AjedrezArbolVisualizer extends JPanel implements MouseWheelListener
         actualizarPanelDetalles(selectedNode);
     }
 
-    private int calculateHeight(Arbol.Nodo node) {
-        if (node == null) return 0;
-        return 1 + Math.max(calculateHeight(node.izquierda), calculateHeight(node.derecha));
-    }
-
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
         Graphics2D g2d = (Graphics2D) g;
 
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
-        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        DibujoArbol.configurarCalidad(g2d);
 
-        g2d.setColor(new Color(245, 245, 245));
-        g2d.fillRect(0, 0, getWidth(), getHeight());
-
-        AffineTransform oldTransform = g2d.getTransform();
-        g2d.translate(translateX, translateY);
-        g2d.scale(scale, scale);
+        Rectangle area = g2d.getClipBounds();
+        if (area == null) {
+            area = new Rectangle(0, 0, getWidth(), getHeight());
+        }
 
         if (raiz != null) {
-            int width = getWidth();
-            drawNode(g2d, raiz, width / 2, 50, width / 4, 0);
-        }
+            // El árbol se copia de las teselas ya dibujadas; solo se dibujan las que faltan
+            DisposicionArbol disposicion = obtenerDisposicion();
+            int origenX = (int) Math.floor(translateX);
+            int origenY = (int) Math.floor(translateY);
+            int primeraX = Math.floorDiv(area.x - origenX, TAMANO_TESELA);
+            int primeraY = Math.floorDiv(area.y - origenY, TAMANO_TESELA);
+            int ultimaX = Math.floorDiv(area.x + area.width - 1 - origenX, TAMANO_TESELA);
+            int ultimaY = Math.floorDiv(area.y + area.height - 1 - origenY, TAMANO_TESELA);
+            for (int teselaY = primeraY; teselaY <= ultimaY; teselaY++) {
+                for (int teselaX = primeraX; teselaX <= ultimaX; teselaX++) {
+                    g2d.drawImage(obtenerTesela(disposicion, teselaX, teselaY),
+                            origenX + teselaX * TAMANO_TESELA, origenY + teselaY * TAMANO_TESELA, null);
+                }
+            }
 
-        g2d.setTransform(oldTransform);
+            // El nodo seleccionado y el que está bajo el ratón se dibujan encima
+            AffineTransform oldTransform = g2d.getTransform();
+            g2d.translate(origenX, origenY);
+            g2d.scale(scale, scale);
+            drawHighlight(g2d, disposicion, hoverNode, new Color(255, 218, 185)); // Color para hover
+            drawHighlight(g2d, disposicion, selectedNode, new Color(100, 149, 237)); // Azul más oscuro para nodo seleccionado
+            g2d.setTransform(oldTransform);
+        } else {
+            g2d.setColor(DibujoArbol.COLOR_FONDO);
+            g2d.fillRect(area.x, area.y, area.width, area.height);
+        }
 
         g2d.setColor(Color.DARK_GRAY);
         g2d.drawString("Usa la rueda del ratón para hacer zoom", 10, 20);
@@ -92,116 +139,112 @@ public class AjedrezArbolVisualizer extends JPanel implements MouseWheelListener
         g2d.drawString("Haz clic en un nodo para ver detalles de la jugada", 10, 60);
     }
 
-    private void drawNode(Graphics2D g, Arbol.Nodo node, int x, int y, int xOffset, int level) {
-        if (node == null) return;
-
-        // Elegir color según nivel o estado
-        Color nodeColor;
-        if (level == 0) {
-            nodeColor = levelColors[0]; // Color para la raíz
-        } else {
-            nodeColor = levelColors[1]; // Color para el resto de nodos
-        }
-
-        if (node == selectedNode) {
-            g.setColor(new Color(100, 149, 237)); // Azul más oscuro para nodo seleccionado
-        }
-        else if (node == hoverNode) {
-            g.setColor(new Color(255, 218, 185)); // Color para hover
-        } else {
-            g.setColor(nodeColor);
-        }
-
-        // Dibujar círculo del nodo
-        g.fillOval(x - nodeRadius, y - nodeRadius, 2 * nodeRadius, 2 * nodeRadius);
-        g.setColor(Color.BLACK);
-        g.drawOval(x - nodeRadius, y - nodeRadius, 2 * nodeRadius, 2 * nodeRadius);
-
-        // Dibujar número del nodo
-        String moveNumber = String.valueOf(node.llave);
-        FontMetrics fm = g.getFontMetrics();
-        int textWidth = fm.stringWidth(moveNumber);
-        g.drawString(moveNumber, x - textWidth / 2, y - 2);
-
-        // Dibujar texto de la jugada
-        if (node.jugada != null) {
-            String jugadaStr = node.jugada.toString();
-            if (jugadaStr.length() > 8) {
-                jugadaStr = jugadaStr.substring(0, 7) + "...";
-            }
-            textWidth = fm.stringWidth(jugadaStr);
-            g.drawString(jugadaStr, x - textWidth / 2, y + 12);
-        }
-
-        // Calcular posición para el próximo nivel
-        int nextY = y + verticalGap;
-        
-        // Calcular separación horizontal basada en el nivel
-        int nextXOffset = xOffset / 2;
-        if (nextXOffset < nodeRadius * 2) {
-            nextXOffset = nodeRadius * 2;
-        }
-
-        // Dibujar hijo izquierdo si existe
-        if (node.izquierda != null) {
-            int leftX = x - nextXOffset;
-            g.drawLine(x, y + nodeRadius, leftX, nextY - nodeRadius);
-            drawNode(g, node.izquierda, leftX, nextY, nextXOffset, level + 1);
+    /**
+     * Tesela del árbol con el zoom actual, dibujándola si no está en la caché
+     * La tesela (x, y) cubre [x, x + 1) * TAMANO_TESELA píxeles del árbol ya escalado.
+     */
+    private BufferedImage obtenerTesela(DisposicionArbol disposicion, int teselaX, int teselaY) {
+        long clave = (long) (nivelZoom - ZOOM_MINIMO) << 56
+                | (teselaY & 0xFFFFFFL) << 32
+                | (teselaX & 0xFFFFFFFFL);
+        BufferedImage tesela = teselas.obtener(clave);
+        if (tesela != null) {
+            return tesela;
         }
 
-        // Dibujar hijo derecho si existe
-        if (node.derecha != null) {
-            int rightX = x + nextXOffset;
-            g.drawLine(x, y + nodeRadius, rightX, nextY - nodeRadius);
-            drawNode(g, node.derecha, rightX, nextY, nextXOffset, level + 1);
+        GraphicsConfiguration configuracion = getGraphicsConfiguration();
+        tesela = configuracion != null
+                ? configuracion.createCompatibleImage(TAMANO_TESELA, TAMANO_TESELA, Transparency.OPAQUE)
+                : new BufferedImage(TAMANO_TESELA, TAMANO_TESELA, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = tesela.createGraphics();
+        try {
+            DibujoArbol.configurarCalidad(g);
+            g.setFont(getFont());
+            g.setColor(DibujoArbol.COLOR_FONDO);
+            g.fillRect(0, 0, TAMANO_TESELA, TAMANO_TESELA);
+
+            // Parte del árbol que cubre la tesela, en coordenadas del árbol
+            double inicioX = (double) teselaX * TAMANO_TESELA;
+            double inicioY = (double) teselaY * TAMANO_TESELA;
+            int minX = (int) Math.floor(inicioX / scale);
+            int minY = (int) Math.floor(inicioY / scale);
+            int maxX = (int) Math.ceil((inicioX + TAMANO_TESELA) / scale);
+            int maxY = (int) Math.ceil((inicioY + TAMANO_TESELA) / scale);
+
+            g.translate(-inicioX, -inicioY);
+            g.scale(scale, scale);
+            dibujo.dibujar(g, disposicion, new Rectangle(minX, minY, maxX - minX, maxY - minY), scale);
+        } finally {
+            g.dispose();
         }
+        teselas.guardar(clave, tesela);
+        return tesela;
     }
 
-    private Arbol.Nodo findNodeAt(Arbol.Nodo node, int x, int y, int nodeX, int nodeY, int xOffset, int level) {
-        if (node == null) return null;
-
-        if (Math.sqrt(Math.pow(x - nodeX, 2) + Math.pow(y - nodeY, 2)) <= nodeRadius) {
-            return node;
-        }
-
-        int nextY = nodeY + verticalGap;
-        int nextXOffset = xOffset / 2;
-        if (nextXOffset < nodeRadius * 2) {
-            nextXOffset = nodeRadius * 2;
+    /**
+     * Dibuja un nodo resaltado con el mismo nivel de detalle que las teselas
+     */
+    private void drawHighlight(Graphics2D g, DisposicionArbol disposicion, Arbol.Nodo nodo, Color relleno) {
+        if (nodo == null || nodo.llave > disposicion.contarNodos()) {
+            return;
         }
+        dibujo.dibujarNodo(g, disposicion, nodo.llave, relleno, scale);
+    }
 
-        Arbol.Nodo found = null;
-        if (node.izquierda != null) {
-            int leftX = nodeX - nextXOffset;
-            found = findNodeAt(node.izquierda, x, y, leftX, nextY, nextXOffset, level + 1);
-            if (found != null) return found;
+    /**
+     * Pide repintar solo el área de un nodo, con margen para sus etiquetas
+     */
+    private void repintarNodo(Arbol.Nodo nodo) {
+        if (nodo == null || disposicion == null || nodo.llave > disposicion.contarNodos()) {
+            return;
         }
+        int semiancho = (int) Math.ceil(Math.max(nodeRadius, ANCHO_ETIQUETA / 2.0) * scale) + 2;
+        int semialto = (int) Math.ceil(nodeRadius * scale) + 2;
+        int x = (int) Math.floor(translateX) + (int) Math.round(disposicion.obtenerX(nodo.llave) * scale);
+        int y = (int) Math.floor(translateY) + (int) Math.round(disposicion.obtenerY(nodo.llave) * scale);
+        repaint(x - semiancho, y - semialto, 2 * semiancho, 2 * semialto);
+    }
 
-        if (node.derecha != null) {
-            int rightX = nodeX + nextXOffset;
-            found = findNodeAt(node.derecha, x, y, rightX, nextY, nextXOffset, level + 1);
-            if (found != null) return found;
+    /**
+     * Disposición del árbol para la anchura actual; solo se recalcula si cambian
+     * la anchura o el árbol
+     */
+    private DisposicionArbol obtenerDisposicion() {
+        if (disposicion == null || !disposicion.correspondeA(arbol, getWidth())) {
+            disposicion = new DisposicionArbol(arbol, getWidth(), nodeRadius, verticalGap, MARGEN_SUPERIOR);
+            teselas.vaciar();
+            // Si solo cambia la anchura, las etiquetas ya compuestas siguen valiendo
+            if (dibujo == null || !dibujo.correspondeA(arbol)) {
+                dibujo = new DibujoArbol(arbol);
+            }
         }
-
-        return null;
+        return disposicion;
     }
 
     private void actualizarPanelDetalles(Arbol.Nodo nodo) {
         if (nodo != null) {
-            String jugadaStr = nodo.jugada != null ? nodo.jugada.toString() : "Posición inicial";
+            String jugadaStr = nodo.obtenerJugada() != null ? nodo.obtenerJugada().toString() : "Posición inicial";
             jugadaLabel.setText("Jugada #" + nodo.llave + ": " + jugadaStr);
 
             StringBuilder info = new StringBuilder("<html>");
 
-            int nivel = calcularNivel(raiz, nodo, 0);
-            String turno = (nivel % 2 == 0) ? "Blancas" : "Negras";
+            // Todos los datos del nodo se obtienen de su llave, sin recorrer el árbol
+            int numeroJugada = nodo.obtenerNumeroJugada();
+            if (numeroJugada > 0) {
+                String bando = nodo.obtenerColorAlMover() == Posicion.NEGRAS ? "Blancas" : "Negras";
+                info.append("Medio movimiento: ").append(numeroJugada)
+                        .append(" (").append(bando).append(")<br>");
+            }
+            String turno = nodo.obtenerColorAlMover() == Posicion.BLANCAS ? "Blancas" : "Negras";
             info.append("Turno: ").append(turno).append("<br>");
+            info.append("Nivel: ").append(nodo.obtenerProfundidad()).append("<br>");
+            info.append("Nodos en el subárbol: ").append(nodo.contarSubarbol()).append("<br>");
 
             info.append("Jugada anterior: ");
-            if (nodo.parent != null) {
-                info.append("#").append(nodo.parent.llave);
-                if (nodo.parent.jugada != null) {
-                    info.append(" (").append(nodo.parent.jugada).append(")");
+            if (nodo.obtenerPadre() != null) {
+                info.append("#").append(nodo.obtenerPadre().llave);
+                if (nodo.obtenerPadre().obtenerJugada() != null) {
+                    info.append(" (").append(nodo.obtenerPadre().obtenerJugada()).append(")");
                 }
             } else {
                 info.append("Ninguna (posición inicial)");
@@ -209,28 +252,33 @@ public class AjedrezArbolVisualizer extends JPanel implements MouseWheelListener
             info.append("<br>");
 
             info.append("Variantes disponibles: ");
-            if (nodo.izquierda != null || nodo.derecha != null) {
-                if (nodo.izquierda != null) {
-                    info.append("#").append(nodo.izquierda.llave);
-                    if (nodo.izquierda.jugada != null) {
-                        info.append(" (").append(nodo.izquierda.jugada).append(")");
+            if (nodo.obtenerIzquierda() != null || nodo.obtenerDerecha() != null) {
+                if (nodo.obtenerIzquierda() != null) {
+                    info.append("#").append(nodo.obtenerIzquierda().llave);
+                    if (nodo.obtenerIzquierda().obtenerJugada() != null) {
+                        info.append(" (").append(nodo.obtenerIzquierda().obtenerJugada()).append(")");
                     }
                 }
 
-                if (nodo.derecha != null) {
-                    if (nodo.izquierda != null) info.append(", ");
-                    info.append("#").append(nodo.derecha.llave);
-                    if (nodo.derecha.jugada != null) {
-                        info.append(" (").append(nodo.derecha.jugada).append(")");
+                if (nodo.obtenerDerecha() != null) {
+                    if (nodo.obtenerIzquierda() != null) info.append(", ");
+                    info.append("#").append(nodo.obtenerDerecha().llave);
+                    if (nodo.obtenerDerecha().obtenerJugada() != null) {
+                        info.append(" (").append(nodo.obtenerDerecha().obtenerJugada()).append(")");
                     }
                 }
             } else {
                 info.append("Ninguna (final de variante)");
             }
 
+            info.append("<br><font size=-2>").append(miniaturas.describir()).append("</font>");
             info.append("</html>");
             infoLabel.setText(info.toString());
 
+            // Si la miniatura aún no está, se pone cuando termine de dibujarse
+            BufferedImage miniatura = miniaturas.obtener(nodo.llave);
+            tableroLabel.setIcon(miniatura == null ? null : new ImageIcon(miniatura));
+
             if (!detallesPanel.isVisible()) {
                 detallesPanel.setVisible(true);
             }
@@ -239,27 +287,17 @@ public class AjedrezArbolVisualizer extends JPanel implements MouseWheelListener
         }
     }
 
-    private int calcularNivel(Arbol.Nodo raiz, Arbol.Nodo objetivo, int nivelActual) {
-        if (raiz == null) return -1;
-        if (raiz == objetivo) return nivelActual;
-
-        int nivelIzquierda = calcularNivel(raiz.izquierda, objetivo, nivelActual + 1);
-        if (nivelIzquierda != -1) return nivelIzquierda;
-
-        return calcularNivel(raiz.derecha, objetivo, nivelActual + 1);
-    }
-
     @Override
     public void mouseWheelMoved(MouseWheelEvent e) {
         double oldScale = scale;
 
+        // El zoom va por pasos de 1.1 para que las teselas de cada nivel se puedan reutilizar
         if (e.getWheelRotation() < 0) {
-            scale *= 1.1;
+            nivelZoom = Math.min(nivelZoom + 1, ZOOM_MAXIMO);
         } else {
-            scale /= 1.1;
+            nivelZoom = Math.max(nivelZoom - 1, ZOOM_MINIMO);
         }
-
-        scale = Math.max(0.1, Math.min(scale, 5.0));
+        scale = Math.pow(FACTOR_ZOOM, nivelZoom);
 
         Point mousePoint = e.getPoint();
         translateX = mousePoint.x - (mousePoint.x - translateX) * (scale / oldScale);
@@ -283,15 +321,21 @@ public class AjedrezArbolVisualizer extends JPanel implements MouseWheelListener
         int transformedX = (int)((e.getX() - translateX) / scale);
         int transformedY = (int)((e.getY() - translateY) / scale);
 
-        Arbol.Nodo nodeUnderCursor = findNodeAt(raiz, transformedX, transformedY, getWidth() / 2, 50, getWidth() / 4, 0);
+        int llave = obtenerDisposicion().buscarNodo(transformedX, transformedY);
+        Arbol.Nodo nodeUnderCursor = llave == Arbol.SIN_NODO ? null : arbol.obtenerNodo(llave);
 
         if (nodeUnderCursor != hoverNode) {
+            repintarNodo(hoverNode);
             hoverNode = nodeUnderCursor;
-            repaint();
+            repintarNodo(hoverNode);
+            if (hoverNode != null) {
+                // Encargar la miniatura ya, para que esté lista cuando aparezca el tooltip
+                miniaturas.obtener(hoverNode.llave);
+            }
         }
 
         if (nodeUnderCursor != null) {
-            String jugadaStr = nodeUnderCursor.jugada != null ? nodeUnderCursor.jugada.toString() : "Posición inicial";
+            String jugadaStr = nodeUnderCursor.obtenerJugada() != null ? nodeUnderCursor.obtenerJugada().toString() : "Posición inicial";
             setToolTipText("Jugada #" + nodeUnderCursor.llave + ": " + jugadaStr);
         } else {
             setToolTipText(null);
@@ -301,9 +345,10 @@ public class AjedrezArbolVisualizer extends JPanel implements MouseWheelListener
     @Override
     public void mouseClicked(MouseEvent e) {
         if (hoverNode != null) {
+            repintarNodo(selectedNode);
             selectedNode = hoverNode;
             actualizarPanelDetalles(selectedNode);
-            repaint();
+            repintarNodo(selectedNode);
         }
     }
 
@@ -322,29 +367,93 @@ public class AjedrezArbolVisualizer extends JPanel implements MouseWheelListener
 
     @Override
     public void mouseExited(MouseEvent e) {
+        Arbol.Nodo anterior = hoverNode;
         hoverNode = null;
-        repaint();
+        repintarNodo(anterior);
     }
 
-    public void guardarComoImagen(String rutaArchivo) {
-        BufferedImage image = new BufferedImage(getWidth(), getHeight(), BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = image.createGraphics();
+    /**
+     * Tooltip con la miniatura del tablero del nodo bajo el ratón, si ya está dibujada
+     */
+    @Override
+    public JToolTip createToolTip() {
+        BufferedImage miniatura = hoverNode == null ? null : miniaturas.obtener(hoverNode.llave);
+        if (miniatura == null) {
+            return super.createToolTip();
+        }
+        JToolTip tip = new JToolTip() {
+            @Override
+            public Dimension getPreferredSize() {
+                Dimension texto = super.getPreferredSize();
+                return new Dimension(Math.max(texto.width, miniatura.getWidth() + 8),
+                        texto.height + miniatura.getHeight() + 4);
+            }
 
-        paint(g2d);
-        g2d.dispose();
+            @Override
+            protected void paintComponent(Graphics g) {
+                super.paintComponent(g);
+                g.drawImage(miniatura, (getWidth() - miniatura.getWidth()) / 2,
+                        getHeight() - miniatura.getHeight() - 4, null);
+            }
+        };
+        tip.setComponent(this);
+        return tip;
+    }
 
-        try {
-            javax.imageio.ImageIO.write(image, "png", new java.io.File(rutaArchivo));
-            JOptionPane.showMessageDialog(this,
-                    "Imagen guardada correctamente en: " + rutaArchivo,
-                    "Guardar Imagen", JOptionPane.INFORMATION_MESSAGE);
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                    "Error al guardar la imagen: " + e.getMessage(),
-                    "Error", JOptionPane.ERROR_MESSAGE);
+    /**
+     * Etiqueta con la miniatura del tablero del nodo seleccionado
+     */
+    public JLabel obtenerEtiquetaTablero() {
+        return tableroLabel;
+    }
+
+    /**
+     * Detiene el dibujo de miniaturas en segundo plano
+     */
+    public void cerrar() {
+        miniaturas.cerrar();
+    }
+
+    /**
+     * Llamado en el hilo de eventos cuando termina de dibujarse una miniatura
+     */
+    private void miniaturaTerminada(int llave) {
+        if (selectedNode != null && selectedNode.llave == llave) {
+            actualizarPanelDetalles(selectedNode);
         }
     }
 
+    /**
+     * Exporta el árbol completo, no solo la parte visible, como PNG o como SVG
+     * según la extensión. Se exporta en otro hilo para no bloquear la ventana.
+     */
+    public void guardarComoImagen(String rutaArchivo) {
+        ExportadorArbol exportador = new ExportadorArbol(arbol);
+        Thread hilo = new Thread(() -> {
+            Path ruta = Paths.get(rutaArchivo);
+            try {
+                if (rutaArchivo.toLowerCase().endsWith(".svg")) {
+                    try (Writer salida = Files.newBufferedWriter(ruta, StandardCharsets.UTF_8)) {
+                        exportador.escribirSVG(salida);
+                    }
+                } else {
+                    try (OutputStream salida = new BufferedOutputStream(Files.newOutputStream(ruta))) {
+                        exportador.escribirPNG(salida);
+                    }
+                }
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                        "Imagen guardada correctamente en: " + rutaArchivo,
+                        "Guardar Imagen", JOptionPane.INFORMATION_MESSAGE));
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                        "Error al guardar la imagen: " + e.getMessage(),
+                        "Error", JOptionPane.ERROR_MESSAGE));
+            }
+        }, "exportar-arbol");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
     public static void mostrarArbolAjedrez(Arbol arbol) {
         JFrame frame = new JFrame("Visualizador de Árbol de Ajedrez");
         frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
@@ -370,6 +479,14 @@ public class AjedrezArbolVisualizer extends JPanel implements MouseWheelListener
         detallesPanel.add(Box.createVerticalGlue());
 
         final AjedrezArbolVisualizer visualizer = new AjedrezArbolVisualizer(arbol, detallesPanel, jugadaLabel, infoLabel);
+        detallesPanel.add(visualizer.obtenerEtiquetaTablero(), detallesPanel.getComponentCount() - 1);
+        detallesPanel.add(Box.createVerticalStrut(10), detallesPanel.getComponentCount() - 2);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                visualizer.cerrar();
+            }
+        });
 
         JMenuBar menuBar = new JMenuBar();
         JMenu menu = new JMenu("Archivo");
@@ -380,7 +497,7 @@ public class AjedrezArbolVisualizer extends JPanel implements MouseWheelListener
             fileChooser.setDialogTitle("Guardar Árbol como Imagen");
             if (fileChooser.showSaveDialog(frame) == JFileChooser.APPROVE_OPTION) {
                 String path = fileChooser.getSelectedFile().getAbsolutePath();
-                if (!path.toLowerCase().endsWith(".png")) {
+                if (!path.toLowerCase().endsWith(".png") && !path.toLowerCase().endsWith(".svg")) {
                     path += ".png";
                 }
                 visualizer.guardarComoImagen(path);
@@ -1,12 +1,17 @@
 package main;
 
-import analizador.AnalizadorSintactico;
+import analizador.AnalizadorIncremental;
 import analizador.AnalizadorGramatico;
 import modelo.ResultadoAnalisis;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.*;
 
 /**
@@ -23,6 +28,24 @@ public class AplicacionAjedrezGUI {
     // Componentes para análisis
     private JTextArea areaPartida;
     private JTextArea areaResultados;
+    private JProgressBar barraProgreso;
+
+    // Resalta las jugadas mal escritas mientras se escribe la partida
+    private ValidacionEnVivo validacion;
+
+    // Recuerda el último análisis para rehacer solo los turnos que cambian al editar;
+    // solo se usa desde el hilo de análisis
+    private final AnalizadorIncremental analizador = new AnalizadorIncremental();
+
+    // Los análisis se hacen de uno en uno fuera del hilo de eventos, en este hilo
+    private final ExecutorService hiloAnalisis = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "analisis-partida");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // Último análisis encargado; se cancela si llega otro texto antes de que termine
+    private TareaAnalisis analisisEnCurso;
 
     /**
      * Método principal para iniciar la aplicación
@@ -249,6 +272,21 @@ public class AplicacionAjedrezGUI {
         areaPartida.setWrapStyleWord(true);
         JScrollPane scrollPartida = new JScrollPane(areaPartida);
         panelEntrada.add(scrollPartida, BorderLayout.CENTER);
+        validacion = new ValidacionEnVivo(areaPartida);
+
+        // Si el texto cambia, el análisis en curso ya no sirve
+        areaPartida.getDocument().addDocumentListener(new DocumentListener() {
+            public void insertUpdate(DocumentEvent e) {
+                cancelarAnalisis();
+            }
+
+            public void removeUpdate(DocumentEvent e) {
+                cancelarAnalisis();
+            }
+
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
 
         // Botón para analizar
         JButton botonAnalizar = new JButton("Analizar Partida");
@@ -259,7 +297,17 @@ public class AplicacionAjedrezGUI {
                 analizarPartida();
             }
         });
-        panelEntrada.add(botonAnalizar, BorderLayout.SOUTH);
+
+        // Avance del análisis, visible solo mientras se analiza
+        barraProgreso = new JProgressBar(0, 100);
+        barraProgreso.setStringPainted(true);
+        barraProgreso.setVisible(false);
+
+        JPanel panelBoton = new JPanel(new BorderLayout(5, 5));
+        panelBoton.setOpaque(false);
+        panelBoton.add(botonAnalizar, BorderLayout.CENTER);
+        panelBoton.add(barraProgreso, BorderLayout.SOUTH);
+        panelEntrada.add(panelBoton, BorderLayout.SOUTH);
 
         // Panel para resultados
         JPanel panelResultados = new JPanel(new BorderLayout(5, 5));
@@ -351,7 +399,8 @@ public class AplicacionAjedrezGUI {
     }
 
     /**
-     * Analiza la partida ingresada por el usuario
+     * Analiza la partida ingresada por el usuario en segundo plano
+     * Si había otro análisis en curso, se cancela.
      */
     private void analizarPartida() {
         // Obtener el texto de la partida
@@ -363,41 +412,116 @@ public class AplicacionAjedrezGUI {
             return;
         }
 
-        try {
-            // Realizar el análisis sintáctico
-            AnalizadorSintactico analizador = new AnalizadorSintactico();
-            ResultadoAnalisis resultado = analizador.analizar(textoPartida);
-
-            // Mostrar resultados
-            StringBuilder sb = new StringBuilder();
-
-            if (resultado.esValido()) {
-                sb.append("✅ LA PARTIDA ES SINTÁCTICAMENTE VÁLIDA\n\n");
-                sb.append("📊 INFORMACIÓN:\n");
-                sb.append("► Número de turnos analizados: ").append(resultado.getNumeroTurnos()).append("\n\n");
-
-                // Generar y mostrar el árbol visual
-                AnalizadorGramatico analizadorGramatico = new AnalizadorGramatico();
-                analizadorGramatico.analizar(textoPartida);
-                
-                sb.append("📋 ÁRBOL DE DERIVACIÓN:\n");
-                sb.append("---------------------------------------------\n");
-                sb.append("Se ha generado una ventana con el árbol visual de la partida.\n");
-            } else {
-                sb.append("❌ LA PARTIDA CONTIENE ERRORES SINTÁCTICOS\n\n");
-                sb.append("📝 DETALLES DEL ERROR:\n");
-                sb.append(resultado.getMensajeError()).append("\n");
+        // Los resaltados quedan al día aunque no haya pasado la espera desde la última tecla
+        validacion.revisarPendiente();
+
+        cancelarAnalisis();
+        analisisEnCurso = new TareaAnalisis(textoPartida);
+        analisisEnCurso.addPropertyChangeListener(evento -> {
+            if ("progress".equals(evento.getPropertyName()) && evento.getSource() == analisisEnCurso) {
+                barraProgreso.setValue((Integer) evento.getNewValue());
             }
+        });
+        barraProgreso.setValue(0);
+        barraProgreso.setVisible(true);
+        hiloAnalisis.execute(analisisEnCurso);
+    }
 
-            // Mostrar resultados en el área de texto
-            areaResultados.setText(sb.toString());
-            areaResultados.setCaretPosition(0); // Volver al inicio del texto
+    /**
+     * Cancela el análisis en curso, si lo hay; sus resultados no se mostrarán
+     */
+    private void cancelarAnalisis() {
+        if (analisisEnCurso != null) {
+            analisisEnCurso.cancel(false);
+            analisisEnCurso = null;
+            barraProgreso.setVisible(false);
+        }
+    }
 
-        } catch (Exception e) {
-            mostrarMensajeError("Error al analizar la partida: " + e.getMessage());
+    /**
+     * Análisis de un texto en el hilo de análisis
+     *
+     * El análisis comprueba cada pocos turnos si se ha cancelado e informa del
+     * avance con setProgress, que Swing agrupa antes de pasarlo al hilo de eventos.
+     * El árbol para el visualizador también se copia en segundo plano.
+     */
+    private class TareaAnalisis extends SwingWorker<ResultadoAnalisis, Void> {
+        private final String textoPartida;
+        private Arbol arbol;
+
+        TareaAnalisis(String textoPartida) {
+            this.textoPartida = textoPartida;
+        }
+
+        @Override
+        protected ResultadoAnalisis doInBackground() {
+            // Realizar el análisis sintáctico a partir del anterior
+            ResultadoAnalisis resultado = analizador.analizar(textoPartida, new AnalizadorIncremental.Seguimiento() {
+                public void avance(int procesados, int total) {
+                    setProgress(total == 0 ? 100 : (int) (100L * procesados / total));
+                }
+
+                public boolean cancelado() {
+                    return isCancelled();
+                }
+            });
+
+            // La ventana recibe una copia porque el árbol del analizador cambia con la siguiente edición
+            if (resultado != null && resultado.esValido()) {
+                arbol = analizador.obtenerArbol().copiar();
+            }
+            return resultado;
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                return;
+            }
+            if (analisisEnCurso == this) {
+                analisisEnCurso = null;
+                barraProgreso.setVisible(false);
+            }
+
+            try {
+                mostrarResultado(get(), arbol);
+            } catch (InterruptedException | ExecutionException e) {
+                Throwable causa = e instanceof ExecutionException ? e.getCause() : e;
+                mostrarMensajeError("Error al analizar la partida: " + causa.getMessage());
+            }
         }
     }
 
+    /**
+     * Muestra en el área de resultados un análisis ya terminado y abre el árbol si es válido
+     */
+    private void mostrarResultado(ResultadoAnalisis resultado, Arbol arbol) {
+        // Mostrar resultados
+        StringBuilder sb = new StringBuilder();
+
+        if (resultado.esValido()) {
+            sb.append("✅ LA PARTIDA ES SINTÁCTICAMENTE VÁLIDA\n\n");
+            sb.append("📊 INFORMACIÓN:\n");
+            sb.append("► Número de turnos analizados: ").append(resultado.getNumeroTurnos()).append("\n\n");
+
+            // Mostrar el árbol ya construido
+            AnalizadorGramatico analizadorGramatico = new AnalizadorGramatico();
+            analizadorGramatico.analizar(resultado, arbol);
+
+            sb.append("📋 ÁRBOL DE DERIVACIÓN:\n");
+            sb.append("---------------------------------------------\n");
+            sb.append("Se ha generado una ventana con el árbol visual de la partida.\n");
+        } else {
+            sb.append("❌ LA PARTIDA CONTIENE ERRORES SINTÁCTICOS\n\n");
+            sb.append("📝 DETALLES DEL ERROR:\n");
+            sb.append(resultado.getMensajeError()).append("\n");
+        }
+
+        // Mostrar resultados en el área de texto
+        areaResultados.setText(sb.toString());
+        areaResultados.setCaretPosition(0); // Volver al inicio del texto
+    }
+
     /**
      * Muestra un mensaje de error
      */
@@ -1,21 +1,76 @@
 package main;
 
-import modelo.Jugada;
+import modelo.CodigoJugada;
 import modelo.Partida;
-import modelo.Turno;
+import modelo.Posicion;
+import modelo.TablaPosiciones;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class Arbol {
+/**
+ * Árbol binario completo con las jugadas de una partida
+ *
+ * El árbol se guarda de forma implícita en arreglos indexados por la llave de cada
+ * nodo: la raíz tiene llave 1 y los hijos del nodo i son 2i y 2i+1. Insertar una
+ * jugada es añadirla al final de los arreglos, y el padre, los hijos y la
+ * profundidad de un nodo se calculan a partir de su llave sin recorrer el árbol.
+ * Los objetos Nodo son vistas sobre esos arreglos que se crean al pedirlas.
+ *
+ * Cada nodo después de la raíz es una jugada (medio movimiento) en el orden de
+ * la partida, así que el número de jugada, el bando al que le toca mover y el
+ * tamaño de cada subárbol también se obtienen de la llave en tiempo constante.
+ */
+public class Arbol implements Iterable<Arbol.Nodo> {
 
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Llave de la raíz; 0 indica que un nodo no existe
+    public static final int RAIZ = 1;
+    public static final int SIN_NODO = 0;
+
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    // Acceso atómico a las casillas de vistas, que se llenan desde varios hilos
+    private static final VarHandle VISTA = MethodHandles.arrayElementVarHandle(Nodo[].class);
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    // Raíz del árbol, con la jugada "Partida"
     public Nodo partida;
-    
+
+    // Contenido de cada nodo, indexado por llave (la posición 0 no se usa)
+    private Object[] jugadas = new Object[CAPACIDAD_INICIAL];
+    private long[] hashes = new long[CAPACIDAD_INICIAL];
+
+    // Vistas ya creadas, para que cada llave tenga siempre el mismo objeto Nodo
+    // aunque se pidan a la vez desde un stream paralelo
+    private Nodo[] vistas = new Nodo[CAPACIDAD_INICIAL];
+
+    // Número de nodos; las llaves válidas van de 1 a tamano
+    private int tamano;
+
+    // Apariciones de cada posición de la partida, por clave Zobrist
+    private final TablaPosiciones posiciones = new TablaPosiciones();
+
+    // Posiciones que aparecen al menos tres veces
+    private int posicionesRepetidas;
+
     public Arbol() {
         // Inicializar con la raíz "Partida"
-        partida = new Nodo(1);
-        partida.jugada = "Partida";
+        reiniciar(TablaPosiciones.SIN_HASH);
     }
 
     /**
@@ -24,134 +79,560 @@ public class Arbol {
      */
     public void construirDesdePartida(Partida partida) {
         if (partida == null) return;
-        
-        // Reiniciar el árbol
-        this.partida = new Nodo(1);
-        this.partida.jugada = "Partida";
-        
-        List<Jugada> jugadas = new ArrayList<>();
-        
-        // Extraer todas las jugadas de la partida
-        for (Turno turno : partida.getTurnos()) {
-            if (turno.getJugadaBlanca() != null) {
-                jugadas.add(turno.getJugadaBlanca());
-            }
-            if (turno.getJugadaNegra() != null) {
-                jugadas.add(turno.getJugadaNegra());
-            }
-        }
-        
-        // Construir el árbol binario a partir de las jugadas
-        construirArbolBinario(jugadas);
-    }
-    
-    /**
-     * Construye un árbol binario a partir de una lista de jugadas
-     * @param jugadas Lista de jugadas
-     */
-    private void construirArbolBinario(List<Jugada> jugadas) {
-        if (jugadas.isEmpty()) return;
-        
-        // Insertar cada jugada en el árbol
-        for (int i = 0; i < jugadas.size(); i++) {
-            insertarEnArbolBinario(i + 2, jugadas.get(i).getNotacion());
-        }
-    }
-    
-    /**
-     * Inserta un nodo en el árbol binario en la posición correcta
-     * @param indice Índice del nodo
-     * @param contenido Contenido del nodo
-     */
-    private void insertarEnArbolBinario(int indice, Object contenido) {
-        Nodo nuevoNodo = new Nodo(indice);
-        nuevoNodo.jugada = contenido;
-        
-        if (partida == null) {
-            partida = nuevoNodo;
-            return;
+
+        // La raíz corresponde a la posición inicial
+        Posicion posicion = new Posicion();
+        reiniciar(posicion.obtenerHash());
+        asegurarCapacidad(partida.contarJugadas() + 1);
+
+        // Añadir las jugadas en orden, reproduciéndolas para obtener la clave de cada posición
+        for (int i = 0; i < partida.contarTurnos(); i++) {
+            String blancas = partida.obtenerNotacionBlancas(i);
+            if (blancas != null) {
+                posicion = reproducir(posicion, partida.obtenerCodigoBlancas(i));
+                agregarJugada(blancas, posicion == null ? TablaPosiciones.SIN_HASH : posicion.obtenerHash());
+            }
+            String negras = partida.obtenerNotacionNegras(i);
+            if (negras != null) {
+                posicion = reproducir(posicion, partida.obtenerCodigoNegras(i));
+                agregarJugada(negras, posicion == null ? TablaPosiciones.SIN_HASH : posicion.obtenerHash());
+            }
         }
-        
-        // Encontrar la posición correcta usando el algoritmo de árbol binario completo
-        insertarNodoEnPosicion(partida, nuevoNodo);
     }
-    
+
     /**
-     * Inserta un nodo en la posición correcta del árbol binario
-     * @param actual Nodo actual
-     * @param nuevo Nodo a insertar
+     * Añade una jugada en la siguiente posición libre del árbol
+     * @param jugada Contenido del nodo
+     * @param hash Clave Zobrist de la posición tras la jugada, o TablaPosiciones.SIN_HASH
+     * @return Llave del nuevo nodo
      */
-    private void insertarNodoEnPosicion(Nodo actual, Nodo nuevo) {
-        // Usamos una cola para hacer un recorrido por niveles
-        Queue<Nodo> cola = new LinkedList<>();
-        cola.add(actual);
-        
-        while (!cola.isEmpty()) {
-            Nodo nodo = cola.poll();
-            
-            // Si no tiene hijo izquierdo, insertamos ahí
-            if (nodo.izquierda == null) {
-                nodo.izquierda = nuevo;
-                nuevo.parent = nodo;
-                return;
-            } 
-            // Si no tiene hijo derecho, insertamos ahí
-            else if (nodo.derecha == null) {
-                nodo.derecha = nuevo;
-                nuevo.parent = nodo;
-                return;
+    public int agregarJugada(Object jugada, long hash) {
+        int llave = tamano + 1;
+        asegurarCapacidad(llave);
+        jugadas[llave] = jugada;
+        hashes[llave] = hash;
+        tamano = llave;
+        registrarAparicion(hash);
+        return llave;
+    }
+
+    /**
+     * Quita los últimos nodos, dejando las llaves de 1 a tamano
+     * Junto con agregarJugada permite rehacer solo el final de una partida editada.
+     * @param tamano Número de nodos que se conservan, incluida la raíz
+     */
+    public void truncar(int tamano) {
+        if (tamano < RAIZ || tamano > this.tamano) {
+            throw new IllegalArgumentException("Tamaño fuera de rango: " + tamano);
+        }
+        for (int llave = this.tamano; llave > tamano; llave--) {
+            if (posiciones.quitar(hashes[llave]) == 2) {
+                posicionesRepetidas--;
             }
-            // Si tiene ambos hijos, seguimos buscando
-            else {
-                cola.add(nodo.izquierda);
-                cola.add(nodo.derecha);
+            jugadas[llave] = null;
+            vistas[llave] = null;
+        }
+        this.tamano = tamano;
+    }
+
+    /**
+     * Crea una copia que no cambia aunque este árbol se recorte o se amplíe
+     * Las jugadas se comparten y las claves se copian, sin reproducir la partida.
+     */
+    public Arbol copiar() {
+        Arbol copia = new Arbol();
+        copia.reiniciar(hashes[RAIZ]);
+        copia.asegurarCapacidad(tamano);
+        for (int llave = RAIZ + 1; llave <= tamano; llave++) {
+            copia.agregarJugada(jugadas[llave], hashes[llave]);
+        }
+        return copia;
+    }
+
+    //-------------------------
+    // CONSULTAS POR LLAVE
+    //-------------------------
+
+    /**
+     * Número de nodos del árbol, incluida la raíz
+     */
+    public int tamano() {
+        return tamano;
+    }
+
+    /**
+     * Número de niveles del árbol
+     */
+    public int altura() {
+        return profundidad(tamano) + 1;
+    }
+
+    public boolean existe(int llave) {
+        return llave >= RAIZ && llave <= tamano;
+    }
+
+    public Object obtenerJugada(int llave) {
+        return existe(llave) ? jugadas[llave] : null;
+    }
+
+    public long obtenerHash(int llave) {
+        return existe(llave) ? hashes[llave] : TablaPosiciones.SIN_HASH;
+    }
+
+    /**
+     * Llave del padre, o SIN_NODO para la raíz
+     */
+    public static int padre(int llave) {
+        return llave >>> 1;
+    }
+
+    public static int hijoIzquierdo(int llave) {
+        return llave << 1;
+    }
+
+    public static int hijoDerecho(int llave) {
+        return (llave << 1) | 1;
+    }
+
+    /**
+     * Nivel del nodo, empezando en 0 para la raíz
+     */
+    public static int profundidad(int llave) {
+        return 31 - Integer.numberOfLeadingZeros(llave);
+    }
+
+    /**
+     * Número de jugada (medio movimiento) del nodo; 0 en la raíz
+     */
+    public static int numeroJugada(int llave) {
+        return llave - RAIZ;
+    }
+
+    /**
+     * Bando al que le toca mover en la posición del nodo (Posicion.BLANCAS o Posicion.NEGRAS)
+     */
+    public static int colorAlMover(int llave) {
+        return numeroJugada(llave) % 2 == 0 ? Posicion.BLANCAS : Posicion.NEGRAS;
+    }
+
+    /**
+     * Número de nodos del subárbol de una llave, incluida ella misma
+     * Los niveles completos del subárbol suman 2^k - 1 nodos y el último nivel
+     * es un rango de llaves consecutivas recortado por el tamaño del árbol.
+     */
+    public int tamanoSubarbol(int llave) {
+        if (!existe(llave)) {
+            return 0;
+        }
+        int niveles = profundidad(tamano) - profundidad(llave);
+        long primeraUltimoNivel = (long) llave << niveles;
+        long enUltimoNivel = Math.min(tamano - primeraUltimoNivel + 1, 1L << niveles);
+        return (int) ((1L << niveles) - 1 + Math.max(0, enUltimoNivel));
+    }
+
+    /**
+     * Obtiene la vista de un nodo, o null si la llave no existe
+     * Si dos hilos crean la vista a la vez, ambos reciben la que se publicó primero.
+     */
+    public Nodo obtenerNodo(int llave) {
+        if (!existe(llave)) {
+            return null;
+        }
+        Nodo[] creadas = vistas;
+        Nodo vista = (Nodo) VISTA.getAcquire(creadas, llave);
+        if (vista == null) {
+            Nodo nueva = new Nodo(llave);
+            vista = (Nodo) VISTA.compareAndExchangeRelease(creadas, llave, (Nodo) null, nueva);
+            if (vista == null) {
+                vista = nueva;
             }
         }
+        return vista;
+    }
+
+    //-------------------------
+    // POSICIONES
+    //-------------------------
+
+    /**
+     * Indica cuántas veces aparece en la partida la posición de un nodo
+     * @return 0 si la posición del nodo no se pudo calcular
+     */
+    public int contarApariciones(Nodo nodo) {
+        return posiciones.contarApariciones(nodo.obtenerHash());
     }
 
+    /**
+     * Indica si alguna posición de la partida se repite al menos tres veces
+     */
+    public boolean hayTripleRepeticion() {
+        return posicionesRepetidas > 0;
+    }
+
+    /**
+     * Indica si la partida pasa por una posición
+     * @param hash Clave Zobrist de la posición (por ejemplo, la de un nodo de otro árbol)
+     */
+    public boolean contienePosicion(long hash) {
+        return posiciones.contiene(hash);
+    }
+
+    /**
+     * Añade las posiciones de la partida a una tabla compartida entre varias partidas
+     * Una posición con contarPartidas mayor que 1 es una transposición entre partidas.
+     * @param tabla Tabla común a todas las partidas cargadas
+     * @param numeroPartida Identificador de esta partida dentro de la tabla
+     */
+    public void registrarPosiciones(TablaPosiciones tabla, int numeroPartida) {
+        for (int llave = RAIZ; llave <= tamano; llave++) {
+            tabla.agregar(hashes[llave], numeroPartida);
+        }
+    }
+
+    //-------------------------
+    // RECORRIDOS
+    //-------------------------
+
     /**
      * Recorre el árbol en orden
      * @param n Nodo inicial
      */
     public void recorrer(Nodo n) {
-        if (n != null) {
-            recorrer(n.izquierda);
-            System.out.println("Indice " + n.llave + " jugada " + n.jugada);
-            recorrer(n.derecha);
+        Iterator<Nodo> recorrido = enOrden(n);
+        while (recorrido.hasNext()) {
+            Nodo nodo = recorrido.next();
+            System.out.println("Indice " + nodo.llave + " jugada " + nodo.obtenerJugada());
         }
     }
 
     /**
      * Obtiene una lista de todas las jugadas en el árbol
-     * @return Lista de jugadas
+     * @return Lista de jugadas en preorden
      */
     public List<String> obtenerJugadas() {
-        List<String> jugadas = new ArrayList<>();
-        recolectarJugadas(partida, jugadas);
+        List<String> jugadas = new ArrayList<>(tamano);
+        Iterator<Nodo> recorrido = preorden(partida);
+        while (recorrido.hasNext()) {
+            jugadas.add(recorrido.next().obtenerJugada().toString());
+        }
         return jugadas;
     }
 
-    private void recolectarJugadas(Nodo nodo, List<String> jugadas) {
-        if (nodo != null) {
-            jugadas.add(nodo.jugada.toString());
-            recolectarJugadas(nodo.izquierda, jugadas);
-            recolectarJugadas(nodo.derecha, jugadas);
+    /**
+     * Recorre un subárbol en preorden (nodo, izquierda, derecha)
+     * Los recorridos avanzan con aritmética sobre las llaves, sin pila ni recursión.
+     * @param raiz Raíz del subárbol, o null para un recorrido vacío
+     */
+    public Iterator<Nodo> preorden(Nodo raiz) {
+        return new Recorrido(raiz, Recorrido.PREORDEN);
+    }
+
+    /**
+     * Recorre un subárbol en orden (izquierda, nodo, derecha)
+     */
+    public Iterator<Nodo> enOrden(Nodo raiz) {
+        return new Recorrido(raiz, Recorrido.EN_ORDEN);
+    }
+
+    /**
+     * Recorre un subárbol por niveles, de izquierda a derecha
+     */
+    public Iterator<Nodo> porNiveles(Nodo raiz) {
+        return new Recorrido(raiz, Recorrido.POR_NIVELES);
+    }
+
+    /**
+     * Recorre el árbol completo por niveles
+     */
+    @Override
+    public Iterator<Nodo> iterator() {
+        return porNiveles(partida);
+    }
+
+    /**
+     * Divide el árbol completo en rangos de llaves, en orden por niveles
+     */
+    @Override
+    public Spliterator<Nodo> spliterator() {
+        return new DivisorNodos(RAIZ, tamano + 1);
+    }
+
+    /**
+     * Flujo con todos los nodos del árbol; con parallel() los rangos de llaves
+     * se reparten entre hilos (por ejemplo, para contar capturas por nivel)
+     */
+    public Stream<Nodo> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    /**
+     * Deja el árbol solo con la raíz
+     * @param hashInicial Clave Zobrist de la posición inicial, o TablaPosiciones.SIN_HASH
+     */
+    public void reiniciar(long hashInicial) {
+        Arrays.fill(jugadas, 0, tamano + 1, null);
+        Arrays.fill(vistas, 0, tamano + 1, null);
+        tamano = 0;
+        posiciones.limpiar();
+        posicionesRepetidas = 0;
+
+        agregarJugada("Partida", hashInicial);
+        partida = obtenerNodo(RAIZ);
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    /**
+     * Hace una jugada sobre la posición
+     * @return La misma posición, o null si la jugada no se puede reproducir
+     */
+    private static Posicion reproducir(Posicion posicion, int codigo) {
+        if (posicion == null || codigo == CodigoJugada.SIN_CODIGO) {
+            return null;
+        }
+        int movimiento = posicion.resolver(codigo);
+        if (movimiento < 0) {
+            return null;
+        }
+        posicion.hacerMovimiento(movimiento);
+        return posicion;
+    }
+
+    private void registrarAparicion(long hash) {
+        if (posiciones.agregar(hash, 0) == 3) {
+            posicionesRepetidas++;
+        }
+    }
+
+    /**
+     * Amplía los arreglos para que quepa la llave indicada
+     */
+    private void asegurarCapacidad(int llave) {
+        if (llave < jugadas.length) {
+            return;
+        }
+        int capacidad = Math.max(jugadas.length * 2, llave + 1);
+        jugadas = Arrays.copyOf(jugadas, capacidad);
+        hashes = Arrays.copyOf(hashes, capacidad);
+        vistas = Arrays.copyOf(vistas, capacidad);
+    }
+
+    /**
+     * Recorrido de un subárbol sin pila
+     * Guarda solo la llave del siguiente nodo y la calcula a partir de la actual.
+     */
+    private class Recorrido implements Iterator<Nodo> {
+        static final int PREORDEN = 0;
+        static final int EN_ORDEN = 1;
+        static final int POR_NIVELES = 2;
+
+        private final int raiz;
+        private final int tipo;
+        private int siguiente;
+
+        // Recorrido por niveles: primera llave del nivel actual y número de llaves del nivel
+        private long inicioNivel;
+        private long anchoNivel;
+
+        Recorrido(Nodo raiz, int tipo) {
+            this.raiz = raiz == null ? SIN_NODO : raiz.llave;
+            this.tipo = tipo;
+            if (this.raiz == SIN_NODO) {
+                siguiente = SIN_NODO;
+            } else if (tipo == EN_ORDEN) {
+                siguiente = extremoIzquierdo(this.raiz);
+            } else {
+                siguiente = this.raiz;
+                inicioNivel = this.raiz;
+                anchoNivel = 1;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return siguiente != SIN_NODO;
+        }
+
+        @Override
+        public Nodo next() {
+            if (siguiente == SIN_NODO) {
+                throw new NoSuchElementException();
+            }
+            int actual = siguiente;
+            switch (tipo) {
+                case PREORDEN:
+                    siguiente = siguientePreorden(actual);
+                    break;
+                case EN_ORDEN:
+                    siguiente = siguienteEnOrden(actual);
+                    break;
+                default:
+                    siguiente = siguientePorNiveles(actual);
+                    break;
+            }
+            return obtenerNodo(actual);
+        }
+
+        private int siguientePreorden(int llave) {
+            if (existe(hijoIzquierdo(llave))) {
+                return hijoIzquierdo(llave);
+            }
+            // Subir hasta encontrar un hijo izquierdo con hermano derecho
+            while (llave != raiz) {
+                if ((llave & 1) == 0 && existe(llave + 1)) {
+                    return llave + 1;
+                }
+                llave = padre(llave);
+            }
+            return SIN_NODO;
+        }
+
+        private int siguienteEnOrden(int llave) {
+            if (existe(hijoDerecho(llave))) {
+                return extremoIzquierdo(hijoDerecho(llave));
+            }
+            // Subir mientras se venga de un hijo derecho; el siguiente es el padre del primer hijo izquierdo
+            while (llave != raiz && (llave & 1) == 1) {
+                llave = padre(llave);
+            }
+            return llave == raiz ? SIN_NODO : padre(llave);
+        }
+
+        private int siguientePorNiveles(int llave) {
+            if (llave + 1 < inicioNivel + anchoNivel && existe(llave + 1)) {
+                return llave + 1;
+            }
+            inicioNivel <<= 1;
+            anchoNivel <<= 1;
+            return inicioNivel <= tamano ? (int) inicioNivel : SIN_NODO;
+        }
+
+        private int extremoIzquierdo(int llave) {
+            while (existe(hijoIzquierdo(llave))) {
+                llave = hijoIzquierdo(llave);
+            }
+            return llave;
         }
     }
 
+    /**
+     * Spliterator sobre un rango de llaves [actual, fin)
+     * Como las llaves son consecutivas, dividirlo es partir el rango por la mitad.
+     */
+    private class DivisorNodos implements Spliterator<Nodo> {
+        private int actual;
+        private final int fin;
+
+        DivisorNodos(int inicio, int fin) {
+            this.actual = inicio;
+            this.fin = fin;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Nodo> accion) {
+            if (actual >= fin) {
+                return false;
+            }
+            accion.accept(obtenerNodo(actual++));
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super Nodo> accion) {
+            for (; actual < fin; actual++) {
+                accion.accept(obtenerNodo(actual));
+            }
+        }
+
+        @Override
+        public Spliterator<Nodo> trySplit() {
+            int mitad = (actual + fin) >>> 1;
+            if (mitad <= actual) {
+                return null;
+            }
+            DivisorNodos primeraMitad = new DivisorNodos(actual, mitad);
+            actual = mitad;
+            return primeraMitad;
+        }
+
+        @Override
+        public long estimateSize() {
+            return fin - actual;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | DISTINCT;
+        }
+    }
+
+    /**
+     * Vista de un nodo del árbol
+     * Todos los datos se leen de los arreglos del árbol a partir de la llave.
+     */
     public class Nodo {
-        public Nodo parent;
-        public Nodo derecha;
-        public Nodo izquierda;
-        public int llave;
-        public Object jugada;
+        public final int llave;
 
-        public Nodo(int indice) {
+        private Nodo(int indice) {
             llave = indice;
-            derecha = null;
-            izquierda = null;
-            parent = null;
-            jugada = null;
+        }
+
+        public Nodo obtenerPadre() {
+            return obtenerNodo(padre(llave));
+        }
+
+        public Nodo obtenerIzquierda() {
+            return obtenerNodo(hijoIzquierdo(llave));
+        }
+
+        public Nodo obtenerDerecha() {
+            return obtenerNodo(hijoDerecho(llave));
+        }
+
+        public Object obtenerJugada() {
+            return jugadas[llave];
+        }
+
+        /**
+         * Clave Zobrist de la posición tras la jugada (TablaPosiciones.SIN_HASH si no se conoce)
+         */
+        public long obtenerHash() {
+            return hashes[llave];
+        }
+
+        /**
+         * Nivel del nodo, empezando en 0 para la raíz
+         */
+        public int obtenerProfundidad() {
+            return profundidad(llave);
+        }
+
+        /**
+         * Número de jugada (medio movimiento) del nodo; 0 en la raíz
+         */
+        public int obtenerNumeroJugada() {
+            return numeroJugada(llave);
+        }
+
+        /**
+         * Bando al que le toca mover después de la jugada del nodo
+         */
+        public int obtenerColorAlMover() {
+            return colorAlMover(llave);
+        }
+
+        /**
+         * Número de nodos del subárbol, incluido este
+         */
+        public int contarSubarbol() {
+            return tamanoSubarbol(llave);
+        }
+
+        @Override
+        public String toString() {
+            return "Nodo " + llave + ": " + jugadas[llave];
         }
     }
 }
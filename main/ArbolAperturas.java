@@ -0,0 +1,354 @@
+package main;
+
+import modelo.CodigoJugada;
+import modelo.Partida;
+import modelo.Posicion;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Árbol de aperturas que une las jugadas de muchas partidas en un árbol de prefijos
+ *
+ * Cada nodo corresponde a una secuencia de jugadas desde el comienzo y guarda
+ * cuántas partidas pasan por ella y cómo terminaron. Las jugadas se reproducen
+ * sobre un tablero y los hijos de un nodo se indexan por el movimiento resuelto
+ * (ver Posicion.resolver) en un ConcurrentHashMap: "Nf3", "Nf3+" y "Ngf3" son la
+ * misma continuación. Los contadores se actualizan con operaciones atómicas, de
+ * modo que varios hilos pueden añadir partidas a la vez sin bloquear el árbol.
+ *
+ * Cada nodo muestra su jugada en SAN canónico: desambiguación mínima y jaque o
+ * mate según la posición, escriba como escriba la jugada la partida que lo creó.
+ * Una jugada sin código compacto, ilegal o ambigua termina la inserción de esa
+ * partida, porque no identifica una continuación única.
+ */
+public class ArbolAperturas {
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private final Nodo raiz = new Nodo(Posicion.SIN_MOVIMIENTO, CodigoJugada.SIN_CODIGO);
+
+    // Tablero de cada hilo para reproducir las partidas que añade
+    private static final ThreadLocal<Posicion> TABLEROS = ThreadLocal.withInitial(Posicion::new);
+
+    // Número máximo de jugadas de cada partida que se añaden al árbol
+    private final int profundidadMaxima;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    /**
+     * Crea un árbol que guarda las partidas completas
+     */
+    public ArbolAperturas() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Crea un árbol que solo guarda las primeras jugadas de cada partida
+     * @param profundidadMaxima Número de jugadas (medios movimientos) por partida
+     */
+    public ArbolAperturas(int profundidadMaxima) {
+        this.profundidadMaxima = profundidadMaxima;
+    }
+
+    //-------------------------
+    // MÉTODOS PÚBLICOS
+    //-------------------------
+
+    /**
+     * Añade una partida al árbol; se puede llamar desde varios hilos a la vez
+     */
+    public void agregarPartida(Partida partida) {
+        int resultado = partida.obtenerResultado();
+        Posicion tablero = TABLEROS.get();
+        tablero.reiniciar();
+        Nodo actual = raiz;
+        actual.registrar(resultado);
+
+        int profundidad = 0;
+        for (int i = 0; i < partida.contarTurnos() && profundidad < profundidadMaxima; i++) {
+            actual = avanzar(actual, tablero, partida.obtenerCodigoBlancas(i), resultado);
+            if (actual == null) {
+                return;
+            }
+            profundidad++;
+
+            if (profundidad >= profundidadMaxima) {
+                return;
+            }
+            actual = avanzar(actual, tablero, partida.obtenerCodigoNegras(i), resultado);
+            if (actual == null) {
+                return;
+            }
+            profundidad++;
+        }
+    }
+
+    /**
+     * Añade varias partidas repartiéndolas entre los hilos del ForkJoinPool común
+     */
+    public void agregarPartidas(Collection<Partida> partidas) {
+        partidas.parallelStream().forEach(this::agregarPartida);
+    }
+
+    public Nodo obtenerRaiz() {
+        return raiz;
+    }
+
+    /**
+     * Busca el nodo al que se llega con una secuencia de jugadas
+     * @param jugadas Jugadas en notación SAN desde la posición inicial
+     * @return El nodo, o null si ninguna partida sigue esa secuencia
+     */
+    public Nodo buscar(String... jugadas) {
+        Posicion tablero = TABLEROS.get();
+        tablero.reiniciar();
+        Nodo actual = raiz;
+        for (String jugada : jugadas) {
+            int codigo = CodigoJugada.codificar(jugada);
+            if (codigo == CodigoJugada.SIN_CODIGO) {
+                return null;
+            }
+            int movimiento = tablero.resolver(codigo);
+            if (movimiento < 0) {
+                return null;
+            }
+            actual = actual.obtenerHijo(movimiento);
+            if (actual == null) {
+                return null;
+            }
+            tablero.hacerMovimiento(movimiento);
+        }
+        return actual;
+    }
+
+    /**
+     * Obtiene las jugadas que siguen a una secuencia, de la más a la menos jugada
+     * @param jugadas Jugadas en notación SAN desde la posición inicial
+     * @return Nodos hijos ordenados por número de partidas (vacío si no hay ninguno)
+     */
+    public List<Nodo> obtenerContinuaciones(String... jugadas) {
+        Nodo nodo = buscar(jugadas);
+        return nodo == null ? new ArrayList<>() : nodo.obtenerContinuaciones();
+    }
+
+    /**
+     * Número total de partidas añadidas
+     */
+    public long contarPartidas() {
+        return raiz.contarPartidas();
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    /**
+     * Hace la jugada en el tablero y registra la partida en el hijo correspondiente
+     * @return El hijo, o null si la jugada no existe, no tiene código o no es legal
+     */
+    private static Nodo avanzar(Nodo actual, Posicion tablero, int codigo, int resultado) {
+        if (codigo == Partida.SIN_JUGADA || codigo == CodigoJugada.SIN_CODIGO) {
+            return null;
+        }
+        int movimiento = tablero.resolver(codigo);
+        if (movimiento < 0) {
+            return null;
+        }
+        Nodo hijo = actual.obtenerHijo(movimiento);
+        if (hijo == null) {
+            hijo = actual.crearHijo(movimiento, codigoCanonico(tablero, codigo, movimiento));
+        }
+        hijo.registrar(resultado);
+        tablero.hacerMovimiento(movimiento);
+        return hijo;
+    }
+
+    /**
+     * Código SAN del movimiento con la desambiguación mínima y su jaque o mate
+     * @param codigo Código con el que la partida escribió el movimiento, ya resuelto
+     */
+    private static int codigoCanonico(Posicion tablero, int codigo, int movimiento) {
+        int canonico = codigo & ~(CodigoJugada.JAQUE | CodigoJugada.MATE);
+
+        // La columna de los peones que capturan forma parte de la notación
+        int pieza = CodigoJugada.pieza(codigo);
+        if (pieza != CodigoJugada.PEON && !CodigoJugada.esEnroque(codigo)) {
+            int columna = Posicion.origen(movimiento) % 8;
+            int fila = Posicion.origen(movimiento) / 8;
+            int[][] origenes = {{-1, -1}, {columna, -1}, {-1, fila}, {columna, fila}};
+            for (int[] origen : origenes) {
+                int candidato = CodigoJugada.conOrigen(canonico, origen[0], origen[1]);
+                if (tablero.resolver(candidato) == movimiento) {
+                    canonico = candidato;
+                    break;
+                }
+            }
+        }
+
+        tablero.hacerMovimiento(movimiento);
+        if (tablero.enJaque()) {
+            boolean sinRespuesta = tablero.generarLegales(new int[Posicion.MAXIMO_MOVIMIENTOS], 0) == 0;
+            canonico |= sinRespuesta ? CodigoJugada.MATE : CodigoJugada.JAQUE;
+        }
+        tablero.deshacerMovimiento();
+        return canonico;
+    }
+
+    //-------------------------
+    // CLASE NODO
+    //-------------------------
+
+    /**
+     * Secuencia de jugadas con sus estadísticas
+     */
+    public static class Nodo {
+
+        private static final AtomicLongFieldUpdater<Nodo> PARTIDAS =
+                AtomicLongFieldUpdater.newUpdater(Nodo.class, "partidas");
+        private static final AtomicLongFieldUpdater<Nodo> VICTORIAS_BLANCAS =
+                AtomicLongFieldUpdater.newUpdater(Nodo.class, "victoriasBlancas");
+        private static final AtomicLongFieldUpdater<Nodo> VICTORIAS_NEGRAS =
+                AtomicLongFieldUpdater.newUpdater(Nodo.class, "victoriasNegras");
+        private static final AtomicLongFieldUpdater<Nodo> TABLAS =
+                AtomicLongFieldUpdater.newUpdater(Nodo.class, "tablas");
+
+        // Movimiento de Posicion que lleva a este nodo y su jugada en SAN canónico
+        // (SIN_MOVIMIENTO y SIN_CODIGO en la raíz)
+        private final int movimiento;
+        private final int codigo;
+
+        // Hijos indexados por movimiento; se crean con el primer hijo
+        private volatile ConcurrentHashMap<Integer, Nodo> hijos;
+
+        private volatile long partidas;
+        private volatile long victoriasBlancas;
+        private volatile long victoriasNegras;
+        private volatile long tablas;
+
+        private Nodo(int movimiento, int codigo) {
+            this.movimiento = movimiento;
+            this.codigo = codigo;
+        }
+
+        /**
+         * Movimiento de Posicion que lleva a este nodo, o Posicion.SIN_MOVIMIENTO en la raíz
+         */
+        public int obtenerMovimiento() {
+            return movimiento;
+        }
+
+        /**
+         * Código compacto de la jugada en SAN canónico, o CodigoJugada.SIN_CODIGO en la raíz
+         */
+        public int obtenerCodigo() {
+            return codigo;
+        }
+
+        /**
+         * Jugada en notación SAN, o null en la raíz
+         */
+        public String obtenerJugada() {
+            return codigo == CodigoJugada.SIN_CODIGO ? null : CodigoJugada.decodificar(codigo);
+        }
+
+        public long contarPartidas() {
+            return partidas;
+        }
+
+        public long contarVictoriasBlancas() {
+            return victoriasBlancas;
+        }
+
+        public long contarVictoriasNegras() {
+            return victoriasNegras;
+        }
+
+        public long contarTablas() {
+            return tablas;
+        }
+
+        /**
+         * Puntuación media de las blancas (victoria 1, tablas 0,5) entre las partidas con resultado
+         * @return Valor entre 0 y 1, o -1 si ninguna partida tiene resultado conocido
+         */
+        public double obtenerPuntuacionBlancas() {
+            long conResultado = victoriasBlancas + victoriasNegras + tablas;
+            return conResultado == 0 ? -1 : (victoriasBlancas + tablas * 0.5) / conResultado;
+        }
+
+        /**
+         * Obtiene el hijo de un movimiento de Posicion, o null si no existe
+         */
+        public Nodo obtenerHijo(int movimiento) {
+            ConcurrentHashMap<Integer, Nodo> actuales = hijos;
+            return actuales == null ? null : actuales.get(movimiento);
+        }
+
+        /**
+         * Hijos ordenados por número de partidas, de mayor a menor
+         */
+        public List<Nodo> obtenerContinuaciones() {
+            ConcurrentHashMap<Integer, Nodo> actuales = hijos;
+            List<Nodo> lista = new ArrayList<>();
+            if (actuales != null) {
+                lista.addAll(actuales.values());
+                lista.sort((a, b) -> Long.compare(b.partidas, a.partidas));
+            }
+            return lista;
+        }
+
+        public int contarHijos() {
+            Map<Integer, Nodo> actuales = hijos;
+            return actuales == null ? 0 : actuales.size();
+        }
+
+        @Override
+        public String toString() {
+            return (codigo == CodigoJugada.SIN_CODIGO ? "Inicio" : obtenerJugada()) + " (" + partidas + " partidas)";
+        }
+
+        /**
+         * Devuelve el hijo del movimiento, creándolo con ese código si aún no existe
+         */
+        private Nodo crearHijo(int movimientoHijo, int codigoHijo) {
+            ConcurrentHashMap<Integer, Nodo> actuales = hijos;
+            if (actuales == null) {
+                synchronized (this) {
+                    actuales = hijos;
+                    if (actuales == null) {
+                        actuales = new ConcurrentHashMap<>(4);
+                        hijos = actuales;
+                    }
+                }
+            }
+
+            return actuales.computeIfAbsent(movimientoHijo, clave -> new Nodo(movimientoHijo, codigoHijo));
+        }
+
+        private void registrar(int resultado) {
+            PARTIDAS.incrementAndGet(this);
+            switch (resultado) {
+                case Partida.VICTORIA_BLANCAS:
+                    VICTORIAS_BLANCAS.incrementAndGet(this);
+                    break;
+                case Partida.VICTORIA_NEGRAS:
+                    VICTORIAS_NEGRAS.incrementAndGet(this);
+                    break;
+                case Partida.TABLAS:
+                    TABLAS.incrementAndGet(this);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package main;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Imágenes ya dibujadas indexadas por una clave numérica, con un máximo de
+ * entradas y de bytes
+ *
+ * Cuando se supera alguno de los dos límites descarta las imágenes usadas hace
+ * más tiempo (LRU), de modo que la memoria queda acotada. Cuenta aciertos,
+ * fallos y descartes para poder comprobar si los límites son adecuados.
+ * No es segura entre hilos: se usa solo desde el hilo de eventos.
+ */
+class CacheImagenes {
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    // Orden de acceso: la primera entrada es la usada hace más tiempo
+    private final LinkedHashMap<Long, BufferedImage> imagenes = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final int maximo;
+    private final long maximoBytes;
+    private long bytes;
+
+    // Métricas
+    private long aciertos;
+    private long fallos;
+    private long descartes;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    /**
+     * @param maximo Número máximo de imágenes guardadas
+     */
+    CacheImagenes(int maximo) {
+        this(maximo, Long.MAX_VALUE);
+    }
+
+    /**
+     * @param maximo Número máximo de imágenes guardadas
+     * @param maximoBytes Memoria máxima ocupada por los píxeles de las imágenes
+     */
+    CacheImagenes(int maximo, long maximoBytes) {
+        this.maximo = maximo;
+        this.maximoBytes = maximoBytes;
+    }
+
+    //-------------------------
+    // MÉTODOS
+    //-------------------------
+
+    /**
+     * @return La imagen guardada con esa clave, o null si no está
+     */
+    BufferedImage obtener(long clave) {
+        BufferedImage imagen = imagenes.get(clave);
+        if (imagen != null) {
+            aciertos++;
+        } else {
+            fallos++;
+        }
+        return imagen;
+    }
+
+    void guardar(long clave, BufferedImage imagen) {
+        BufferedImage anterior = imagenes.put(clave, imagen);
+        if (anterior != null) {
+            bytes -= tamano(anterior);
+        }
+        bytes += tamano(imagen);
+
+        // Descartar las menos usadas hasta volver a los límites, sin quitar la recién guardada
+        Iterator<BufferedImage> iterador = imagenes.values().iterator();
+        while ((imagenes.size() > maximo || bytes > maximoBytes) && imagenes.size() > 1) {
+            BufferedImage descartada = iterador.next();
+            iterador.remove();
+            bytes -= tamano(descartada);
+            descartes++;
+        }
+    }
+
+    int contar() {
+        return imagenes.size();
+    }
+
+    long contarBytes() {
+        return bytes;
+    }
+
+    long contarAciertos() {
+        return aciertos;
+    }
+
+    long contarFallos() {
+        return fallos;
+    }
+
+    long contarDescartes() {
+        return descartes;
+    }
+
+    void vaciar() {
+        imagenes.clear();
+        bytes = 0;
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    /**
+     * Bytes que ocupan los píxeles de una imagen
+     */
+    private static long tamano(BufferedImage imagen) {
+        DataBuffer datos = imagen.getRaster().getDataBuffer();
+        return (long) datos.getSize() * datos.getNumBanks() * DataBuffer.getDataTypeSize(datos.getDataType()) / 8;
+    }
+}
@@ -0,0 +1,293 @@
+package main;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.util.Arrays;
+
+/**
+ * Dibuja la parte visible de un Arbol ya dispuesto con DisposicionArbol
+ *
+ * Solo se recorren los nodos que caen en el rectángulo pedido, y el detalle baja
+ * cuanto más pequeños se ven los nodos: con texto, círculos sin texto, puntos y,
+ * en los niveles con más nodos que píxeles, una sombra por subárbol. Las
+ * etiquetas se componen una vez por nodo y se guardan como glifos.
+ *
+ * Cada objeto guarda sus propios búferes y glifos, así que no es seguro entre
+ * hilos: para dibujar en paralelo se usa un DibujoArbol por hilo.
+ */
+public class DibujoArbol {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Niveles de detalle según el radio de los nodos en pantalla, en píxeles
+    public static final int DETALLE_COMPLETO = 0;
+    public static final int DETALLE_CIRCULOS = 1;
+    public static final int DETALLE_PUNTOS = 2;
+    private static final double RADIO_MINIMO_TEXTO = 10;
+    private static final double RADIO_MINIMO_CIRCULO = 5;
+
+    public static final Color COLOR_FONDO = new Color(245, 245, 245);
+    public static final Color COLOR_RAIZ = new Color(100, 180, 255);  // Azul para la raíz
+    public static final Color COLOR_NODO = new Color(220, 220, 220);  // Gris claro para el resto
+
+    // Longitud máxima del texto de una jugada dentro de un nodo
+    private static final int LONGITUD_ETIQUETA = 8;
+
+    // Los glifos se componen sin transformación y se escalan al dibujarlos
+    private static final FontRenderContext CONTEXTO_FUENTE = new FontRenderContext(null, true, true);
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private final Arbol arbol;
+
+    // Llaves de los nodos visibles de un nivel, reutilizado en cada dibujo
+    private int[] llavesVisibles = new int[0];
+
+    // Etiquetas de cada nodo ya compuestas, por llave; se crean la primera vez que se dibujan
+    private Font fuenteEtiquetas;
+    private GlyphVector[] glifosNumero;
+    private GlyphVector[] glifosJugada;
+    private float[] anchoNumero;
+    private float[] anchoJugada;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    /**
+     * @param arbol Árbol a dibujar; no debe cambiar mientras se use este objeto
+     */
+    public DibujoArbol(Arbol arbol) {
+        this.arbol = arbol;
+        int nodos = arbol.tamano();
+        glifosNumero = new GlyphVector[nodos + 1];
+        glifosJugada = new GlyphVector[nodos + 1];
+        anchoNumero = new float[nodos + 1];
+        anchoJugada = new float[nodos + 1];
+    }
+
+    //-------------------------
+    // MÉTODOS PÚBLICOS
+    //-------------------------
+
+    /**
+     * Nivel de detalle con el que se dibujan nodos de ese radio a esa escala
+     */
+    public static int calcularDetalle(int radio, double escala) {
+        double radioPantalla = radio * escala;
+        return radioPantalla >= RADIO_MINIMO_TEXTO ? DETALLE_COMPLETO
+                : radioPantalla >= RADIO_MINIMO_CIRCULO ? DETALLE_CIRCULOS : DETALLE_PUNTOS;
+    }
+
+    /**
+     * Calidad con la que se dibuja el árbol, tanto en pantalla como al exportarlo
+     */
+    public static void configurarCalidad(Graphics2D g) {
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+    }
+
+    /**
+     * Texto de la jugada tal como se muestra dentro de un nodo
+     * @return El texto, acortado si es largo, o null si el nodo no tiene jugada
+     */
+    public static String etiquetaJugada(Object jugada) {
+        if (jugada == null) {
+            return null;
+        }
+        String texto = jugada.toString();
+        if (texto.length() > LONGITUD_ETIQUETA) {
+            texto = texto.substring(0, LONGITUD_ETIQUETA - 1) + "...";
+        }
+        return texto;
+    }
+
+    /**
+     * Indica si las etiquetas guardadas siguen valiendo para un árbol de ese tamaño
+     */
+    public boolean correspondeA(Arbol arbol) {
+        return arbol == this.arbol && arbol.tamano() + 1 == glifosNumero.length;
+    }
+
+    /**
+     * Color según nivel: la raíz o el resto de nodos
+     */
+    public static Color colorNodo(int llave) {
+        return llave == Arbol.RAIZ ? COLOR_RAIZ : COLOR_NODO;
+    }
+
+    /**
+     * Dibuja los nodos y aristas que caen en un rectángulo
+     * @param g Gráficos ya transformados al espacio del árbol (escalados por escala)
+     * @param visible Rectángulo a dibujar, en coordenadas del árbol
+     * @param escala Escala de g, para elegir el nivel de detalle
+     */
+    public void dibujar(Graphics2D g, DisposicionArbol disposicion, Rectangle visible, double escala) {
+        int radio = disposicion.obtenerRadio();
+        int detalle = calcularDetalle(radio, escala);
+        int minX = visible.x;
+        int maxX = visible.x + visible.width;
+        int minY = visible.y;
+        int maxY = visible.y + visible.height;
+        int niveles = disposicion.contarNiveles();
+        if (llavesVisibles.length < disposicion.contarNodos()) {
+            llavesVisibles = new int[disposicion.contarNodos()];
+        }
+
+        // Con puntos, los niveles donde hay más nodos que píxeles se sombrean; se decide
+        // con el nivel completo para que todas las teselas tomen la misma decisión
+        int nivelDensidad = niveles;
+        if (detalle == DETALLE_PUNTOS) {
+            for (int nivel = 1; nivel < niveles; nivel++) {
+                double pixeles = disposicion.obtenerAnchoNivel(nivel) * escala + 1;
+                if (disposicion.contarEnNivel(nivel) > pixeles / 2) {
+                    nivelDensidad = nivel;
+                    break;
+                }
+            }
+        }
+        if (detalle != DETALLE_COMPLETO) {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        }
+
+        // Aristas que llegan a cada nivel: solo si la franja entre los dos niveles es
+        // visible, y solo las de hijos cuya arista puede cruzar el rectángulo
+        g.setColor(Color.BLACK);
+        for (int nivel = 1; nivel < nivelDensidad; nivel++) {
+            int yPadre = disposicion.obtenerYNivel(nivel - 1) + radio;
+            int yHijo = disposicion.obtenerYNivel(nivel) - radio;
+            if (yHijo < minY || yPadre > maxY) {
+                continue;
+            }
+            int separacion = disposicion.obtenerSeparacion(nivel);
+            int cantidad = disposicion.buscarEnNivel(nivel, minX - separacion, maxX + separacion, llavesVisibles, 0);
+            for (int i = 0; i < cantidad; i++) {
+                int llave = llavesVisibles[i];
+                int padre = Arbol.padre(llave);
+                g.drawLine(disposicion.obtenerX(padre), yPadre, disposicion.obtenerX(llave), yHijo);
+            }
+        }
+
+        if (nivelDensidad < niveles) {
+            dibujarDensidad(g, disposicion, nivelDensidad, minX, maxX, minY, maxY);
+        }
+
+        // Nodos de los niveles visibles
+        for (int nivel = 0; nivel < nivelDensidad; nivel++) {
+            int y = disposicion.obtenerYNivel(nivel);
+            if (y + radio < minY || y - radio > maxY) {
+                continue;
+            }
+            int cantidad = disposicion.buscarEnNivel(nivel, minX - radio, maxX + radio, llavesVisibles, 0);
+            for (int i = 0; i < cantidad; i++) {
+                int llave = llavesVisibles[i];
+                dibujarNodo(g, llave, disposicion.obtenerX(llave), y, radio, detalle, colorNodo(llave));
+            }
+        }
+    }
+
+    /**
+     * Dibuja un solo nodo con otro color, con el detalle que corresponde a la escala
+     */
+    public void dibujarNodo(Graphics2D g, DisposicionArbol disposicion, int llave, Color relleno, double escala) {
+        int radio = disposicion.obtenerRadio();
+        dibujarNodo(g, llave, disposicion.obtenerX(llave), disposicion.obtenerY(llave), radio,
+                calcularDetalle(radio, escala), relleno);
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    /**
+     * Sombrea la zona de cada subárbol que empieza en el nivel dado, más oscura
+     * cuantos más nodos tiene
+     */
+    private void dibujarDensidad(Graphics2D g, DisposicionArbol disposicion, int nivel,
+                                 int minX, int maxX, int minY, int maxY) {
+        int radio = disposicion.obtenerRadio();
+        int yInicio = disposicion.obtenerYNivel(nivel) - radio;
+        int yFin = disposicion.obtenerMaximoY();
+        if (yFin < minY || yInicio > maxY) {
+            return;
+        }
+
+        // Los subárboles parten de los nodos del nivel anterior, que no es denso
+        int padres = nivel - 1;
+        int semiancho = disposicion.obtenerSemianchoSubarbol(padres) + radio;
+        int cantidad = disposicion.buscarEnNivel(padres, minX - semiancho, maxX + semiancho, llavesVisibles, 0);
+        // El subárbol más grande del nivel es el del primer nodo
+        int maximo = arbol.tamanoSubarbol(Arbol.RAIZ << padres) - 1;
+        for (int i = 0; i < cantidad; i++) {
+            int llave = llavesVisibles[i];
+            int descendientes = arbol.tamanoSubarbol(llave) - 1;
+            if (descendientes <= 0) {
+                continue;
+            }
+            int alfa = 40 + 180 * Math.min(descendientes, maximo) / Math.max(maximo, 1);
+            g.setColor(new Color(90, 90, 90, alfa));
+            int izquierda = disposicion.obtenerMinimoXSubarbol(llave) - radio;
+            int derecha = disposicion.obtenerMaximoXSubarbol(llave) + radio;
+            g.fillRect(izquierda, yInicio, derecha - izquierda, yFin - yInicio);
+        }
+    }
+
+    private void dibujarNodo(Graphics2D g, int llave, int x, int y, int radio, int detalle, Color relleno) {
+        g.setColor(relleno);
+        if (detalle == DETALLE_PUNTOS) {
+            g.fillRect(x - radio / 2, y - radio / 2, radio, radio);
+            return;
+        }
+
+        // Dibujar círculo del nodo
+        g.fillOval(x - radio, y - radio, 2 * radio, 2 * radio);
+        g.setColor(Color.BLACK);
+        g.drawOval(x - radio, y - radio, 2 * radio, 2 * radio);
+        if (detalle != DETALLE_COMPLETO) {
+            return;
+        }
+
+        // Número del nodo y texto de la jugada, con los glifos ya calculados
+        if (glifosNumero[llave] == null || !g.getFont().equals(fuenteEtiquetas)) {
+            prepararEtiquetas(g.getFont(), llave);
+        }
+        g.drawGlyphVector(glifosNumero[llave], x - anchoNumero[llave] / 2, y - 2);
+        GlyphVector jugada = glifosJugada[llave];
+        if (jugada != null) {
+            g.drawGlyphVector(jugada, x - anchoJugada[llave] / 2, y + 12);
+        }
+    }
+
+    /**
+     * Compone una sola vez los glifos de las etiquetas de un nodo y mide su anchura
+     */
+    private void prepararEtiquetas(Font fuente, int llave) {
+        if (!fuente.equals(fuenteEtiquetas)) {
+            // Con otra fuente, los glifos anteriores ya no sirven
+            Arrays.fill(glifosNumero, null);
+            Arrays.fill(glifosJugada, null);
+            fuenteEtiquetas = fuente;
+        }
+
+        GlyphVector numero = fuente.createGlyphVector(CONTEXTO_FUENTE, String.valueOf(llave));
+        glifosNumero[llave] = numero;
+        anchoNumero[llave] = (float) numero.getLogicalBounds().getWidth();
+
+        String jugada = etiquetaJugada(arbol.obtenerJugada(llave));
+        if (jugada != null) {
+            GlyphVector glifos = fuente.createGlyphVector(CONTEXTO_FUENTE, jugada);
+            glifosJugada[llave] = glifos;
+            anchoJugada[llave] = (float) glifos.getLogicalBounds().getWidth();
+        }
+    }
+}
@@ -0,0 +1,471 @@
+package main;
+
+/**
+ * Posición en pantalla de cada nodo de un Arbol, calculada una sola vez
+ *
+ * Las coordenadas se guardan en arreglos indexados por la llave del nodo. Los
+ * nodos se colocan con el algoritmo de Reingold y Tilford: cada padre queda
+ * centrado sobre sus hijos y los dos subárboles de un nodo se acercan hasta que
+ * sus contornos quedan a SEPARACION_MINIMA radios, así que ningún subárbol se
+ * solapa con otro y la anchura total crece con el número de hojas, no con 2^altura.
+ * Se calcula en O(n) recorriendo las llaves de mayor a menor, que deja cada
+ * hijo antes que su padre. Si el árbol cabe en la anchura dada queda centrado
+ * en ella; si no, empieza en su borde izquierdo.
+ *
+ * Como todos los nodos de un nivel están a la misma altura y sus llaves son
+ * consecutivas y crecen con x, el propio arreglo x sirve de índice espacial:
+ * buscar el nodo bajo un punto es elegir el nivel y hacer una búsqueda binaria
+ * entre sus llaves, O(log n) sin recorrer el árbol ni ordenar nada. El mismo índice da los nodos de cada nivel que caen en un intervalo de
+ * x, que es lo que necesita el visualizador para dibujar solo lo visible.
+ */
+public class DisposicionArbol {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Distancia mínima entre los centros de dos nodos del mismo nivel, en radios;
+    // deja sitio a la etiqueta de la jugada, algo más ancha que el círculo
+    public static final int SEPARACION_MINIMA = 3;
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private final int anchura;
+    private final int radio;
+    private final int separacionVertical;
+    private final int margenSuperior;
+
+    // Coordenadas del centro de cada nodo, indexadas por llave (la posición 0 no se usa)
+    private final int[] x;
+    private final int[] y;
+    private final int nodos;
+    private final int niveles;
+
+    // Extremos horizontales de los centros del subárbol de cada nodo, indexados por llave
+    private final int[] minimoSubarbol;
+    private final int[] maximoSubarbol;
+
+    // Por nivel: mayor distancia horizontal de un nodo a su padre y mayor distancia
+    // de un nodo a cualquiera de sus descendientes
+    private final int[] separacion;
+    private final int[] semianchoSubarbol;
+
+
+    // Rectángulo que contiene todos los nodos
+    private int minimoX;
+    private int maximoX;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    /**
+     * @param arbol Árbol a disponer
+     * @param anchura Anchura del área de dibujo; el árbol queda centrado en ella si cabe
+     * @param radio Radio de cada nodo
+     * @param separacionVertical Distancia entre dos niveles
+     * @param margenSuperior Altura del centro de la raíz
+     */
+    public DisposicionArbol(Arbol arbol, int anchura, int radio, int separacionVertical, int margenSuperior) {
+        this.anchura = anchura;
+        this.radio = radio;
+        this.separacionVertical = separacionVertical;
+        this.margenSuperior = margenSuperior;
+        this.nodos = arbol.tamano();
+        this.niveles = arbol.altura();
+        this.x = new int[nodos + 1];
+        this.y = new int[nodos + 1];
+        this.minimoSubarbol = new int[nodos + 1];
+        this.maximoSubarbol = new int[nodos + 1];
+        this.separacion = new int[niveles];
+        this.semianchoSubarbol = new int[niveles];
+
+        calcularCoordenadas();
+    }
+
+    //-------------------------
+    // CONSULTAS
+    //-------------------------
+
+    /**
+     * Indica si la disposición sigue siendo válida para un árbol de ese tamaño
+     * dibujado con esa anchura
+     */
+    public boolean correspondeA(Arbol arbol, int anchura) {
+        return arbol.tamano() == nodos && this.anchura == anchura;
+    }
+
+    public int contarNodos() {
+        return nodos;
+    }
+
+    public int obtenerX(int llave) {
+        return x[llave];
+    }
+
+    public int obtenerY(int llave) {
+        return y[llave];
+    }
+
+    public int obtenerRadio() {
+        return radio;
+    }
+
+    public int obtenerMinimoX() {
+        return minimoX - radio;
+    }
+
+    public int obtenerMaximoX() {
+        return maximoX + radio;
+    }
+
+    public int obtenerMaximoY() {
+        return obtenerYNivel(niveles - 1) + radio;
+    }
+
+    public int contarNiveles() {
+        return niveles;
+    }
+
+    /**
+     * Altura del centro de los nodos de un nivel
+     */
+    public int obtenerYNivel(int nivel) {
+        return margenSuperior + nivel * separacionVertical;
+    }
+
+    /**
+     * Mayor distancia horizontal entre un nodo del nivel y su padre (0 en la raíz)
+     */
+    public int obtenerSeparacion(int nivel) {
+        return separacion[nivel];
+    }
+
+    /**
+     * Distancia horizontal máxima entre un nodo del nivel y cualquiera de sus descendientes
+     */
+    public int obtenerSemianchoSubarbol(int nivel) {
+        return semianchoSubarbol[nivel];
+    }
+
+    /**
+     * Menor x de los centros del subárbol del nodo, incluido el propio nodo
+     */
+    public int obtenerMinimoXSubarbol(int llave) {
+        return minimoSubarbol[llave];
+    }
+
+    /**
+     * Mayor x de los centros del subárbol del nodo, incluido el propio nodo
+     */
+    public int obtenerMaximoXSubarbol(int llave) {
+        return maximoSubarbol[llave];
+    }
+
+    /**
+     * Anchura natural de un árbol de n nodos dispuesto con ese radio, de borde a borde
+     */
+    public static int calcularAnchura(int nodos, int radio) {
+        if (nodos == 0) {
+            return 0;
+        }
+        int[] posiciones = calcularPosiciones(nodos, SEPARACION_MINIMA * radio);
+        int minimo = 0;
+        int maximo = 0;
+        for (int llave = Arbol.RAIZ; llave <= nodos; llave++) {
+            minimo = Math.min(minimo, posiciones[llave]);
+            maximo = Math.max(maximo, posiciones[llave]);
+        }
+        return maximo - minimo + 2 * radio;
+    }
+
+    /**
+     * Anchura que ocupan los centros de los nodos del nivel
+     */
+    public int obtenerAnchoNivel(int nivel) {
+        return x[ultimaDelNivel(nivel)] - x[primeraDelNivel(nivel)];
+    }
+
+    /**
+     * Número de nodos del nivel
+     */
+    public int contarEnNivel(int nivel) {
+        return ultimaDelNivel(nivel) - primeraDelNivel(nivel) + 1;
+    }
+
+    /**
+     * Número de nodos del nivel con el centro en [minimoX, maximoX]
+     */
+    public int contarEnNivel(int nivel, int minimoX, int maximoX) {
+        int inicio = primeraDelNivel(nivel);
+        int fin = ultimaDelNivel(nivel) + 1;
+        return primeroDesde(inicio, fin, maximoX + 1) - primeroDesde(inicio, fin, minimoX);
+    }
+
+    /**
+     * Copia las llaves de los nodos del nivel con el centro en [minimoX, maximoX], ordenadas por x
+     * @param destino Arreglo con espacio para los nodos del nivel desde la posición desde
+     * @return Posición siguiente a la última llave escrita
+     */
+    public int buscarEnNivel(int nivel, int minimoX, int maximoX, int[] destino, int desde) {
+        int fin = ultimaDelNivel(nivel) + 1;
+        int llave = primeroDesde(primeraDelNivel(nivel), fin, minimoX);
+        int n = desde;
+        for (; llave < fin && x[llave] <= maximoX; llave++) {
+            destino[n++] = llave;
+        }
+        return n;
+    }
+
+    /**
+     * Nodo cuyo círculo contiene el punto; si varios se solapan, el de centro más cercano
+     * @param px Coordenada x en el espacio del árbol
+     * @param py Coordenada y en el espacio del árbol
+     * @return Llave del nodo, o Arbol.SIN_NODO
+     */
+    public int buscarNodo(int px, int py) {
+        if (nodos == 0) {
+            return Arbol.SIN_NODO;
+        }
+
+        // Nivel cuya fila está más cerca del punto
+        int nivel = Math.floorDiv(py - margenSuperior + separacionVertical / 2, separacionVertical);
+        if (nivel < 0 || nivel >= niveles) {
+            return Arbol.SIN_NODO;
+        }
+        long dy = py - (margenSuperior + (long) nivel * separacionVertical);
+        long radioCuadrado = (long) radio * radio;
+        if (dy * dy > radioCuadrado) {
+            return Arbol.SIN_NODO;
+        }
+
+        // Primer nodo del nivel con x >= px - radio, y los siguientes hasta px + radio
+        int fin = ultimaDelNivel(nivel) + 1;
+        int llave = primeroDesde(primeraDelNivel(nivel), fin, px - radio);
+        int encontrado = Arbol.SIN_NODO;
+        long mejor = Long.MAX_VALUE;
+        for (; llave < fin && x[llave] <= px + radio; llave++) {
+            long dx = px - x[llave];
+            long distancia = dx * dx + dy * dy;
+            if (distancia <= radioCuadrado && distancia < mejor) {
+                mejor = distancia;
+                encontrado = llave;
+            }
+        }
+        return encontrado;
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    /**
+     * Coloca los nodos con calcularPosiciones y desplaza el árbol a la anchura dada
+     */
+    private void calcularCoordenadas() {
+        if (nodos == 0) {
+            return;
+        }
+
+        int[] relativas = calcularPosiciones(nodos, SEPARACION_MINIMA * radio);
+        int minimo = 0;
+        int maximo = 0;
+        for (int llave = Arbol.RAIZ; llave <= nodos; llave++) {
+            minimo = Math.min(minimo, relativas[llave]);
+            maximo = Math.max(maximo, relativas[llave]);
+        }
+        // Centrado si cabe; si no, el nodo más a la izquierda toca el borde
+        int desplazamiento = Math.max((anchura - (maximo - minimo)) / 2, radio) - minimo;
+        minimoX = minimo + desplazamiento;
+        maximoX = maximo + desplazamiento;
+        for (int llave = Arbol.RAIZ; llave <= nodos; llave++) {
+            int nivel = Arbol.profundidad(llave);
+            x[llave] = relativas[llave] + desplazamiento;
+            y[llave] = margenSuperior + nivel * separacionVertical;
+            if (llave > Arbol.RAIZ) {
+                separacion[nivel] = Math.max(separacion[nivel], Math.abs(x[llave] - x[Arbol.padre(llave)]));
+            }
+        }
+
+        // Extremos de cada subárbol, de las hojas hacia la raíz
+        for (int llave = nodos; llave >= Arbol.RAIZ; llave--) {
+            int minimoLlave = x[llave];
+            int maximoLlave = x[llave];
+            int izquierdo = 2 * llave;
+            if (izquierdo <= nodos) {
+                minimoLlave = Math.min(minimoLlave, minimoSubarbol[izquierdo]);
+                maximoLlave = Math.max(maximoLlave, maximoSubarbol[izquierdo]);
+                if (izquierdo + 1 <= nodos) {
+                    minimoLlave = Math.min(minimoLlave, minimoSubarbol[izquierdo + 1]);
+                    maximoLlave = Math.max(maximoLlave, maximoSubarbol[izquierdo + 1]);
+                }
+            }
+            minimoSubarbol[llave] = minimoLlave;
+            maximoSubarbol[llave] = maximoLlave;
+            int nivel = Arbol.profundidad(llave);
+            semianchoSubarbol[nivel] = Math.max(semianchoSubarbol[nivel],
+                    Math.max(x[llave] - minimoLlave, maximoLlave - x[llave]));
+        }
+    }
+
+    /**
+     * Coordenada x de cada nodo de un árbol de n nodos, relativa a la raíz
+     *
+     * Algoritmo de Reingold y Tilford para árboles binarios. Cada nodo guarda la
+     * distancia a la que quedan sus hijos (uno a cada lado) y los nodos extremos
+     * del nivel más profundo de su subárbol. Para separar dos subárboles se bajan
+     * a la vez el contorno derecho del izquierdo y el izquierdo del derecho,
+     * apartándolos lo que haga falta en cada nivel; cuando un contorno termina
+     * antes que el otro, un hilo desde su nodo extremo sigue por el contorno más
+     * largo, así que cada nodo se visita como contorno una sola vez y el total es O(n).
+     * Los hilos solo se ponen en hojas, cuya distancia a los hijos no se usa.
+     * @param nodos Número de nodos; las llaves van de Arbol.RAIZ a nodos
+     * @param separacionMinima Distancia mínima entre dos nodos del mismo nivel
+     * @return Arreglo indexado por llave (la posición 0 no se usa)
+     */
+    public static int[] calcularPosiciones(int nodos, int separacionMinima) {
+        int[] posiciones = new int[nodos + 1];
+        if (nodos == 0) {
+            return posiciones;
+        }
+
+        // Enlaces de cada nodo; en las hojas pueden pasar a ser hilos
+        int[] izquierdo = new int[nodos + 1];
+        int[] derecho = new int[nodos + 1];
+        // Distancia de cada nodo a sus hijos, o del nodo con hilo al nodo al que apunta
+        int[] distancia = new int[nodos + 1];
+        // Nodos más a la izquierda y a la derecha del nivel más profundo del subárbol,
+        // con su x relativa a la raíz del subárbol
+        int[] extremoIzquierdo = new int[nodos + 1];
+        int[] extremoDerecho = new int[nodos + 1];
+        int[] desplazamientoIzquierdo = new int[nodos + 1];
+        int[] desplazamientoDerecho = new int[nodos + 1];
+        for (int llave = Arbol.RAIZ; llave <= nodos; llave++) {
+            izquierdo[llave] = 2 * llave <= nodos ? 2 * llave : Arbol.SIN_NODO;
+            derecho[llave] = 2 * llave + 1 <= nodos ? 2 * llave + 1 : Arbol.SIN_NODO;
+        }
+
+        // Cada hijo tiene una llave mayor que su padre
+        for (int llave = nodos; llave >= Arbol.RAIZ; llave--) {
+            int hijoIzquierdo = izquierdo[llave];
+            int hijoDerecho = derecho[llave];
+            if (hijoIzquierdo == Arbol.SIN_NODO && hijoDerecho == Arbol.SIN_NODO) {
+                extremoIzquierdo[llave] = llave;
+                extremoDerecho[llave] = llave;
+                continue;
+            }
+
+            // Bajar por los dos contornos sumando lo que hay que separarlos
+            int l = hijoIzquierdo;
+            int r = hijoDerecho;
+            int separacionActual = separacionMinima;
+            int separacionRaiz = separacionMinima;
+            int sumaIzquierda = 0;
+            int sumaDerecha = 0;
+            while (l != Arbol.SIN_NODO && r != Arbol.SIN_NODO) {
+                if (separacionActual < separacionMinima) {
+                    separacionRaiz += separacionMinima - separacionActual;
+                    separacionActual = separacionMinima;
+                }
+                if (derecho[l] != Arbol.SIN_NODO) {
+                    sumaIzquierda += distancia[l];
+                    separacionActual -= distancia[l];
+                    l = derecho[l];
+                } else {
+                    sumaIzquierda -= distancia[l];
+                    separacionActual += distancia[l];
+                    l = izquierdo[l];
+                }
+                if (izquierdo[r] != Arbol.SIN_NODO) {
+                    sumaDerecha -= distancia[r];
+                    separacionActual -= distancia[r];
+                    r = izquierdo[r];
+                } else {
+                    sumaDerecha += distancia[r];
+                    separacionActual += distancia[r];
+                    r = derecho[r];
+                }
+            }
+            int mitad = (separacionRaiz + 1) / 2;
+            distancia[llave] = mitad;
+            sumaIzquierda -= mitad;
+            sumaDerecha += mitad;
+
+            // Extremos del subárbol: los del hijo cuyo subárbol llega más abajo
+            int nivelIzquierdoIzq = hijoIzquierdo == Arbol.SIN_NODO ? -1 : Arbol.profundidad(extremoIzquierdo[hijoIzquierdo]);
+            int nivelIzquierdoDer = hijoDerecho == Arbol.SIN_NODO ? -1 : Arbol.profundidad(extremoIzquierdo[hijoDerecho]);
+            int nivelDerechoIzq = hijoIzquierdo == Arbol.SIN_NODO ? -1 : Arbol.profundidad(extremoDerecho[hijoIzquierdo]);
+            int nivelDerechoDer = hijoDerecho == Arbol.SIN_NODO ? -1 : Arbol.profundidad(extremoDerecho[hijoDerecho]);
+            int extremoLL = hijoIzquierdo == Arbol.SIN_NODO ? Arbol.SIN_NODO : extremoIzquierdo[hijoIzquierdo];
+            int extremoRR = hijoDerecho == Arbol.SIN_NODO ? Arbol.SIN_NODO : extremoDerecho[hijoDerecho];
+            int desplazamientoLL = hijoIzquierdo == Arbol.SIN_NODO ? 0 : desplazamientoIzquierdo[hijoIzquierdo];
+            int desplazamientoRR = hijoDerecho == Arbol.SIN_NODO ? 0 : desplazamientoDerecho[hijoDerecho];
+            if (nivelIzquierdoDer > nivelIzquierdoIzq || hijoIzquierdo == Arbol.SIN_NODO) {
+                extremoIzquierdo[llave] = extremoIzquierdo[hijoDerecho];
+                desplazamientoIzquierdo[llave] = desplazamientoIzquierdo[hijoDerecho] + mitad;
+            } else {
+                extremoIzquierdo[llave] = extremoLL;
+                desplazamientoIzquierdo[llave] = desplazamientoLL - mitad;
+            }
+            if (nivelDerechoIzq > nivelDerechoDer || hijoDerecho == Arbol.SIN_NODO) {
+                extremoDerecho[llave] = extremoDerecho[hijoIzquierdo];
+                desplazamientoDerecho[llave] = desplazamientoDerecho[hijoIzquierdo] - mitad;
+            } else {
+                extremoDerecho[llave] = extremoRR;
+                desplazamientoDerecho[llave] = desplazamientoRR + mitad;
+            }
+
+            // Hilo desde el extremo del subárbol menos profundo al contorno que sigue
+            if (l != Arbol.SIN_NODO && l != hijoIzquierdo) {
+                distancia[extremoRR] = Math.abs(desplazamientoRR + mitad - sumaIzquierda);
+                if (sumaIzquierda - mitad <= desplazamientoRR) {
+                    izquierdo[extremoRR] = l;
+                } else {
+                    derecho[extremoRR] = l;
+                }
+            } else if (r != Arbol.SIN_NODO && r != hijoDerecho) {
+                distancia[extremoLL] = Math.abs(desplazamientoLL - mitad - sumaDerecha);
+                if (sumaDerecha + mitad >= desplazamientoLL) {
+                    derecho[extremoLL] = r;
+                } else {
+                    izquierdo[extremoLL] = r;
+                }
+            }
+        }
+
+        // Cada padre antes que sus hijos; los hilos están solo en hojas y no se siguen
+        for (int llave = Arbol.RAIZ + 1; llave <= nodos; llave++) {
+            int padre = Arbol.padre(llave);
+            posiciones[llave] = (llave & 1) == 0 ? posiciones[padre] - distancia[padre] : posiciones[padre] + distancia[padre];
+        }
+        return posiciones;
+    }
+
+    private static int primeraDelNivel(int nivel) {
+        return 1 << nivel;
+    }
+
+    private int ultimaDelNivel(int nivel) {
+        return (int) Math.min((2L << nivel) - 1, nodos);
+    }
+
+    /**
+     * Búsqueda binaria de la primera llave de [desde, hasta) con x >= valor
+     * Solo vale dentro de un nivel, donde x crece con la llave
+     */
+    private int primeroDesde(int desde, int hasta, int valor) {
+        int bajo = desde;
+        int alto = hasta;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (x[medio] < valor) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+}
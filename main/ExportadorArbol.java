@@ -0,0 +1,442 @@
+package main;
+
+import analizador.AnalizadorSintactico;
+import modelo.ResultadoAnalisis;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Exporta el árbol completo de una partida a PNG o SVG sin necesidad de pantalla
+ *
+ * El PNG se dibuja por franjas horizontales, cada una dividida en teselas que se
+ * dibujan en paralelo con un DibujoArbol por hilo. Las filas de cada franja se
+ * filtran y comprimen en cuanto está lista y la franja se descarta, de modo que
+ * nunca hay en memoria más de dos franjas: la que se está escribiendo y la
+ * siguiente, que se dibuja mientras tanto. La memoria depende de la anchura de
+ * la imagen y no de su altura; una imagen de 50000 x 10000 píxeles necesita unos
+ * 50 MB para las franjas en lugar de los 2 GB de la imagen completa. En imágenes
+ * más anchas las franjas tienen menos filas, para no pasar de MEMORIA_FRANJA.
+ *
+ * El SVG se escribe nodo a nodo, también sin guardar nada más que la disposición.
+ *
+ * Uso: java main.ExportadorArbol partida.txt salida.png|salida.svg [escala] [hilos]
+ */
+public class ExportadorArbol {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Las mismas medidas que el visualizador
+    private static final int RADIO = 25;
+    private static final int SEPARACION_VERTICAL = 70;
+    private static final int MARGEN_SUPERIOR = 50;
+
+    // Espacio libre alrededor del árbol, en coordenadas del árbol
+    private static final int MARGEN = 20;
+
+    // Tamaño de las teselas: cada franja tiene hasta ALTO_FRANJA filas de la imagen
+    // y no ocupa más de MEMORIA_FRANJA bytes
+    private static final int ANCHO_TESELA = 512;
+    private static final int ALTO_FRANJA = 128;
+    private static final int MEMORIA_FRANJA = 32 * 1024 * 1024;
+
+    // Datos comprimidos por fragmento IDAT
+    private static final int TAMANO_FRAGMENTO = 64 * 1024;
+
+    private static final byte[] FIRMA_PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private final Arbol arbol;
+    private final DisposicionArbol disposicion;
+    private final double escala;
+    private final int hilos;
+    private final Font fuente = new Font(Font.DIALOG, Font.PLAIN, 12);
+
+    // Coordenada x del árbol que queda en el borde izquierdo de la imagen
+    private final int origenX;
+    private final int anchoImagen;
+    private final int altoImagen;
+    private final int altoFranja;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    /**
+     * Exporta a tamaño normal con un hilo por procesador
+     */
+    public ExportadorArbol(Arbol arbol) {
+        this(arbol, 1.0, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param arbol Árbol a exportar; no debe cambiar mientras se exporta
+     * @param escala Píxeles de la imagen por unidad del árbol
+     * @param hilos Hilos que dibujan las teselas del PNG
+     */
+    public ExportadorArbol(Arbol arbol, double escala, int hilos) {
+        if (escala <= 0 || hilos < 1) {
+            throw new IllegalArgumentException("Escala o número de hilos no válidos");
+        }
+        this.arbol = arbol;
+        this.disposicion = new DisposicionArbol(arbol, 0, RADIO, SEPARACION_VERTICAL, MARGEN_SUPERIOR);
+        this.escala = escala;
+        this.hilos = hilos;
+
+        int minimoX = arbol.tamano() == 0 ? 0 : disposicion.obtenerMinimoX();
+        int maximoX = arbol.tamano() == 0 ? 0 : disposicion.obtenerMaximoX();
+        int maximoY = arbol.tamano() == 0 ? 0 : disposicion.obtenerMaximoY();
+        this.origenX = minimoX - MARGEN;
+        long ancho = (long) Math.ceil((maximoX - minimoX + 2 * MARGEN) * escala);
+        long alto = (long) Math.ceil((maximoY + MARGEN) * escala);
+        if (ancho > Integer.MAX_VALUE / 3 || alto > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("La imagen sería demasiado grande: " + ancho + " x " + alto);
+        }
+        this.anchoImagen = (int) Math.max(ancho, 1);
+        this.altoImagen = (int) Math.max(alto, 1);
+        this.altoFranja = (int) Math.max(1, Math.min(ALTO_FRANJA, MEMORIA_FRANJA / (4L * anchoImagen)));
+    }
+
+    //-------------------------
+    // MÉTODOS PÚBLICOS
+    //-------------------------
+
+    public int obtenerAnchoImagen() {
+        return anchoImagen;
+    }
+
+    public int obtenerAltoImagen() {
+        return altoImagen;
+    }
+
+    /**
+     * Escribe el árbol como PNG RGB de 8 bits, franja a franja
+     * No cierra la salida.
+     */
+    public void escribirPNG(OutputStream salida) throws IOException {
+        salida.write(FIRMA_PNG);
+        byte[] cabecera = new byte[13];
+        escribirEntero(cabecera, 0, anchoImagen);
+        escribirEntero(cabecera, 4, altoImagen);
+        cabecera[8] = 8;  // bits por muestra
+        cabecera[9] = 2;  // RGB
+        escribirFragmento(salida, "IHDR", cabecera, cabecera.length);
+
+        ForkJoinPool grupoHilos = new ForkJoinPool(hilos);
+        Deflater compresor = new Deflater(Deflater.BEST_SPEED);
+        try {
+            ThreadLocal<DibujoArbol> dibujos = ThreadLocal.withInitial(() -> new DibujoArbol(arbol));
+            DeflaterOutputStream datos = new DeflaterOutputStream(
+                    new SalidaFragmentos(salida), compresor, TAMANO_FRAGMENTO);
+
+            // Cada fila lleva delante el tipo de filtro; se usa Sub (1), que deja en
+            // cero los tramos de un solo color
+            byte[] fila = new byte[1 + 3 * anchoImagen];
+            fila[0] = 1;
+            int franjas = (altoImagen + altoFranja - 1) / altoFranja;
+            List<Future<BufferedImage>> siguiente = encargarFranja(grupoHilos, dibujos, 0);
+            for (int franja = 0; franja < franjas; franja++) {
+                List<Future<BufferedImage>> actual = siguiente;
+                // La franja siguiente se dibuja mientras se comprime esta
+                siguiente = franja + 1 < franjas ? encargarFranja(grupoHilos, dibujos, franja + 1) : null;
+
+                List<BufferedImage> teselas = new ArrayList<>(actual.size());
+                for (Future<BufferedImage> pendiente : actual) {
+                    teselas.add(esperar(pendiente));
+                }
+                int filas = Math.min(altoFranja, altoImagen - franja * altoFranja);
+                for (int y = 0; y < filas; y++) {
+                    copiarFila(teselas, y, fila);
+                    datos.write(fila);
+                }
+            }
+            datos.finish();
+            datos.flush();
+        } finally {
+            compresor.end();
+            grupoHilos.shutdownNow();
+        }
+        escribirFragmento(salida, "IEND", new byte[0], 0);
+        salida.flush();
+    }
+
+    /**
+     * Escribe el árbol como SVG con el máximo detalle, sin depender de la escala
+     * No cierra la salida; conviene que sea un BufferedWriter.
+     */
+    public void escribirSVG(Writer salida) throws IOException {
+        int anchoArbol = (int) Math.ceil(anchoImagen / escala);
+        int altoArbol = (int) Math.ceil(altoImagen / escala);
+        salida.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        salida.write("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + anchoImagen + "\" height=\"" + altoImagen
+                + "\" viewBox=\"" + origenX + " 0 " + anchoArbol + " " + altoArbol + "\">\n");
+        salida.write("<rect x=\"" + origenX + "\" y=\"0\" width=\"" + anchoArbol + "\" height=\"" + altoArbol
+                + "\" fill=\"" + colorHex(DibujoArbol.COLOR_FONDO) + "\"/>\n");
+
+        // Aristas, debajo de los nodos
+        int nodos = arbol.tamano();
+        salida.write("<g stroke=\"black\">\n");
+        for (int llave = Arbol.RAIZ + 1; llave <= nodos; llave++) {
+            int padre = Arbol.padre(llave);
+            salida.write("<line x1=\"" + disposicion.obtenerX(padre) + "\" y1=\"" + (disposicion.obtenerY(padre) + RADIO)
+                    + "\" x2=\"" + disposicion.obtenerX(llave) + "\" y2=\"" + (disposicion.obtenerY(llave) - RADIO)
+                    + "\"/>\n");
+        }
+        salida.write("</g>\n");
+
+        // Nodos con su número y su jugada
+        salida.write("<g stroke=\"black\" font-family=\"" + fuente.getFamily() + "\" font-size=\"" + fuente.getSize()
+                + "\" text-anchor=\"middle\">\n");
+        for (int llave = Arbol.RAIZ; llave <= nodos; llave++) {
+            int x = disposicion.obtenerX(llave);
+            int y = disposicion.obtenerY(llave);
+            salida.write("<circle cx=\"" + x + "\" cy=\"" + y + "\" r=\"" + RADIO
+                    + "\" fill=\"" + colorHex(DibujoArbol.colorNodo(llave)) + "\"/>");
+            salida.write("<text x=\"" + x + "\" y=\"" + (y - 2) + "\" stroke=\"none\">" + llave + "</text>");
+            String jugada = DibujoArbol.etiquetaJugada(arbol.obtenerJugada(llave));
+            if (jugada != null) {
+                salida.write("<text x=\"" + x + "\" y=\"" + (y + 12) + "\" stroke=\"none\">"
+                        + escaparXml(jugada) + "</text>");
+            }
+            salida.write('\n');
+        }
+        salida.write("</g>\n</svg>\n");
+        salida.flush();
+    }
+
+    //-------------------------
+    // MÉTODO PRINCIPAL
+    //-------------------------
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: java main.ExportadorArbol partida.txt salida.png|salida.svg [escala] [hilos]");
+            System.exit(2);
+        }
+        double escala = args.length > 2 ? Double.parseDouble(args[2]) : 1.0;
+        int hilos = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        String texto = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8).trim();
+        ResultadoAnalisis resultado = new AnalizadorSintactico().analizar(texto);
+        if (!resultado.esValido()) {
+            System.err.println("La partida no es válida: " + resultado.getMensajeError());
+            System.exit(1);
+        }
+        Arbol arbol = new Arbol();
+        arbol.construirDesdePartida(resultado.getPartida());
+
+        ExportadorArbol exportador = new ExportadorArbol(arbol, escala, hilos);
+        Path ruta = Paths.get(args[1]);
+        long inicio = System.nanoTime();
+        if (ruta.toString().toLowerCase().endsWith(".svg")) {
+            try (Writer salida = Files.newBufferedWriter(ruta, StandardCharsets.UTF_8)) {
+                exportador.escribirSVG(salida);
+            }
+        } else {
+            try (OutputStream salida = new BufferedOutputStream(Files.newOutputStream(ruta))) {
+                exportador.escribirPNG(salida);
+            }
+        }
+        System.out.printf("%d nodos, %d x %d píxeles, %.1f s%n", arbol.tamano(),
+                exportador.obtenerAnchoImagen(), exportador.obtenerAltoImagen(),
+                (System.nanoTime() - inicio) / 1e9);
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    /**
+     * Encarga dibujar todas las teselas de una franja, de izquierda a derecha
+     */
+    private List<Future<BufferedImage>> encargarFranja(ForkJoinPool grupoHilos, ThreadLocal<DibujoArbol> dibujos,
+                                                       int franja) {
+        int y = franja * altoFranja;
+        int alto = Math.min(altoFranja, altoImagen - y);
+        List<Future<BufferedImage>> teselas = new ArrayList<>();
+        for (int x = 0; x < anchoImagen; x += ANCHO_TESELA) {
+            int inicioX = x;
+            int ancho = Math.min(ANCHO_TESELA, anchoImagen - x);
+            teselas.add(grupoHilos.submit(() -> dibujarTesela(dibujos.get(), inicioX, y, ancho, alto)));
+        }
+        return teselas;
+    }
+
+    /**
+     * Dibuja la parte del árbol que cubre un rectángulo de la imagen
+     */
+    private BufferedImage dibujarTesela(DibujoArbol dibujo, int x, int y, int ancho, int alto) {
+        BufferedImage tesela = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = tesela.createGraphics();
+        try {
+            DibujoArbol.configurarCalidad(g);
+            g.setFont(fuente);
+            g.setColor(DibujoArbol.COLOR_FONDO);
+            g.fillRect(0, 0, ancho, alto);
+
+            // Parte del árbol que cubre la tesela, en coordenadas del árbol
+            int minX = origenX + (int) Math.floor(x / escala);
+            int minY = (int) Math.floor(y / escala);
+            int maxX = origenX + (int) Math.ceil((x + ancho) / escala);
+            int maxY = (int) Math.ceil((y + alto) / escala);
+
+            g.translate(-x, -y);
+            g.scale(escala, escala);
+            g.translate(-origenX, 0);
+            dibujo.dibujar(g, disposicion, new Rectangle(minX, minY, maxX - minX, maxY - minY), escala);
+        } finally {
+            g.dispose();
+        }
+        return tesela;
+    }
+
+    /**
+     * Copia una fila de las teselas de una franja como bytes RGB con el filtro Sub
+     */
+    private static void copiarFila(List<BufferedImage> teselas, int y, byte[] fila) {
+        int posicion = 1;
+        int r = 0;
+        int v = 0;
+        int a = 0;
+        for (BufferedImage tesela : teselas) {
+            int ancho = tesela.getWidth();
+            int[] pixeles = ((DataBufferInt) tesela.getRaster().getDataBuffer()).getData();
+            for (int i = y * ancho, fin = i + ancho; i < fin; i++) {
+                int pixel = pixeles[i];
+                int rojo = pixel >>> 16 & 0xFF;
+                int verde = pixel >>> 8 & 0xFF;
+                int azul = pixel & 0xFF;
+                // Sub: cada byte menos el mismo canal del píxel anterior
+                fila[posicion++] = (byte) (rojo - r);
+                fila[posicion++] = (byte) (verde - v);
+                fila[posicion++] = (byte) (azul - a);
+                r = rojo;
+                v = verde;
+                a = azul;
+            }
+        }
+    }
+
+    private static BufferedImage esperar(Future<BufferedImage> pendiente) throws IOException {
+        try {
+            return pendiente.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Exportación interrumpida", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Error al dibujar una tesela: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /**
+     * Escribe un fragmento PNG: longitud, tipo, datos y CRC del tipo y los datos
+     */
+    private static void escribirFragmento(OutputStream salida, String tipo, byte[] datos, int longitud)
+            throws IOException {
+        byte[] entero = new byte[4];
+        escribirEntero(entero, 0, longitud);
+        salida.write(entero);
+        byte[] bytesTipo = tipo.getBytes(StandardCharsets.US_ASCII);
+        salida.write(bytesTipo);
+        salida.write(datos, 0, longitud);
+        CRC32 crc = new CRC32();
+        crc.update(bytesTipo);
+        crc.update(datos, 0, longitud);
+        escribirEntero(entero, 0, (int) crc.getValue());
+        salida.write(entero);
+    }
+
+    private static void escribirEntero(byte[] destino, int posicion, int valor) {
+        destino[posicion] = (byte) (valor >>> 24);
+        destino[posicion + 1] = (byte) (valor >>> 16);
+        destino[posicion + 2] = (byte) (valor >>> 8);
+        destino[posicion + 3] = (byte) valor;
+    }
+
+    private static String colorHex(Color color) {
+        return String.format("#%06x", color.getRGB() & 0xFFFFFF);
+    }
+
+    private static String escaparXml(String texto) {
+        StringBuilder escapado = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '&': escapado.append("&amp;"); break;
+                case '<': escapado.append("&lt;"); break;
+                case '>': escapado.append("&gt;"); break;
+                case '"': escapado.append("&quot;"); break;
+                default: escapado.append(c);
+            }
+        }
+        return escapado.toString();
+    }
+
+    /**
+     * Agrupa los datos comprimidos en fragmentos IDAT de TAMANO_FRAGMENTO bytes
+     */
+    private static class SalidaFragmentos extends OutputStream {
+        private final OutputStream salida;
+        private final byte[] bufer = new byte[TAMANO_FRAGMENTO];
+        private int usados;
+
+        SalidaFragmentos(OutputStream salida) {
+            this.salida = salida;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (usados == bufer.length) {
+                flush();
+            }
+            bufer[usados++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] datos, int desplazamiento, int longitud) throws IOException {
+            while (longitud > 0) {
+                if (usados == bufer.length) {
+                    flush();
+                }
+                int cantidad = Math.min(longitud, bufer.length - usados);
+                System.arraycopy(datos, desplazamiento, bufer, usados, cantidad);
+                usados += cantidad;
+                desplazamiento += cantidad;
+                longitud -= cantidad;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (usados > 0) {
+                escribirFragmento(salida, "IDAT", bufer, usados);
+                usados = 0;
+            }
+        }
+    }
+}
@@ -4,6 +4,9 @@ import analizador.AnalizadorGramatico;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class InterfazAjedrez {
     private JFrame ventana;
@@ -11,6 +14,14 @@ public class InterfazAjedrez {
     private JPasswordField campoContrasena;
     private AnalizadorGramatico analizador;
 
+    // Los análisis se hacen de uno en uno fuera del hilo de eventos
+    private final ExecutorService hiloAnalisis = Executors.newSingleThreadExecutor(tarea -> {
+        Thread hilo = new Thread(tarea, "analisis-partida");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+    private SwingWorker<Arbol, Void> analisisEnCurso;
+
     public InterfazAjedrez() {
         // Inicializar componentes
         ventana = new JFrame("Analizador de Partidas de Ajedrez");
@@ -100,10 +111,16 @@ public class InterfazAjedrez {
         JButton btnAnalizar = new JButton("Analizar Partida");
         btnAnalizar.setBackground(new Color(139, 69, 19));
         btnAnalizar.setForeground(Color.WHITE);
+
+        // Indica que hay un análisis en curso
+        JProgressBar barraProgreso = new JProgressBar();
+        barraProgreso.setIndeterminate(true);
+        barraProgreso.setVisible(false);
+
         btnAnalizar.addActionListener(e -> {
             String textoPartida = areaPartida.getText();
             if (!textoPartida.isEmpty()) {
-                analizador.analizar(textoPartida);
+                analizarPartida(textoPartida, barraProgreso);
             } else {
                 mostrarError("Por favor, ingrese una partida para analizar");
             }
@@ -113,6 +130,7 @@ public class InterfazAjedrez {
         JPanel panelInferior = new JPanel();
         panelInferior.setBackground(new Color(240, 217, 181));
         panelInferior.add(btnAnalizar);
+        panelInferior.add(barraProgreso);
 
         // Agregar componentes al panel principal
         panel.add(panelSuperior, BorderLayout.NORTH);
@@ -125,6 +143,45 @@ public class InterfazAjedrez {
         ventana.repaint();
     }
 
+    /**
+     * Analiza la partida fuera del hilo de eventos y muestra su árbol al terminar
+     * Si había otro análisis en curso, se cancela y su árbol no se muestra.
+     */
+    private void analizarPartida(String textoPartida, JProgressBar barraProgreso) {
+        if (analisisEnCurso != null) {
+            analisisEnCurso.cancel(false);
+        }
+        SwingWorker<Arbol, Void> tarea = new SwingWorker<Arbol, Void>() {
+            @Override
+            protected Arbol doInBackground() {
+                return analizador.construirArbol(textoPartida);
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                if (analisisEnCurso == this) {
+                    analisisEnCurso = null;
+                    barraProgreso.setVisible(false);
+                }
+                try {
+                    Arbol arbol = get();
+                    if (arbol != null) {
+                        analizador.mostrarArbolVisual(arbol);
+                    }
+                } catch (InterruptedException | ExecutionException error) {
+                    Throwable causa = error instanceof ExecutionException ? error.getCause() : error;
+                    mostrarError("Error al analizar la partida: " + causa.getMessage());
+                }
+            }
+        };
+        analisisEnCurso = tarea;
+        barraProgreso.setVisible(true);
+        hiloAnalisis.execute(tarea);
+    }
+
     private void mostrarError(String mensaje) {
         JOptionPane.showMessageDialog(ventana, mensaje, "Error", JOptionPane.ERROR_MESSAGE);
     }
@@ -0,0 +1,254 @@
+package main;
+
+import modelo.CodigoJugada;
+import modelo.Posicion;
+
+import javax.swing.SwingUtilities;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+/**
+ * Miniaturas del tablero en la posición de cada nodo de un Arbol
+ *
+ * Las miniaturas se dibujan en un hilo de fondo: el hilo de eventos pide una
+ * con obtener, que devuelve la que ya está hecha o encarga dibujarla y devuelve
+ * null; al terminar se guarda en una CacheImagenes acotada en número y en bytes
+ * y se avisa con alTerminar, siempre en el hilo de eventos. La cola de encargos
+ * también está acotada: si se llena se descarta el más antiguo, que es el del
+ * nodo por el que el ratón pasó hace más tiempo.
+ *
+ * La posición de un nodo se obtiene reproduciendo las jugadas anteriores, que
+ * se codifican una sola vez al crear el objeto. Los nodos que siguen a una
+ * jugada que no se puede reproducir no tienen miniatura.
+ */
+class MiniaturasTablero {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    static final int TAMANO_CASILLA = 20;
+    static final int TAMANO = TAMANO_CASILLA * 8;
+
+    private static final int MAXIMO_MINIATURAS = 256;
+    private static final long MAXIMO_BYTES = 16L * 1024 * 1024;
+    private static final int MAXIMO_ENCARGOS = 32;
+
+    private static final Color CASILLA_CLARA = new Color(240, 217, 181);
+    private static final Color CASILLA_OSCURA = new Color(181, 136, 99);
+
+    // Piezas por tipo (PEON..REY), con símbolos Unicode o letras si la fuente no los tiene
+    private static final String SIMBOLOS_BLANCAS = "\u2659\u2658\u2657\u2656\u2655\u2654";
+    private static final String SIMBOLOS_NEGRAS = "\u265F\u265E\u265D\u265C\u265B\u265A";
+    private static final String LETRAS_BLANCAS = "PNBRQK";
+    private static final String LETRAS_NEGRAS = "pnbrqk";
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    // Código de la jugada de cada nodo, por llave; SIN_CODIGO si no se puede reproducir
+    private final int[] codigos;
+
+    // Solo se usan desde el hilo de eventos
+    private final CacheImagenes cache = new CacheImagenes(MAXIMO_MINIATURAS, MAXIMO_BYTES);
+    private final Set<Integer> encargadas = new HashSet<>();
+    private final BitSet sinMiniatura = new BitSet();
+    private final IntConsumer alTerminar;
+    private long encargosDescartados;
+
+    private final ThreadPoolExecutor ejecutor;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    /**
+     * @param arbol Árbol de la partida; no debe cambiar mientras se usen las miniaturas
+     * @param alTerminar Recibe en el hilo de eventos la llave de cada miniatura terminada
+     */
+    MiniaturasTablero(Arbol arbol, IntConsumer alTerminar) {
+        this.alTerminar = alTerminar;
+        this.codigos = new int[arbol.tamano() + 1];
+        for (int llave = Arbol.RAIZ + 1; llave <= arbol.tamano(); llave++) {
+            codigos[llave] = codificar(arbol.obtenerJugada(llave));
+        }
+
+        this.ejecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(MAXIMO_ENCARGOS),
+                tarea -> {
+                    Thread hilo = new Thread(tarea, "miniaturas-tablero");
+                    hilo.setDaemon(true);
+                    return hilo;
+                },
+                (tarea, ejecutor) -> {
+                    if (ejecutor.isShutdown()) {
+                        return;
+                    }
+                    // Cola llena: descartar el encargo más antiguo para dejar sitio al nuevo
+                    Runnable descartado = ejecutor.getQueue().poll();
+                    if (descartado instanceof Encargo) {
+                        encargadas.remove(((Encargo) descartado).llave);
+                        encargosDescartados++;
+                    }
+                    ejecutor.execute(tarea);
+                });
+    }
+
+    //-------------------------
+    // MÉTODOS
+    //-------------------------
+
+    /**
+     * Miniatura del nodo, si ya está dibujada; si no, encarga dibujarla
+     * Debe llamarse desde el hilo de eventos.
+     * @return La miniatura, o null si todavía no está o el nodo no la tiene
+     */
+    BufferedImage obtener(int llave) {
+        if (llave < Arbol.RAIZ || llave >= codigos.length || sinMiniatura.get(llave)) {
+            return null;
+        }
+        BufferedImage miniatura = cache.obtener(llave);
+        if (miniatura == null && encargadas.add(llave)) {
+            ejecutor.execute(new Encargo(llave));
+        }
+        return miniatura;
+    }
+
+    /**
+     * Resumen de las métricas de la caché, para mostrarlo en la interfaz
+     */
+    String describir() {
+        return String.format("%d miniaturas (%.1f MB), %d aciertos, %d fallos, %d descartadas, %d encargos descartados",
+                cache.contar(), cache.contarBytes() / (1024.0 * 1024.0), cache.contarAciertos(),
+                cache.contarFallos(), cache.contarDescartes(), encargosDescartados);
+    }
+
+    /**
+     * Detiene el hilo de fondo; los encargos pendientes se abandonan
+     */
+    void cerrar() {
+        ejecutor.shutdownNow();
+        cache.vaciar();
+    }
+
+    //-------------------------
+    // DIBUJO (hilo de fondo)
+    //-------------------------
+
+    /**
+     * Dibuja la miniatura de un nodo y la entrega en el hilo de eventos
+     */
+    private class Encargo implements Runnable {
+        final int llave;
+
+        Encargo(int llave) {
+            this.llave = llave;
+        }
+
+        @Override
+        public void run() {
+            Posicion posicion = reproducir(llave);
+            BufferedImage miniatura = posicion == null ? null : dibujar(posicion);
+            SwingUtilities.invokeLater(() -> {
+                encargadas.remove(llave);
+                if (miniatura == null) {
+                    sinMiniatura.set(llave);
+                } else {
+                    cache.guardar(llave, miniatura);
+                }
+                alTerminar.accept(llave);
+            });
+        }
+    }
+
+    /**
+     * Posición tras la jugada del nodo, o null si alguna jugada no se puede reproducir
+     */
+    private Posicion reproducir(int llave) {
+        Posicion posicion = new Posicion();
+        for (int siguiente = Arbol.RAIZ + 1; siguiente <= llave; siguiente++) {
+            if (codigos[siguiente] == CodigoJugada.SIN_CODIGO) {
+                return null;
+            }
+            int movimiento = posicion.resolver(codigos[siguiente]);
+            if (movimiento < 0) {
+                return null;
+            }
+            posicion.hacerMovimiento(movimiento);
+        }
+        return posicion;
+    }
+
+    private static BufferedImage dibujar(Posicion posicion) {
+        BufferedImage imagen = new BufferedImage(TAMANO, TAMANO, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = imagen.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            Font fuente = new Font(Font.SERIF, Font.PLAIN, TAMANO_CASILLA - 2);
+            boolean simbolos = fuente.canDisplayUpTo(SIMBOLOS_BLANCAS + SIMBOLOS_NEGRAS) < 0;
+            if (!simbolos) {
+                fuente = new Font(Font.SANS_SERIF, Font.BOLD, TAMANO_CASILLA - 6);
+            }
+            g.setFont(fuente);
+            FontMetrics metricas = g.getFontMetrics();
+
+            for (int casilla = 0; casilla < 64; casilla++) {
+                int columna = casilla % 8;
+                int fila = casilla / 8;
+                int x = columna * TAMANO_CASILLA;
+                int y = (7 - fila) * TAMANO_CASILLA;
+                g.setColor((columna + fila) % 2 == 0 ? CASILLA_OSCURA : CASILLA_CLARA);
+                g.fillRect(x, y, TAMANO_CASILLA, TAMANO_CASILLA);
+
+                int pieza = posicion.obtenerPieza(casilla);
+                if (pieza == Posicion.VACIA) {
+                    continue;
+                }
+                boolean blanca = pieza / 6 == Posicion.BLANCAS;
+                String letras = simbolos
+                        ? (blanca ? SIMBOLOS_BLANCAS : SIMBOLOS_NEGRAS)
+                        : (blanca ? LETRAS_BLANCAS : LETRAS_NEGRAS);
+                String texto = String.valueOf(letras.charAt(pieza % 6));
+                g.setColor(simbolos || !blanca ? Color.BLACK : Color.WHITE);
+                g.drawString(texto, x + (TAMANO_CASILLA - metricas.stringWidth(texto)) / 2,
+                        y + (TAMANO_CASILLA + metricas.getAscent() - metricas.getDescent()) / 2);
+            }
+        } finally {
+            g.dispose();
+        }
+        return imagen;
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    /**
+     * Código de una jugada del árbol; el jaque de un enroque no se puede codificar
+     * pero no hace falta para reproducirlo
+     */
+    private static int codificar(Object jugada) {
+        if (jugada == null) {
+            return CodigoJugada.SIN_CODIGO;
+        }
+        String notacion = jugada.toString();
+        int codigo = CodigoJugada.codificar(notacion);
+        if (codigo == CodigoJugada.SIN_CODIGO && notacion.startsWith("O-O")
+                && (notacion.endsWith("+") || notacion.endsWith("#"))) {
+            codigo = CodigoJugada.codificar(notacion, 0, notacion.length() - 1);
+        }
+        return codigo;
+    }
+}
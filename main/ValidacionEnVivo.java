@@ -0,0 +1,271 @@
+package main;
+
+import util.ValidadorSAN;
+
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.Highlighter;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.Segment;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Resalta mientras se escribe las palabras de una partida que no son SAN válido
+ *
+ * Cada edición solo amplía la zona pendiente de revisar y reinicia un
+ * temporizador, sin leer el texto, así que el coste por tecla no depende de la
+ * longitud de la partida. Cuando se deja de escribir durante ESPERA_MS, se
+ * vuelven a leer solo las palabras de la zona pendiente, con ValidadorSAN sobre
+ * el Segment del documento y sin crear Strings, y se cambian solo los resaltados
+ * de esa zona; el resto se mueve con el texto porque el Highlighter los guarda
+ * como posiciones del documento.
+ *
+ * Se admiten números de turno ("12." o "12...", también pegados a la jugada,
+ * como "12.e4"), jugadas SAN y los resultados 1-0, 0-1, 1/2-1/2 y *. La
+ * legalidad de cada jugada en el tablero la comprueba el análisis completo.
+ * Solo se usa desde el hilo de eventos.
+ */
+class ValidacionEnVivo implements DocumentListener {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    static final int ESPERA_MS = 200;
+
+    private static final Color COLOR_ERROR = new Color(255, 170, 170);
+    private static final int SIN_CAMBIOS = -1;
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private final JTextComponent area;
+    private final Highlighter.HighlightPainter pintor = new DefaultHighlighter.DefaultHighlightPainter(COLOR_ERROR);
+    private final Timer temporizador;
+
+    // Zona editada desde la última revisión, [inicioPendiente, finPendiente)
+    private int inicioPendiente = SIN_CAMBIOS;
+    private int finPendiente = SIN_CAMBIOS;
+
+    // Resaltados puestos por esta clase; son Highlighter.Highlight y siguen al texto
+    private final List<Object> marcas = new ArrayList<>();
+
+    // Texto de las líneas revisadas, sin copiarlo si el documento lo permite
+    private final Segment segmento = new Segment();
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    /**
+     * Empieza a validar el texto del área, incluido el que ya tiene
+     */
+    ValidacionEnVivo(JTextComponent area) {
+        this.area = area;
+        this.temporizador = new Timer(ESPERA_MS, evento -> revisarPendiente());
+        temporizador.setRepeats(false);
+        area.getDocument().addDocumentListener(this);
+        registrarCambio(0, area.getDocument().getLength());
+        revisarPendiente();
+    }
+
+    //-------------------------
+    // EDICIONES
+    //-------------------------
+
+    @Override
+    public void insertUpdate(DocumentEvent e) {
+        int inicio = e.getOffset();
+        int longitud = e.getLength();
+        // Lo pendiente tras el punto de inserción se desplaza con el texto
+        if (finPendiente >= inicio) {
+            finPendiente += longitud;
+        }
+        if (inicioPendiente > inicio) {
+            inicioPendiente += longitud;
+        }
+        registrarCambio(inicio, inicio + longitud);
+    }
+
+    @Override
+    public void removeUpdate(DocumentEvent e) {
+        int inicio = e.getOffset();
+        int fin = inicio + e.getLength();
+        // Lo pendiente dentro del texto borrado queda en el punto de borrado
+        finPendiente = finPendiente > fin ? finPendiente - e.getLength() : Math.min(finPendiente, inicio);
+        inicioPendiente = inicioPendiente > fin ? inicioPendiente - e.getLength() : Math.min(inicioPendiente, inicio);
+        registrarCambio(inicio, inicio);
+    }
+
+    @Override
+    public void changedUpdate(DocumentEvent e) {
+        // Solo cambian atributos, no el texto
+    }
+
+    /**
+     * Deja de validar y quita los resaltados
+     */
+    void detener() {
+        temporizador.stop();
+        area.getDocument().removeDocumentListener(this);
+        for (Object marca : marcas) {
+            area.getHighlighter().removeHighlight(marca);
+        }
+        marcas.clear();
+    }
+
+    /**
+     * Número de palabras resaltadas como no válidas
+     */
+    int contarErrores() {
+        return marcas.size();
+    }
+
+    /**
+     * Revisa ya la zona pendiente sin esperar al temporizador
+     */
+    void revisarPendiente() {
+        temporizador.stop();
+        if (inicioPendiente == SIN_CAMBIOS) {
+            return;
+        }
+        Document documento = area.getDocument();
+        int longitud = documento.getLength();
+        int inicio = Math.min(inicioPendiente, longitud);
+        int fin = Math.min(Math.max(finPendiente, inicio), longitud);
+        inicioPendiente = SIN_CAMBIOS;
+        finPendiente = SIN_CAMBIOS;
+
+        // Se leen las líneas afectadas; dentro de ellas solo las palabras que tocan la zona
+        Element lineas = documento.getDefaultRootElement();
+        int inicioLineas = lineas.getElement(lineas.getElementIndex(inicio)).getStartOffset();
+        int finLineas = Math.min(lineas.getElement(lineas.getElementIndex(fin)).getEndOffset(), longitud);
+        try {
+            documento.getText(inicioLineas, finLineas - inicioLineas, segmento);
+        } catch (BadLocationException e) {
+            return;
+        }
+        int desde = inicio - inicioLineas;
+        while (desde > 0 && !Character.isWhitespace(segmento.charAt(desde - 1))) {
+            desde--;
+        }
+        int hasta = fin - inicioLineas;
+        while (hasta < segmento.length() && !Character.isWhitespace(segmento.charAt(hasta))) {
+            hasta++;
+        }
+
+        quitarMarcas(inicioLineas + desde, inicioLineas + hasta);
+        marcarPalabras(inicioLineas, desde, hasta);
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    /**
+     * Amplía la zona pendiente y vuelve a esperar a que se deje de escribir
+     */
+    private void registrarCambio(int inicio, int fin) {
+        if (inicioPendiente == SIN_CAMBIOS) {
+            inicioPendiente = inicio;
+            finPendiente = fin;
+        } else {
+            inicioPendiente = Math.min(inicioPendiente, inicio);
+            finPendiente = Math.max(finPendiente, fin);
+        }
+        temporizador.restart();
+    }
+
+    /**
+     * Quita los resaltados que tocan [inicio, fin]
+     */
+    private void quitarMarcas(int inicio, int fin) {
+        Highlighter resaltador = area.getHighlighter();
+        Iterator<Object> iterador = marcas.iterator();
+        while (iterador.hasNext()) {
+            Object marca = iterador.next();
+            Highlighter.Highlight resaltado = (Highlighter.Highlight) marca;
+            if (resaltado.getEndOffset() >= inicio && resaltado.getStartOffset() <= fin) {
+                resaltador.removeHighlight(marca);
+                iterador.remove();
+            }
+        }
+    }
+
+    /**
+     * Resalta las palabras no válidas de segmento[desde, hasta)
+     * @param base Posición en el documento del primer carácter del segmento
+     */
+    private void marcarPalabras(int base, int desde, int hasta) {
+        Highlighter resaltador = area.getHighlighter();
+        int i = desde;
+        while (i < hasta) {
+            while (i < hasta && Character.isWhitespace(segmento.charAt(i))) {
+                i++;
+            }
+            int inicioPalabra = i;
+            while (i < hasta && !Character.isWhitespace(segmento.charAt(i))) {
+                i++;
+            }
+            if (i > inicioPalabra && !esPalabraValida(segmento, inicioPalabra, i)) {
+                try {
+                    marcas.add(resaltador.addHighlight(base + inicioPalabra, base + i, pintor));
+                } catch (BadLocationException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Indica si texto[inicio, fin) es un número de turno, una jugada SAN, ambos
+     * pegados, o un resultado
+     */
+    static boolean esPalabraValida(CharSequence texto, int inicio, int fin) {
+        // Número de turno positivo seguido de uno o más puntos
+        int i = inicio;
+        boolean positivo = false;
+        while (i < fin && texto.charAt(i) >= '0' && texto.charAt(i) <= '9') {
+            positivo |= texto.charAt(i) != '0';
+            i++;
+        }
+        if (i > inicio && i < fin && texto.charAt(i) == '.') {
+            if (!positivo) {
+                return false;
+            }
+            while (i < fin && texto.charAt(i) == '.') {
+                i++;
+            }
+            return i == fin || ValidadorSAN.clasificar(texto, i, fin) != ValidadorSAN.INVALIDA;
+        }
+
+        return ValidadorSAN.clasificar(texto, inicio, fin) != ValidadorSAN.INVALIDA
+                || esResultado(texto, inicio, fin);
+    }
+
+    private static boolean esResultado(CharSequence texto, int inicio, int fin) {
+        return igual(texto, inicio, fin, "1-0") || igual(texto, inicio, fin, "0-1")
+                || igual(texto, inicio, fin, "1/2-1/2") || igual(texto, inicio, fin, "*");
+    }
+
+    private static boolean igual(CharSequence texto, int inicio, int fin, String palabra) {
+        if (fin - inicio != palabra.length()) {
+            return false;
+        }
+        for (int i = 0; i < palabra.length(); i++) {
+            if (texto.charAt(inicio + i) != palabra.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
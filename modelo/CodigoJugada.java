@@ -0,0 +1,282 @@
+package modelo;
+
+import util.ValidadorSAN;
+
+/**
+ * Representación compacta de una jugada SAN en un int
+ *
+ * Distribución de los bits:
+ * <pre>
+ *   0-5   casilla de destino (a1 = 0, b1 = 1, ..., h8 = 63)
+ *   6-8   pieza (PEON..REY) o ENROQUE_CORTO / ENROQUE_LARGO
+ *   9-12  columna de origen indicada + 1 (0 si no se indica)
+ *   13-16 fila de origen indicada + 1 (0 si no se indica)
+ *   17    captura
+ *   18-20 pieza de promoción (0 si no hay promoción)
+ *   21    jaque
+ *   22    mate
+ * </pre>
+ * La desambiguación se guarda tal como aparece (columna, fila o ambas), por lo
+ * que la notación original se puede reconstruir exactamente.
+ */
+public class CodigoJugada {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Valor para notaciones que no se pueden codificar (inválidas o con desambiguación poco habitual)
+    public static final int SIN_CODIGO = -1;
+
+    // Piezas
+    public static final int PEON = 0;
+    public static final int CABALLO = 1;
+    public static final int ALFIL = 2;
+    public static final int TORRE = 3;
+    public static final int DAMA = 4;
+    public static final int REY = 5;
+    public static final int ENROQUE_CORTO = 6;
+    public static final int ENROQUE_LARGO = 7;
+
+    // Marcas
+    public static final int CAPTURA = 1 << 17;
+    public static final int JAQUE = 1 << 21;
+    public static final int MATE = 1 << 22;
+
+    // Longitud máxima de una notación decodificada (por ejemplo "Qa1xb2=Q#")
+    public static final int LONGITUD_MAXIMA = 9;
+
+    private static final int DESPLAZAMIENTO_PIEZA = 6;
+    private static final int DESPLAZAMIENTO_COLUMNA_ORIGEN = 9;
+    private static final int DESPLAZAMIENTO_FILA_ORIGEN = 13;
+    private static final int DESPLAZAMIENTO_PROMOCION = 18;
+
+    // Letras de las piezas indexadas por su código
+    private static final String LETRAS_PIEZA = " NBRQK";
+
+    //-------------------------
+    // CODIFICACIÓN
+    //-------------------------
+
+    /**
+     * Codifica una notación SAN completa
+     * @return Código de la jugada o SIN_CODIGO
+     */
+    public static int codificar(CharSequence notacion) {
+        if (notacion == null) {
+            return SIN_CODIGO;
+        }
+        return codificar(notacion, 0, notacion.length());
+    }
+
+    /**
+     * Codifica la jugada contenida en notacion[inicio, fin)
+     * @return Código de la jugada o SIN_CODIGO
+     */
+    public static int codificar(CharSequence notacion, int inicio, int fin) {
+        return codificar(notacion, inicio, fin, ValidadorSAN.clasificar(notacion, inicio, fin));
+    }
+
+    /**
+     * Codifica una jugada ya clasificada con ValidadorSAN, sin volver a validarla
+     * @param clasificacion Resultado de ValidadorSAN.clasificar para el mismo rango
+     * @return Código de la jugada o SIN_CODIGO
+     */
+    public static int codificar(CharSequence notacion, int inicio, int fin, int clasificacion) {
+        if (clasificacion == ValidadorSAN.INVALIDA) {
+            return SIN_CODIGO;
+        }
+
+        if (ValidadorSAN.tipo(clasificacion) == ValidadorSAN.TIPO_ENROQUE) {
+            int pieza = ValidadorSAN.tiene(clasificacion, ValidadorSAN.ENROQUE_LARGO) ? ENROQUE_LARGO : ENROQUE_CORTO;
+            return pieza << DESPLAZAMIENTO_PIEZA;
+        }
+
+        int codigo = 0;
+        int pos = fin - 1;
+
+        if (ValidadorSAN.tiene(clasificacion, ValidadorSAN.JAQUE)) {
+            codigo |= JAQUE;
+            pos--;
+        } else if (ValidadorSAN.tiene(clasificacion, ValidadorSAN.MATE)) {
+            codigo |= MATE;
+            pos--;
+        }
+
+        if (ValidadorSAN.tiene(clasificacion, ValidadorSAN.PROMOCION)) {
+            codigo |= piezaDeLetra(notacion.charAt(pos)) << DESPLAZAMIENTO_PROMOCION;
+            pos -= 2;
+        }
+
+        codigo |= casilla(notacion.charAt(pos - 1), notacion.charAt(pos));
+        pos -= 2;
+
+        if (ValidadorSAN.tiene(clasificacion, ValidadorSAN.CAPTURA)) {
+            codigo |= CAPTURA;
+            pos--;
+        }
+
+        int desde = inicio;
+        if (ValidadorSAN.tipo(clasificacion) == ValidadorSAN.TIPO_PIEZA) {
+            codigo |= piezaDeLetra(notacion.charAt(inicio)) << DESPLAZAMIENTO_PIEZA;
+            desde++;
+        }
+
+        // Desambiguación: nada, columna, fila o columna y fila, en ese orden
+        int restantes = pos - desde + 1;
+        if (restantes == 0) {
+            return codigo;
+        }
+        char primero = notacion.charAt(desde);
+        if (restantes == 1) {
+            if (esColumna(primero)) {
+                return codigo | (primero - 'a' + 1) << DESPLAZAMIENTO_COLUMNA_ORIGEN;
+            }
+            return codigo | (primero - '1' + 1) << DESPLAZAMIENTO_FILA_ORIGEN;
+        }
+        char segundo = notacion.charAt(desde + 1);
+        if (esColumna(primero) && !esColumna(segundo)) {
+            return codigo
+                    | (primero - 'a' + 1) << DESPLAZAMIENTO_COLUMNA_ORIGEN
+                    | (segundo - '1' + 1) << DESPLAZAMIENTO_FILA_ORIGEN;
+        }
+
+        // Formas como "Nff3" o "N1a3" las acepta la gramática pero no tienen código
+        return SIN_CODIGO;
+    }
+
+    /**
+     * Reconstruye la notación SAN de un código
+     */
+    public static String decodificar(int codigo) {
+        char[] texto = new char[LONGITUD_MAXIMA];
+        return new String(texto, 0, decodificar(codigo, texto, 0));
+    }
+
+    /**
+     * Escribe la notación SAN de un código en un arreglo, sin crear un String
+     * @param texto Arreglo con al menos LONGITUD_MAXIMA posiciones libres desde inicio
+     * @return Número de caracteres escritos
+     */
+    public static int decodificar(int codigo, char[] texto, int inicio) {
+        int pieza = pieza(codigo);
+        int posicion = inicio;
+        if (pieza == ENROQUE_CORTO || pieza == ENROQUE_LARGO) {
+            texto[posicion++] = 'O';
+            texto[posicion++] = '-';
+            texto[posicion++] = 'O';
+            if (pieza == ENROQUE_LARGO) {
+                texto[posicion++] = '-';
+                texto[posicion++] = 'O';
+            }
+            return posicion - inicio;
+        }
+
+        if (pieza != PEON) {
+            texto[posicion++] = LETRAS_PIEZA.charAt(pieza);
+        }
+        if (columnaOrigen(codigo) >= 0) {
+            texto[posicion++] = (char) ('a' + columnaOrigen(codigo));
+        }
+        if (filaOrigen(codigo) >= 0) {
+            texto[posicion++] = (char) ('1' + filaOrigen(codigo));
+        }
+        if (esCaptura(codigo)) {
+            texto[posicion++] = 'x';
+        }
+        texto[posicion++] = (char) ('a' + destino(codigo) % 8);
+        texto[posicion++] = (char) ('1' + destino(codigo) / 8);
+        if (promocion(codigo) != PEON) {
+            texto[posicion++] = '=';
+            texto[posicion++] = LETRAS_PIEZA.charAt(promocion(codigo));
+        }
+        if (esMate(codigo)) {
+            texto[posicion++] = '#';
+        } else if (esJaque(codigo)) {
+            texto[posicion++] = '+';
+        }
+        return posicion - inicio;
+    }
+
+    //-------------------------
+    // CAMPOS
+    //-------------------------
+
+    public static int destino(int codigo) {
+        return codigo & 0x3F;
+    }
+
+    public static int pieza(int codigo) {
+        return (codigo >>> DESPLAZAMIENTO_PIEZA) & 0x7;
+    }
+
+    /**
+     * @return Columna de origen indicada (0 = a) o -1 si no se indica
+     */
+    public static int columnaOrigen(int codigo) {
+        return ((codigo >>> DESPLAZAMIENTO_COLUMNA_ORIGEN) & 0xF) - 1;
+    }
+
+    /**
+     * @return Fila de origen indicada (0 = fila 1) o -1 si no se indica
+     */
+    public static int filaOrigen(int codigo) {
+        return ((codigo >>> DESPLAZAMIENTO_FILA_ORIGEN) & 0xF) - 1;
+    }
+
+    /**
+     * @return Pieza de promoción, o PEON si no hay promoción
+     */
+    public static int promocion(int codigo) {
+        return (codigo >>> DESPLAZAMIENTO_PROMOCION) & 0x7;
+    }
+
+    /**
+     * Mismo código con otra desambiguación
+     * @param columna Columna de origen (0 = a) o -1 para no indicarla
+     * @param fila Fila de origen (0 = fila 1) o -1 para no indicarla
+     */
+    public static int conOrigen(int codigo, int columna, int fila) {
+        int sinOrigen = codigo & ~(0xFF << DESPLAZAMIENTO_COLUMNA_ORIGEN);
+        return sinOrigen | (columna + 1) << DESPLAZAMIENTO_COLUMNA_ORIGEN | (fila + 1) << DESPLAZAMIENTO_FILA_ORIGEN;
+    }
+
+    public static boolean esEnroque(int codigo) {
+        return pieza(codigo) >= ENROQUE_CORTO;
+    }
+
+    public static boolean esCaptura(int codigo) {
+        return (codigo & CAPTURA) != 0;
+    }
+
+    public static boolean esJaque(int codigo) {
+        return (codigo & JAQUE) != 0;
+    }
+
+    public static boolean esMate(int codigo) {
+        return (codigo & MATE) != 0;
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private static int casilla(char columna, char fila) {
+        return (fila - '1') * 8 + (columna - 'a');
+    }
+
+    private static boolean esColumna(char c) {
+        return c >= 'a' && c <= 'h';
+    }
+
+    private static int piezaDeLetra(char letra) {
+        switch (letra) {
+            case 'N': return CABALLO;
+            case 'B': return ALFIL;
+            case 'R': return TORRE;
+            case 'Q': return DAMA;
+            case 'K': return REY;
+            default: return PEON;
+        }
+    }
+}
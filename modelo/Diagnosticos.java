@@ -0,0 +1,233 @@
+package modelo;
+
+import java.util.Arrays;
+
+/**
+ * Búfer reutilizable de errores encontrados al validar una partida
+ *
+ * Cada error se guarda como un código, el número de turno, el color y la posición
+ * del carácter en la entrada, junto con una copia del texto del token afectado.
+ * Los mensajes solo se construyen cuando se piden con mensaje(i), de modo que
+ * validar entradas con muchos errores no crea excepciones ni cadenas.
+ */
+public class Diagnosticos {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Códigos de error
+    public static final int NUMERO_TURNO_INVALIDO = 1;
+    public static final int JUGADA_INVALIDA = 2;
+    public static final int SIN_MOVIMIENTO_BLANCAS = 3;
+    public static final int JUGADA_FUERA_DE_TURNO = 4;
+    public static final int SIN_TURNOS = 5;
+    public static final int JUGADA_ILEGAL = 6;
+    public static final int JUGADA_AMBIGUA = 7;
+
+    // Colores
+    public static final int NINGUNO = 0;
+    public static final int BLANCAS = 1;
+    public static final int NEGRAS = 2;
+
+    private static final int CAPACIDAD_INICIAL = 8;
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private int[] codigos = new int[CAPACIDAD_INICIAL];
+    private int[] turnos = new int[CAPACIDAD_INICIAL];
+    private int[] colores = new int[CAPACIDAD_INICIAL];
+    private long[] posiciones = new long[CAPACIDAD_INICIAL];
+
+    // Textos de los tokens, guardados uno tras otro en un único arreglo
+    private int[] iniciosTexto = new int[CAPACIDAD_INICIAL];
+    private int[] longitudesTexto = new int[CAPACIDAD_INICIAL];
+    private char[] textos = new char[CAPACIDAD_INICIAL * 8];
+    private int usoTextos;
+
+    private int cantidad;
+    private int maximoErrores;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    /**
+     * Crea un búfer que recoge todos los errores
+     */
+    public Diagnosticos() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Crea un búfer que deja de recoger errores al llegar al máximo indicado
+     * @param maximoErrores 1 para detenerse en el primer error
+     */
+    public Diagnosticos(int maximoErrores) {
+        this.maximoErrores = maximoErrores;
+    }
+
+    //-------------------------
+    // MÉTODOS PÚBLICOS
+    //-------------------------
+
+    /**
+     * Vacía el búfer conservando la memoria reservada
+     */
+    public void limpiar() {
+        cantidad = 0;
+        usoTextos = 0;
+    }
+
+    /**
+     * Registra un error
+     * @param texto Texto que contiene el token afectado (puede ser null)
+     * @param inicio Inicio del token dentro de texto
+     * @param fin Fin del token dentro de texto
+     * @return false si ya se alcanzó el máximo de errores y conviene dejar de validar
+     */
+    public boolean registrar(int codigo, int turno, int color, long posicion,
+                             CharSequence texto, int inicio, int fin) {
+        if (cantidad >= maximoErrores) {
+            return false;
+        }
+        if (cantidad == codigos.length) {
+            ampliarCapacidad();
+        }
+
+        codigos[cantidad] = codigo;
+        turnos[cantidad] = turno;
+        colores[cantidad] = color;
+        posiciones[cantidad] = posicion;
+
+        int longitud = texto == null ? 0 : fin - inicio;
+        if (usoTextos + longitud > textos.length) {
+            char[] nuevo = new char[Math.max(textos.length * 2, usoTextos + longitud)];
+            System.arraycopy(textos, 0, nuevo, 0, usoTextos);
+            textos = nuevo;
+        }
+        for (int i = 0; i < longitud; i++) {
+            textos[usoTextos + i] = texto.charAt(inicio + i);
+        }
+        iniciosTexto[cantidad] = usoTextos;
+        longitudesTexto[cantidad] = longitud;
+        usoTextos += longitud;
+
+        cantidad++;
+        return cantidad < maximoErrores;
+    }
+
+    /**
+     * Indica si se puede seguir registrando errores
+     */
+    public boolean admiteMas() {
+        return cantidad < maximoErrores;
+    }
+
+    public int contar() {
+        return cantidad;
+    }
+
+    public boolean hayErrores() {
+        return cantidad > 0;
+    }
+
+    public int obtenerCodigo(int indice) {
+        return codigos[comprobar(indice)];
+    }
+
+    public int obtenerTurno(int indice) {
+        return turnos[comprobar(indice)];
+    }
+
+    public int obtenerColor(int indice) {
+        return colores[comprobar(indice)];
+    }
+
+    /**
+     * Posición del primer carácter del token afectado dentro de la entrada
+     */
+    public long obtenerPosicion(int indice) {
+        return posiciones[comprobar(indice)];
+    }
+
+    /**
+     * Texto del token afectado
+     */
+    public String obtenerTexto(int indice) {
+        comprobar(indice);
+        return new String(textos, iniciosTexto[indice], longitudesTexto[indice]);
+    }
+
+    /**
+     * Construye el mensaje de un error
+     */
+    public String mensaje(int indice) {
+        return formatear(obtenerCodigo(indice), obtenerTurno(indice), obtenerColor(indice), obtenerTexto(indice));
+    }
+
+    /**
+     * Construye el mensaje de un error a partir de sus datos
+     */
+    public static String formatear(int codigo, int turno, int color, String texto) {
+        switch (codigo) {
+            case NUMERO_TURNO_INVALIDO:
+                return "El turno tiene un número inválido: " + texto;
+            case JUGADA_INVALIDA:
+                return "En el turno " + turno + ", el movimiento de "
+                        + (color == NEGRAS ? "negras" : "blancas") + " '" + texto + "' no es válido";
+            case SIN_MOVIMIENTO_BLANCAS:
+                return "El turno " + turno + " no tiene movimiento de blancas";
+            case JUGADA_FUERA_DE_TURNO:
+                return "Se encontró la jugada '" + texto + "' fuera de un turno";
+            case JUGADA_ILEGAL:
+                return "En el turno " + turno + ", el movimiento de "
+                        + (color == NEGRAS ? "negras" : "blancas") + " '" + texto + "' no es legal en la posición";
+            case JUGADA_AMBIGUA:
+                return "En el turno " + turno + ", el movimiento de "
+                        + (color == NEGRAS ? "negras" : "blancas") + " '" + texto + "' es ambiguo";
+            case SIN_TURNOS:
+                return "No se encontró ningún turno en el texto";
+            default:
+                return "Error desconocido (" + codigo + ")";
+        }
+    }
+
+    /**
+     * Lista todos los errores con su posición
+     */
+    @Override
+    public String toString() {
+        StringBuilder texto = new StringBuilder();
+        for (int i = 0; i < cantidad; i++) {
+            if (i > 0) {
+                texto.append('\n');
+            }
+            texto.append("[").append(posiciones[i]).append("] ").append(mensaje(i));
+        }
+        return texto.toString();
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private int comprobar(int indice) {
+        if (indice < 0 || indice >= cantidad) {
+            throw new IllegalArgumentException("Índice de error fuera de rango: " + indice);
+        }
+        return indice;
+    }
+
+    private void ampliarCapacidad() {
+        int nuevaCapacidad = codigos.length * 2;
+        codigos = Arrays.copyOf(codigos, nuevaCapacidad);
+        turnos = Arrays.copyOf(turnos, nuevaCapacidad);
+        colores = Arrays.copyOf(colores, nuevaCapacidad);
+        posiciones = Arrays.copyOf(posiciones, nuevaCapacidad);
+        iniciosTexto = Arrays.copyOf(iniciosTexto, nuevaCapacidad);
+        longitudesTexto = Arrays.copyOf(longitudesTexto, nuevaCapacidad);
+    }
+}
@@ -0,0 +1,480 @@
+package modelo;
+
+import java.util.Arrays;
+
+/**
+ * Índice invertido de las características de las jugadas de muchas partidas
+ *
+ * Cada jugada (medio movimiento) de cada partida recibe un identificador global
+ * consecutivo, y cada característica de la jugada (tipo de pieza o enroque,
+ * casilla de destino, captura, jaque, mate, pieza de promoción y bando) es un
+ * término con la lista ordenada de las jugadas que la tienen. Las listas se
+ * guardan comprimidas como diferencias en bytes de longitud variable, con un
+ * punto de salto cada BLOQUE entradas, de modo que una consulta AND avanza por
+ * las listas largas sin descomprimirlas enteras.
+ *
+ * Ejemplo: jugadas en las que las negras enrocan largo antes de la jugada 10
+ * <pre>
+ *   int[] jugadas = indice.buscarTodas(IndiceJugadas.NEGRAS, IndiceJugadas.tipo(CodigoJugada.ENROQUE_LARGO));
+ *   int[] partidas = indice.obtenerPartidas(indice.filtrarJugadas(jugadas, 1, 18));
+ * </pre>
+ * Las jugadas sin código compacto solo se indexan por bando.
+ */
+public class IndiceJugadas {
+
+    //-------------------------
+    // TÉRMINOS
+    //-------------------------
+
+    // Tipos de jugada: CodigoJugada.PEON..REY, ENROQUE_CORTO y ENROQUE_LARGO
+    private static final int PRIMER_TIPO = 0;
+    private static final int PRIMER_DESTINO = 8;
+
+    public static final int CAPTURA = 72;
+    public static final int JAQUE = 73;
+    public static final int MATE = 74;
+
+    private static final int PRIMERA_PROMOCION = 75;
+
+    public static final int BLANCAS = 80;
+    public static final int NEGRAS = 81;
+
+    public static final int NUMERO_TERMINOS = 82;
+
+    /**
+     * Término de las jugadas de una pieza o de un enroque
+     * @param pieza CodigoJugada.PEON..REY, ENROQUE_CORTO o ENROQUE_LARGO
+     */
+    public static int tipo(int pieza) {
+        return PRIMER_TIPO + pieza;
+    }
+
+    /**
+     * Término de las jugadas que terminan en una casilla (a1 = 0 ... h8 = 63)
+     */
+    public static int destino(int casilla) {
+        return PRIMER_DESTINO + casilla;
+    }
+
+    /**
+     * Término de las promociones a una pieza (CodigoJugada.CABALLO..DAMA)
+     */
+    public static int promocion(int pieza) {
+        return PRIMERA_PROMOCION + pieza;
+    }
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Entradas entre dos puntos de salto de una lista
+    private static final int BLOQUE = 32;
+
+    private static final int CAPACIDAD_INICIAL = 1024;
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private final ListaComprimida[] listas = new ListaComprimida[NUMERO_TERMINOS];
+
+    // Identificador de la primera jugada de cada partida
+    private int[] inicioPartidas = new int[CAPACIDAD_INICIAL];
+    private int numeroPartidas;
+    private int numeroJugadas;
+
+    // Términos de la jugada que se está indexando
+    private final int[] terminos = new int[8];
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    public IndiceJugadas() {
+        for (int i = 0; i < NUMERO_TERMINOS; i++) {
+            listas[i] = new ListaComprimida();
+        }
+    }
+
+    //-------------------------
+    // CONSTRUCCIÓN
+    //-------------------------
+
+    /**
+     * Añade las jugadas de una partida al índice
+     * @return Identificador de la partida dentro del índice (0, 1, 2...)
+     */
+    public int agregarPartida(Partida partida) {
+        if (numeroPartidas == inicioPartidas.length) {
+            inicioPartidas = Arrays.copyOf(inicioPartidas, numeroPartidas * 2);
+        }
+        inicioPartidas[numeroPartidas] = numeroJugadas;
+
+        for (int i = 0; i < partida.contarTurnos(); i++) {
+            agregarJugada(partida.obtenerCodigoBlancas(i), BLANCAS);
+            agregarJugada(partida.obtenerCodigoNegras(i), NEGRAS);
+        }
+        return numeroPartidas++;
+    }
+
+    public int contarPartidas() {
+        return numeroPartidas;
+    }
+
+    /**
+     * Número total de jugadas indexadas
+     */
+    public int contarJugadas() {
+        return numeroJugadas;
+    }
+
+    /**
+     * Número de jugadas que tienen un término
+     */
+    public int contarJugadas(int termino) {
+        return listas[termino].cantidad;
+    }
+
+    /**
+     * Bytes ocupados por las listas comprimidas
+     */
+    public long contarBytes() {
+        long bytes = 0;
+        for (ListaComprimida lista : listas) {
+            bytes += lista.tamano;
+        }
+        return bytes;
+    }
+
+    //-------------------------
+    // CONSULTAS
+    //-------------------------
+
+    /**
+     * Jugadas que tienen todos los términos (AND), en orden creciente
+     */
+    public int[] buscarTodas(int... terminos) {
+        if (terminos.length == 0) {
+            return new int[0];
+        }
+
+        // Recorrer la lista más corta y buscar cada candidata en las demás
+        Cursor[] cursores = new Cursor[terminos.length];
+        for (int i = 0; i < terminos.length; i++) {
+            cursores[i] = new Cursor(listas[terminos[i]]);
+        }
+        Arrays.sort(cursores, (a, b) -> Integer.compare(a.lista.cantidad, b.lista.cantidad));
+
+        Resultados resultados = new Resultados();
+        Cursor guia = cursores[0];
+        int candidata = guia.siguiente();
+        while (candidata >= 0) {
+            int maxima = candidata;
+            for (int i = 1; i < cursores.length && maxima == candidata; i++) {
+                maxima = cursores[i].avanzarHasta(candidata);
+                if (maxima < 0) {
+                    return resultados.obtener();
+                }
+            }
+            if (maxima == candidata) {
+                resultados.agregar(candidata);
+                candidata = guia.siguiente();
+            } else {
+                candidata = guia.avanzarHasta(maxima);
+            }
+        }
+        return resultados.obtener();
+    }
+
+    /**
+     * Jugadas que tienen al menos uno de los términos (OR), en orden creciente
+     */
+    public int[] buscarAlguna(int... terminos) {
+        int[] resultado = new int[0];
+        for (int termino : terminos) {
+            resultado = union(resultado, listas[termino].descomprimir());
+        }
+        return resultado;
+    }
+
+    /**
+     * Jugadas de ambas listas ordenadas (AND entre resultados de consultas)
+     */
+    public static int[] interseccion(int[] a, int[] b) {
+        Resultados resultados = new Resultados();
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                resultados.agregar(a[i]);
+                i++;
+                j++;
+            }
+        }
+        return resultados.obtener();
+    }
+
+    /**
+     * Jugadas de alguna de las dos listas ordenadas, sin repetir (OR entre resultados)
+     */
+    public static int[] union(int[] a, int[] b) {
+        int[] resultado = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length || j < b.length) {
+            if (j == b.length || (i < a.length && a[i] < b[j])) {
+                resultado[n++] = a[i++];
+            } else if (i == a.length || b[j] < a[i]) {
+                resultado[n++] = b[j++];
+            } else {
+                resultado[n++] = a[i++];
+                j++;
+            }
+        }
+        return n == resultado.length ? resultado : Arrays.copyOf(resultado, n);
+    }
+
+    /**
+     * Conserva las jugadas cuyo número dentro de su partida está en [primera, ultima]
+     * @param jugadas Identificadores ordenados, como los que devuelven las búsquedas
+     * @param primera Primer medio movimiento admitido (1 es la primera jugada blanca)
+     * @param ultima Último medio movimiento admitido
+     */
+    public int[] filtrarJugadas(int[] jugadas, int primera, int ultima) {
+        Resultados resultados = new Resultados();
+        int partida = 0;
+        for (int jugada : jugadas) {
+            partida = buscarPartida(jugada, partida);
+            int numero = jugada - inicioPartidas[partida] + 1;
+            if (numero >= primera && numero <= ultima) {
+                resultados.agregar(jugada);
+            }
+        }
+        return resultados.obtener();
+    }
+
+    /**
+     * Partidas distintas a las que pertenecen unas jugadas ordenadas
+     */
+    public int[] obtenerPartidas(int[] jugadas) {
+        Resultados resultados = new Resultados();
+        int partida = 0;
+        int ultima = -1;
+        for (int jugada : jugadas) {
+            partida = buscarPartida(jugada, partida);
+            if (partida != ultima) {
+                resultados.agregar(partida);
+                ultima = partida;
+            }
+        }
+        return resultados.obtener();
+    }
+
+    /**
+     * Partida a la que pertenece una jugada
+     */
+    public int obtenerPartida(int jugada) {
+        if (jugada < 0 || jugada >= numeroJugadas) {
+            throw new IllegalArgumentException("Jugada fuera de rango: " + jugada);
+        }
+        return buscarPartida(jugada, 0);
+    }
+
+    /**
+     * Número de medio movimiento de una jugada dentro de su partida, empezando en 1
+     */
+    public int obtenerNumeroJugada(int jugada) {
+        return jugada - inicioPartidas[obtenerPartida(jugada)] + 1;
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private void agregarJugada(int codigo, int bando) {
+        if (codigo == Partida.SIN_JUGADA) {
+            return;
+        }
+        int cantidad = 0;
+        terminos[cantidad++] = bando;
+        if (codigo != CodigoJugada.SIN_CODIGO) {
+            int pieza = CodigoJugada.pieza(codigo);
+            terminos[cantidad++] = tipo(pieza);
+            if (!CodigoJugada.esEnroque(codigo)) {
+                terminos[cantidad++] = destino(CodigoJugada.destino(codigo));
+            }
+            if (CodigoJugada.esCaptura(codigo)) {
+                terminos[cantidad++] = CAPTURA;
+            }
+            if (CodigoJugada.esMate(codigo)) {
+                terminos[cantidad++] = MATE;
+            } else if (CodigoJugada.esJaque(codigo)) {
+                terminos[cantidad++] = JAQUE;
+            }
+            if (CodigoJugada.promocion(codigo) != CodigoJugada.PEON) {
+                terminos[cantidad++] = promocion(CodigoJugada.promocion(codigo));
+            }
+        }
+        for (int i = 0; i < cantidad; i++) {
+            listas[terminos[i]].agregar(numeroJugadas);
+        }
+        numeroJugadas++;
+    }
+
+    /**
+     * Busca la partida de una jugada empezando por una partida que no la supera
+     */
+    private int buscarPartida(int jugada, int desde) {
+        int bajo = desde;
+        int alto = numeroPartidas - 1;
+        while (bajo < alto) {
+            int medio = (bajo + alto + 1) >>> 1;
+            if (inicioPartidas[medio] <= jugada) {
+                bajo = medio;
+            } else {
+                alto = medio - 1;
+            }
+        }
+        return bajo;
+    }
+
+    //-------------------------
+    // LISTAS COMPRIMIDAS
+    //-------------------------
+
+    /**
+     * Lista creciente de identificadores guardada como diferencias en bytes de
+     * longitud variable (7 bits por byte), con un punto de salto cada BLOQUE entradas
+     */
+    private static class ListaComprimida {
+        private byte[] datos = new byte[16];
+        private int tamano;
+        private int cantidad;
+        private int ultimo;
+
+        // Por bloque: valor anterior a su primera entrada y posición de esta en datos
+        private int[] saltosValor = new int[4];
+        private int[] saltosPosicion = new int[4];
+
+        void agregar(int valor) {
+            if (cantidad % BLOQUE == 0) {
+                int bloque = cantidad / BLOQUE;
+                if (bloque == saltosValor.length) {
+                    saltosValor = Arrays.copyOf(saltosValor, bloque * 2);
+                    saltosPosicion = Arrays.copyOf(saltosPosicion, bloque * 2);
+                }
+                saltosValor[bloque] = ultimo;
+                saltosPosicion[bloque] = tamano;
+            }
+            if (tamano + 5 > datos.length) {
+                datos = Arrays.copyOf(datos, datos.length * 2);
+            }
+
+            int diferencia = valor - ultimo;
+            while ((diferencia & ~0x7F) != 0) {
+                datos[tamano++] = (byte) (diferencia & 0x7F | 0x80);
+                diferencia >>>= 7;
+            }
+            datos[tamano++] = (byte) diferencia;
+            ultimo = valor;
+            cantidad++;
+        }
+
+        int[] descomprimir() {
+            int[] valores = new int[cantidad];
+            Cursor cursor = new Cursor(this);
+            for (int i = 0; i < cantidad; i++) {
+                valores[i] = cursor.siguiente();
+            }
+            return valores;
+        }
+    }
+
+    /**
+     * Lectura secuencial de una lista comprimida
+     */
+    private static class Cursor {
+        final ListaComprimida lista;
+        private int posicion;
+        private int indice;
+        private int valor;
+
+        Cursor(ListaComprimida lista) {
+            this.lista = lista;
+        }
+
+        /**
+         * @return Siguiente valor, o -1 si la lista se ha terminado
+         */
+        int siguiente() {
+            if (indice == lista.cantidad) {
+                return -1;
+            }
+            byte[] datos = lista.datos;
+            int diferencia = 0;
+            int desplazamiento = 0;
+            byte b;
+            do {
+                b = datos[posicion++];
+                diferencia |= (b & 0x7F) << desplazamiento;
+                desplazamiento += 7;
+            } while (b < 0);
+            indice++;
+            valor += diferencia;
+            return valor;
+        }
+
+        /**
+         * Avanza hasta el primer valor mayor o igual que el objetivo, saltando bloques enteros
+         * @return Ese valor, o -1 si no hay ninguno
+         */
+        int avanzarHasta(int objetivo) {
+            if (indice > 0 && valor >= objetivo) {
+                return valor;
+            }
+
+            // Saltar al último bloque cuyo valor anterior sea menor que el objetivo
+            int bloqueActual = indice / BLOQUE;
+            int bloques = (lista.cantidad + BLOQUE - 1) / BLOQUE;
+            int bloque = bloqueActual;
+            while (bloque + 1 < bloques && lista.saltosValor[bloque + 1] < objetivo) {
+                bloque++;
+            }
+            if (bloque > bloqueActual) {
+                indice = bloque * BLOQUE;
+                posicion = lista.saltosPosicion[bloque];
+                valor = lista.saltosValor[bloque];
+            }
+
+            int siguiente;
+            do {
+                siguiente = siguiente();
+            } while (siguiente >= 0 && siguiente < objetivo);
+            return siguiente;
+        }
+    }
+
+    /**
+     * Arreglo de enteros que crece a medida que se añaden resultados
+     */
+    private static class Resultados {
+        private int[] valores = new int[16];
+        private int cantidad;
+
+        void agregar(int valor) {
+            if (cantidad == valores.length) {
+                valores = Arrays.copyOf(valores, cantidad * 2);
+            }
+            valores[cantidad++] = valor;
+        }
+
+        int[] obtener() {
+            return Arrays.copyOf(valores, cantidad);
+        }
+    }
+}
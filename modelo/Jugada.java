@@ -2,17 +2,37 @@ package modelo;
 
 public class Jugada {
     private String notacion;
+    private int codigo;
 
     public Jugada(String notacion) {
         this.notacion = notacion;
+        this.codigo = CodigoJugada.codificar(notacion);
+    }
+
+    /**
+     * Crea una jugada a partir de su código compacto; la notación se genera al pedirla
+     */
+    public Jugada(int codigo) {
+        this.notacion = null;
+        this.codigo = codigo;
     }
 
     public String getNotacion() {
+        if (notacion == null) {
+            notacion = CodigoJugada.decodificar(codigo);
+        }
         return notacion;
     }
 
+    /**
+     * Obtiene el código compacto de la jugada (CodigoJugada.SIN_CODIGO si no tiene)
+     */
+    public int getCodigo() {
+        return codigo;
+    }
+
     @Override
     public String toString() {
-        return notacion;
+        return getNotacion();
     }
 }
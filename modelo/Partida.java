@@ -6,6 +6,10 @@ import java.util.List;
 /**
  * Almacena una partida completa de ajedrez
  * Esta clase organiza todos los movimientos por turnos
+ *
+ * Las jugadas se guardan como códigos compactos (ver CodigoJugada) en arreglos de
+ * enteros, dos posiciones por turno. Los objetos Turno y Jugada que devuelven los
+ * métodos de consulta son vistas creadas solo cuando se piden.
  */
 public class Partida {
     //-------------------------
@@ -15,6 +19,18 @@ public class Partida {
     // Número inicial de turnos reservados en memoria
     private static final int CAPACIDAD_INICIAL = 40;
 
+    // Resultado de la partida según su marca final (1-0, 0-1, 1/2-1/2, *)
+    public static final int RESULTADO_DESCONOCIDO = 0;
+    public static final int VICTORIA_BLANCAS = 1;
+    public static final int VICTORIA_NEGRAS = 2;
+    public static final int TABLAS = 3;
+
+    // Valor guardado cuando un turno no tiene jugada de ese color
+    public static final int SIN_JUGADA = -2;
+
+    // Marca de las jugadas guardadas como texto (sin código compacto)
+    private static final int MARCA_LITERAL = 1 << 30;
+
     //-------------------------
     // PROPIEDADES
     //-------------------------
@@ -22,8 +38,21 @@ public class Partida {
     // Contador de turnos almacenados
     private int numeroTurnos;
 
-    // Arreglo para almacenar los turnos
-    private Turno[] secuenciaTurnos;
+    // Contador de jugadas (medios movimientos) almacenadas
+    private int numeroJugadas;
+
+    // Número de cada turno tal como aparece en el texto
+    private int[] numerosTurno;
+
+    // Códigos de las jugadas: posición 2*i para blancas y 2*i+1 para negras
+    private int[] codigosJugadas;
+
+    // Notaciones que no tienen código compacto, indexadas desde codigosJugadas
+    private String[] literales;
+    private int numeroLiterales;
+
+    // Resultado indicado en el texto de la partida
+    private int resultado;
 
     //-------------------------
     // CONSTRUCTOR
@@ -33,11 +62,18 @@ public class Partida {
      * Crea una nueva partida vacía
      */
     public Partida() {
-        // Inicializar contador a cero
+        // Inicializar contadores a cero
         this.numeroTurnos = 0;
+        this.numeroJugadas = 0;
+
+        // Crear los arreglos con capacidad para varios turnos
+        this.numerosTurno = new int[CAPACIDAD_INICIAL];
+        this.codigosJugadas = new int[CAPACIDAD_INICIAL * 2];
+        this.literales = null;
+        this.numeroLiterales = 0;
 
-        // Crear el arreglo con capacidad para varios turnos
-        this.secuenciaTurnos = new Turno[CAPACIDAD_INICIAL];
+        // Sin resultado hasta que se lea la marca final
+        this.resultado = RESULTADO_DESCONOCIDO;
     }
 
     //-------------------------
@@ -48,16 +84,62 @@ public class Partida {
      * Añade un nuevo turno a la partida
      */
     public void agregarTurno(Turno nuevoTurno) {
+        agregarTurno(nuevoTurno.obtenerNumero(),
+                guardarJugada(nuevoTurno.getJugadaBlanca()),
+                guardarJugada(nuevoTurno.getJugadaNegra()));
+    }
+
+    /**
+     * Añade un nuevo turno a partir de los códigos de sus jugadas
+     * @param numero Número del turno
+     * @param codigoBlancas Código de la jugada blanca o SIN_JUGADA
+     * @param codigoNegras Código de la jugada negra o SIN_JUGADA
+     */
+    public void agregarTurno(int numero, int codigoBlancas, int codigoNegras) {
+        // Las jugadas sin código deben añadirse como Turno para conservar su texto
+        if (codigoBlancas == CodigoJugada.SIN_CODIGO || codigoNegras == CodigoJugada.SIN_CODIGO) {
+            throw new IllegalArgumentException("Jugada sin código compacto en el turno " + numero);
+        }
+
         // Comprobar si necesitamos más espacio
-        if (numeroTurnos >= secuenciaTurnos.length) {
+        if (numeroTurnos >= numerosTurno.length) {
             ampliarCapacidad();
         }
 
         // Guardar el turno en la siguiente posición
-        secuenciaTurnos[numeroTurnos] = nuevoTurno;
+        numerosTurno[numeroTurnos] = numero;
+        codigosJugadas[2 * numeroTurnos] = codigoBlancas;
+        codigosJugadas[2 * numeroTurnos + 1] = codigoNegras;
 
-        // Incrementar el contador
+        // Incrementar los contadores
         numeroTurnos++;
+        if (codigoBlancas != SIN_JUGADA) numeroJugadas++;
+        if (codigoNegras != SIN_JUGADA) numeroJugadas++;
+    }
+
+    /**
+     * Deja en la partida solo sus primeros turnos
+     * Permite volver a analizar el final de un texto editado sin rehacer el resto.
+     * @param turnos Número de turnos que se conservan
+     */
+    public void truncar(int turnos) {
+        if (turnos < 0 || turnos > numeroTurnos) {
+            throw new IllegalArgumentException("Número de turnos fuera de rango: " + turnos);
+        }
+
+        for (int i = numeroTurnos * 2 - 1; i >= turnos * 2; i--) {
+            int guardado = codigosJugadas[i];
+            if (guardado == SIN_JUGADA) {
+                continue;
+            }
+            numeroJugadas--;
+
+            // Los textos se guardan en orden, así que los de los turnos quitados son los últimos
+            if ((guardado & MARCA_LITERAL) != 0) {
+                literales[--numeroLiterales] = null;
+            }
+        }
+        numeroTurnos = turnos;
     }
 
     /**
@@ -67,9 +149,9 @@ public class Partida {
         // Crear un nuevo arreglo del tamaño exacto
         Turno[] resultado = new Turno[numeroTurnos];
 
-        // Copiar los turnos al nuevo arreglo
+        // Crear la vista de cada turno
         for (int i = 0; i < numeroTurnos; i++) {
-            resultado[i] = secuenciaTurnos[i];
+            resultado[i] = crearVistaTurno(i);
         }
 
         return resultado;
@@ -82,27 +164,86 @@ public class Partida {
         return numeroTurnos;
     }
 
+    /**
+     * Obtiene la cantidad de jugadas (medios movimientos) en la partida
+     */
+    public int contarJugadas() {
+        return numeroJugadas;
+    }
+
     /**
      * Obtiene un turno específico por su índice
      */
     public Turno obtenerTurno(int indice) {
-        // Verificar que el índice sea válido
-        if (indice < 0 || indice >= numeroTurnos) {
-            throw new IllegalArgumentException("Índice de turno fuera de rango: " + indice);
-        }
+        comprobarIndice(indice);
+        return crearVistaTurno(indice);
+    }
+
+    /**
+     * Obtiene el número con el que aparece un turno en el texto
+     */
+    public int obtenerNumeroTurno(int indice) {
+        comprobarIndice(indice);
+        return numerosTurno[indice];
+    }
+
+    /**
+     * Obtiene el código de la jugada blanca de un turno
+     * @return Código, SIN_JUGADA si no hay jugada o CodigoJugada.SIN_CODIGO si solo hay texto
+     */
+    public int obtenerCodigoBlancas(int indice) {
+        comprobarIndice(indice);
+        return codigoPublico(codigosJugadas[2 * indice]);
+    }
+
+    /**
+     * Obtiene el código de la jugada negra de un turno
+     * @return Código, SIN_JUGADA si no hay jugada o CodigoJugada.SIN_CODIGO si solo hay texto
+     */
+    public int obtenerCodigoNegras(int indice) {
+        comprobarIndice(indice);
+        return codigoPublico(codigosJugadas[2 * indice + 1]);
+    }
 
-        return secuenciaTurnos[indice];
+    /**
+     * Obtiene la notación de la jugada blanca de un turno, o null si no hay
+     */
+    public String obtenerNotacionBlancas(int indice) {
+        comprobarIndice(indice);
+        return notacion(codigosJugadas[2 * indice]);
+    }
+
+    /**
+     * Obtiene la notación de la jugada negra de un turno, o null si no hay
+     */
+    public String obtenerNotacionNegras(int indice) {
+        comprobarIndice(indice);
+        return notacion(codigosJugadas[2 * indice + 1]);
+    }
+
+    /**
+     * Obtiene el resultado de la partida
+     */
+    public int obtenerResultado() {
+        return resultado;
+    }
+
+    /**
+     * Establece el resultado de la partida
+     */
+    public void establecerResultado(int resultado) {
+        this.resultado = resultado;
     }
 
     /**
      * Método compatible con el original para obtener turnos como lista
      */
     public List<Turno> getTurnos() {
-        List<Turno> lista = new ArrayList<>();
+        List<Turno> lista = new ArrayList<>(numeroTurnos);
 
-        // Convertir array a lista
+        // Crear la vista de cada turno
         for (int i = 0; i < numeroTurnos; i++) {
-            lista.add(secuenciaTurnos[i]);
+            lista.add(crearVistaTurno(i));
         }
 
         return lista;
@@ -127,7 +268,7 @@ public class Partida {
             if (i > 0) {
                 texto.append(" | ");
             }
-            texto.append(secuenciaTurnos[i]);
+            texto.append(crearVistaTurno(i));
         }
 
         return texto.toString();
@@ -137,19 +278,86 @@ public class Partida {
     // MÉTODOS PRIVADOS
     //-------------------------
 
+    private void comprobarIndice(int indice) {
+        // Verificar que el índice sea válido
+        if (indice < 0 || indice >= numeroTurnos) {
+            throw new IllegalArgumentException("Índice de turno fuera de rango: " + indice);
+        }
+    }
+
     /**
-     * Amplía la capacidad del arreglo cuando se llena
+     * Crea un Turno con las jugadas guardadas en una posición
      */
-    private void ampliarCapacidad() {
-        // Crear un nuevo arreglo más grande
-        Turno[] nuevoArreglo = new Turno[secuenciaTurnos.length * 2];
+    private Turno crearVistaTurno(int indice) {
+        Turno turno = new Turno(numerosTurno[indice]);
+        turno.setJugadaBlanca(crearVistaJugada(codigosJugadas[2 * indice]));
+        turno.setJugadaNegra(crearVistaJugada(codigosJugadas[2 * indice + 1]));
+        return turno;
+    }
 
-        // Copiar todos los elementos al nuevo arreglo
-        for (int i = 0; i < secuenciaTurnos.length; i++) {
-            nuevoArreglo[i] = secuenciaTurnos[i];
+    private Jugada crearVistaJugada(int guardado) {
+        if (guardado == SIN_JUGADA) {
+            return null;
         }
+        if ((guardado & MARCA_LITERAL) != 0) {
+            return new Jugada(literales[guardado & ~MARCA_LITERAL]);
+        }
+        return new Jugada(guardado);
+    }
+
+    /**
+     * Convierte una jugada al valor que se guarda en codigosJugadas
+     */
+    private int guardarJugada(Jugada jugada) {
+        if (jugada == null) {
+            return SIN_JUGADA;
+        }
+        if (jugada.getCodigo() != CodigoJugada.SIN_CODIGO) {
+            return jugada.getCodigo();
+        }
+
+        // Sin código compacto: se guarda el texto aparte
+        if (literales == null) {
+            literales = new String[4];
+        } else if (numeroLiterales >= literales.length) {
+            String[] nuevo = new String[literales.length * 2];
+            System.arraycopy(literales, 0, nuevo, 0, numeroLiterales);
+            literales = nuevo;
+        }
+        literales[numeroLiterales] = jugada.getNotacion();
+        return MARCA_LITERAL | numeroLiterales++;
+    }
+
+    private int codigoPublico(int guardado) {
+        if (guardado != SIN_JUGADA && (guardado & MARCA_LITERAL) != 0) {
+            return CodigoJugada.SIN_CODIGO;
+        }
+        return guardado;
+    }
+
+    private String notacion(int guardado) {
+        if (guardado == SIN_JUGADA) {
+            return null;
+        }
+        if ((guardado & MARCA_LITERAL) != 0) {
+            return literales[guardado & ~MARCA_LITERAL];
+        }
+        return CodigoJugada.decodificar(guardado);
+    }
+
+    /**
+     * Amplía la capacidad de los arreglos cuando se llenan
+     */
+    private void ampliarCapacidad() {
+        // Crear arreglos más grandes y copiar todos los elementos
+        int[] nuevosNumeros = new int[numerosTurno.length * 2];
+        System.arraycopy(numerosTurno, 0, nuevosNumeros, 0, numeroTurnos);
+
+        int[] nuevosCodigos = new int[codigosJugadas.length * 2];
+        System.arraycopy(codigosJugadas, 0, nuevosCodigos, 0, numeroTurnos * 2);
 
-        // Reemplazar el arreglo antiguo con el nuevo
-        secuenciaTurnos = nuevoArreglo;
+        // Reemplazar los arreglos antiguos con los nuevos
+        numerosTurno = nuevosNumeros;
+        codigosJugadas = nuevosCodigos;
     }
 }
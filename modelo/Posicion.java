@@ -0,0 +1,833 @@
+package modelo;
+
+/**
+ * Posición de ajedrez representada con bitboards
+ *
+ * Cada tipo de pieza de cada color ocupa un long con un bit por casilla
+ * (a1 = bit 0, h8 = bit 63). Los movimientos se hacen y deshacen en el mismo
+ * objeto guardando en un historial lo necesario para restaurar la posición,
+ * por lo que recorrer una partida o un árbol de búsqueda no crea objetos.
+ *
+ * Un movimiento se representa con un int:
+ * <pre>
+ *   0-5   casilla de origen
+ *   6-11  casilla de destino
+ *   12-14 pieza de promoción (0 si no hay)
+ *   15-16 movimiento especial (NORMAL, AL_PASO o ENROQUE)
+ * </pre>
+ * Los tipos de pieza usan los mismos valores que CodigoJugada.
+ *
+ * La posición mantiene además una clave Zobrist de 64 bits que se actualiza con
+ * cada movimiento. Dos posiciones iguales (piezas, turno, enroques y captura al
+ * paso posible) tienen la misma clave, lo que permite reconocer repeticiones y
+ * transposiciones sin comparar tableros. Las claves se generan con una semilla
+ * fija, así que son las mismas en todas las ejecuciones.
+ */
+public class Posicion {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Colores
+    public static final int BLANCAS = 0;
+    public static final int NEGRAS = 1;
+
+    // Casilla o pieza vacía
+    public static final int VACIA = -1;
+
+    // Resultados de resolver una jugada SAN
+    public static final int SIN_MOVIMIENTO = -1;
+    public static final int MOVIMIENTO_AMBIGUO = -2;
+
+    // Tipos de movimiento especial
+    public static final int NORMAL = 0;
+    public static final int AL_PASO = 1;
+    public static final int ENROQUE = 2;
+
+    // Máximo de movimientos posibles en una posición legal (el récord conocido es 218)
+    public static final int MAXIMO_MOVIMIENTOS = 256;
+
+    // Posición inicial en notación FEN
+    public static final String FEN_INICIAL = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    // Derechos de enroque
+    private static final int CORTO_BLANCAS = 1;
+    private static final int LARGO_BLANCAS = 2;
+    private static final int CORTO_NEGRAS = 4;
+    private static final int LARGO_NEGRAS = 8;
+
+    // Casillas usadas en los enroques
+    private static final int A1 = 0, B1 = 1, C1 = 2, D1 = 3, E1 = 4, F1 = 5, G1 = 6, H1 = 7;
+    private static final int A8 = 56, B8 = 57, C8 = 58, D8 = 59, E8 = 60, F8 = 61, G8 = 62, H8 = 63;
+
+    // Direcciones de los rayos: N, S, E, O, NE, NO, SE, SO
+    private static final int[] DESPLAZAMIENTO_FILA = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DESPLAZAMIENTO_COLUMNA = {0, 0, 1, -1, 1, -1, 1, -1};
+    private static final int NORTE = 0, SUR = 1, ESTE = 2, OESTE = 3;
+    private static final int NORESTE = 4, NOROESTE = 5, SURESTE = 6, SUROESTE = 7;
+
+    //-------------------------
+    // TABLAS PRECALCULADAS
+    //-------------------------
+
+    private static final long[] ATAQUES_CABALLO = new long[64];
+    private static final long[] ATAQUES_REY = new long[64];
+    private static final long[][] ATAQUES_PEON = new long[2][64];
+    private static final long[][] RAYOS = new long[8][64];
+    private static final long[] LINEAS = new long[64];
+    private static final long[] COLUMNAS = new long[8];
+    private static final long[] FILAS = new long[8];
+
+    // Derechos de enroque que se conservan al mover desde o hacia cada casilla
+    private static final int[] MASCARA_ENROQUE = new int[64];
+
+    // Claves Zobrist: pieza y casilla, turno de negras, derechos de enroque y columna al paso
+    private static final long SEMILLA_ZOBRIST = 0x5A0B3157C0FFEE01L;
+    private static final long[][] ZOBRIST_PIEZA = new long[12][64];
+    private static final long ZOBRIST_NEGRAS;
+    private static final long[] ZOBRIST_ENROQUE = new long[16];
+    private static final long[] ZOBRIST_AL_PASO = new long[8];
+
+    static {
+        int[][] saltosCaballo = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+        for (int casilla = 0; casilla < 64; casilla++) {
+            int fila = casilla / 8;
+            int columna = casilla % 8;
+
+            for (int[] salto : saltosCaballo) {
+                ATAQUES_CABALLO[casilla] |= bitSiExiste(fila + salto[0], columna + salto[1]);
+            }
+            for (int df = -1; df <= 1; df++) {
+                for (int dc = -1; dc <= 1; dc++) {
+                    if (df != 0 || dc != 0) {
+                        ATAQUES_REY[casilla] |= bitSiExiste(fila + df, columna + dc);
+                    }
+                }
+            }
+            ATAQUES_PEON[BLANCAS][casilla] = bitSiExiste(fila + 1, columna - 1) | bitSiExiste(fila + 1, columna + 1);
+            ATAQUES_PEON[NEGRAS][casilla] = bitSiExiste(fila - 1, columna - 1) | bitSiExiste(fila - 1, columna + 1);
+
+            for (int direccion = 0; direccion < 8; direccion++) {
+                int f = fila + DESPLAZAMIENTO_FILA[direccion];
+                int c = columna + DESPLAZAMIENTO_COLUMNA[direccion];
+                while (f >= 0 && f < 8 && c >= 0 && c < 8) {
+                    RAYOS[direccion][casilla] |= 1L << (f * 8 + c);
+                    f += DESPLAZAMIENTO_FILA[direccion];
+                    c += DESPLAZAMIENTO_COLUMNA[direccion];
+                }
+                LINEAS[casilla] |= RAYOS[direccion][casilla];
+            }
+
+            COLUMNAS[columna] |= 1L << casilla;
+            FILAS[fila] |= 1L << casilla;
+            MASCARA_ENROQUE[casilla] = CORTO_BLANCAS | LARGO_BLANCAS | CORTO_NEGRAS | LARGO_NEGRAS;
+        }
+
+        MASCARA_ENROQUE[E1] &= ~(CORTO_BLANCAS | LARGO_BLANCAS);
+        MASCARA_ENROQUE[H1] &= ~CORTO_BLANCAS;
+        MASCARA_ENROQUE[A1] &= ~LARGO_BLANCAS;
+        MASCARA_ENROQUE[E8] &= ~(CORTO_NEGRAS | LARGO_NEGRAS);
+        MASCARA_ENROQUE[H8] &= ~CORTO_NEGRAS;
+        MASCARA_ENROQUE[A8] &= ~LARGO_NEGRAS;
+
+        // Generador splitmix64 para que las claves no dependan de la versión de Java
+        long estado = SEMILLA_ZOBRIST;
+        for (int pieza = 0; pieza < 12; pieza++) {
+            for (int casilla = 0; casilla < 64; casilla++) {
+                estado += 0x9E3779B97F4A7C15L;
+                ZOBRIST_PIEZA[pieza][casilla] = mezclar(estado);
+            }
+        }
+        estado += 0x9E3779B97F4A7C15L;
+        ZOBRIST_NEGRAS = mezclar(estado);
+        // Sin derechos de enroque la clave es 0, así que solo se generan las demás combinaciones
+        for (int derechos = 1; derechos < 16; derechos++) {
+            estado += 0x9E3779B97F4A7C15L;
+            ZOBRIST_ENROQUE[derechos] = mezclar(estado);
+        }
+        for (int columna = 0; columna < 8; columna++) {
+            estado += 0x9E3779B97F4A7C15L;
+            ZOBRIST_AL_PASO[columna] = mezclar(estado);
+        }
+    }
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    // Bitboard de cada pieza, indexado por color * 6 + tipo
+    private final long[] piezas = new long[12];
+    private final long[] ocupacionColor = new long[2];
+    private long ocupacion;
+
+    // Pieza de cada casilla (color * 6 + tipo) o VACIA
+    private final int[] tablero = new int[64];
+
+    private int turno;
+    private int enroques;
+    private int casillaAlPaso;
+    private int reglaCincuenta;
+    private int numeroJugada;
+
+    // Clave Zobrist de la posición actual
+    private long hash;
+
+    // Historial para deshacer movimientos
+    private int[] historialMovimiento = new int[64];
+    private int[] historialCapturada = new int[64];
+    private int[] historialEnroques = new int[64];
+    private int[] historialAlPaso = new int[64];
+    private int[] historialCincuenta = new int[64];
+    private long[] historialHash = new long[64];
+    private int profundidad;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    /**
+     * Crea la posición inicial
+     */
+    public Posicion() {
+        cargarFEN(FEN_INICIAL);
+    }
+
+    /**
+     * Crea una posición a partir de su descripción FEN
+     */
+    public Posicion(String fen) {
+        cargarFEN(fen);
+    }
+
+    //-------------------------
+    // CONSULTAS
+    //-------------------------
+
+    public int obtenerTurno() {
+        return turno;
+    }
+
+    /**
+     * Obtiene la pieza de una casilla como color * 6 + tipo, o VACIA
+     */
+    public int obtenerPieza(int casilla) {
+        return tablero[casilla];
+    }
+
+    /**
+     * Obtiene la clave Zobrist de la posición
+     */
+    public long obtenerHash() {
+        return hash;
+    }
+
+    /**
+     * Obtiene la clave Zobrist que tenía la posición a una profundidad del historial
+     * @param profundidad Entre 0 (posición cargada) y obtenerProfundidad() (posición actual)
+     */
+    public long obtenerHash(int profundidad) {
+        if (profundidad < 0 || profundidad > this.profundidad) {
+            throw new IllegalArgumentException("Profundidad fuera del historial: " + profundidad);
+        }
+        return profundidad == this.profundidad ? hash : historialHash[profundidad];
+    }
+
+    /**
+     * Número de movimientos hechos desde que se creó o cargó la posición
+     */
+    public int obtenerProfundidad() {
+        return profundidad;
+    }
+
+    /**
+     * Indica si el bando que mueve está en jaque
+     */
+    public boolean enJaque() {
+        return estaAtacada(casillaRey(turno), turno ^ 1);
+    }
+
+    /**
+     * Indica si una casilla está atacada por un color
+     */
+    public boolean estaAtacada(int casilla, int porColor) {
+        int base = porColor * 6;
+        if ((ATAQUES_PEON[porColor ^ 1][casilla] & piezas[base + CodigoJugada.PEON]) != 0) return true;
+        if ((ATAQUES_CABALLO[casilla] & piezas[base + CodigoJugada.CABALLO]) != 0) return true;
+        if ((ATAQUES_REY[casilla] & piezas[base + CodigoJugada.REY]) != 0) return true;
+        long damas = piezas[base + CodigoJugada.DAMA];
+        if ((ataquesAlfil(casilla, ocupacion) & (piezas[base + CodigoJugada.ALFIL] | damas)) != 0) return true;
+        return (ataquesTorre(casilla, ocupacion) & (piezas[base + CodigoJugada.TORRE] | damas)) != 0;
+    }
+
+    //-------------------------
+    // MOVIMIENTOS
+    //-------------------------
+
+    public static int crearMovimiento(int origen, int destino, int promocion, int especial) {
+        return origen | destino << 6 | promocion << 12 | especial << 15;
+    }
+
+    public static int origen(int movimiento) {
+        return movimiento & 0x3F;
+    }
+
+    public static int destino(int movimiento) {
+        return (movimiento >>> 6) & 0x3F;
+    }
+
+    public static int promocion(int movimiento) {
+        return (movimiento >>> 12) & 0x7;
+    }
+
+    public static int especial(int movimiento) {
+        return (movimiento >>> 15) & 0x3;
+    }
+
+    /**
+     * Hace un movimiento (que debe ser al menos pseudolegal)
+     */
+    public void hacerMovimiento(int movimiento) {
+        int origen = origen(movimiento);
+        int destino = destino(movimiento);
+        int pieza = tablero[origen];
+        int color = turno;
+
+        if (profundidad == historialMovimiento.length) {
+            ampliarHistorial();
+        }
+        historialMovimiento[profundidad] = movimiento;
+        historialEnroques[profundidad] = enroques;
+        historialAlPaso[profundidad] = casillaAlPaso;
+        historialCincuenta[profundidad] = reglaCincuenta;
+        historialHash[profundidad] = hash;
+
+        // Quitar de la clave la captura al paso y los enroques anteriores
+        hash ^= claveAlPaso() ^ ZOBRIST_ENROQUE[enroques];
+
+        int capturada;
+        int especial = especial(movimiento);
+        if (especial == AL_PASO) {
+            int casillaCapturada = color == BLANCAS ? destino - 8 : destino + 8;
+            capturada = tablero[casillaCapturada];
+            quitar(casillaCapturada, capturada);
+        } else {
+            capturada = tablero[destino];
+            if (capturada != VACIA) {
+                quitar(destino, capturada);
+            }
+        }
+        historialCapturada[profundidad] = capturada;
+        profundidad++;
+
+        mover(origen, destino, pieza);
+
+        int promocion = promocion(movimiento);
+        if (promocion != 0) {
+            quitar(destino, pieza);
+            poner(destino, color * 6 + promocion);
+        } else if (especial == ENROQUE) {
+            moverTorreEnroque(destino, false);
+        }
+
+        boolean esPeon = pieza - color * 6 == CodigoJugada.PEON;
+        casillaAlPaso = esPeon && Math.abs(destino - origen) == 16 ? (origen + destino) / 2 : VACIA;
+        reglaCincuenta = esPeon || capturada != VACIA ? 0 : reglaCincuenta + 1;
+        enroques &= MASCARA_ENROQUE[origen] & MASCARA_ENROQUE[destino];
+        if (color == NEGRAS) {
+            numeroJugada++;
+        }
+        turno = color ^ 1;
+
+        hash ^= ZOBRIST_NEGRAS ^ ZOBRIST_ENROQUE[enroques] ^ claveAlPaso();
+    }
+
+    /**
+     * Deshace el último movimiento hecho
+     */
+    public void deshacerMovimiento() {
+        profundidad--;
+        int movimiento = historialMovimiento[profundidad];
+        int origen = origen(movimiento);
+        int destino = destino(movimiento);
+        int color = turno ^ 1;
+
+        turno = color;
+        if (color == NEGRAS) {
+            numeroJugada--;
+        }
+        enroques = historialEnroques[profundidad];
+        casillaAlPaso = historialAlPaso[profundidad];
+        reglaCincuenta = historialCincuenta[profundidad];
+
+        int especial = especial(movimiento);
+        if (promocion(movimiento) != 0) {
+            quitar(destino, tablero[destino]);
+            poner(destino, color * 6 + CodigoJugada.PEON);
+        } else if (especial == ENROQUE) {
+            moverTorreEnroque(destino, true);
+        }
+        mover(destino, origen, tablero[destino]);
+
+        int capturada = historialCapturada[profundidad];
+        if (capturada != VACIA) {
+            int casillaCapturada = especial == AL_PASO
+                    ? (color == BLANCAS ? destino - 8 : destino + 8)
+                    : destino;
+            poner(casillaCapturada, capturada);
+        }
+
+        // poner, quitar y mover modifican la clave; se restaura la guardada
+        hash = historialHash[profundidad];
+    }
+
+    /**
+     * Genera los movimientos pseudolegales (pueden dejar al propio rey en jaque)
+     * @param lista Arreglo donde se escriben los movimientos
+     * @param inicio Primera posición libre de lista
+     * @return Posición siguiente al último movimiento escrito
+     */
+    public int generarPseudolegales(int[] lista, int inicio) {
+        int n = inicio;
+        int color = turno;
+        int base = color * 6;
+        long propias = ocupacionColor[color];
+        long rivales = ocupacionColor[color ^ 1];
+        long libres = ~ocupacion;
+
+        n = generarPeones(lista, n, color, rivales, libres);
+
+        long caballos = piezas[base + CodigoJugada.CABALLO];
+        while (caballos != 0) {
+            int origen = Long.numberOfTrailingZeros(caballos);
+            caballos &= caballos - 1;
+            n = agregarDestinos(lista, n, origen, ATAQUES_CABALLO[origen] & ~propias);
+        }
+
+        long alfiles = piezas[base + CodigoJugada.ALFIL] | piezas[base + CodigoJugada.DAMA];
+        while (alfiles != 0) {
+            int origen = Long.numberOfTrailingZeros(alfiles);
+            alfiles &= alfiles - 1;
+            n = agregarDestinos(lista, n, origen, ataquesAlfil(origen, ocupacion) & ~propias);
+        }
+
+        long torres = piezas[base + CodigoJugada.TORRE] | piezas[base + CodigoJugada.DAMA];
+        while (torres != 0) {
+            int origen = Long.numberOfTrailingZeros(torres);
+            torres &= torres - 1;
+            n = agregarDestinos(lista, n, origen, ataquesTorre(origen, ocupacion) & ~propias);
+        }
+
+        int rey = casillaRey(color);
+        n = agregarDestinos(lista, n, rey, ATAQUES_REY[rey] & ~propias);
+
+        if (puedeEnrocar(color, true)) {
+            lista[n++] = crearMovimiento(rey, rey + 2, 0, ENROQUE);
+        }
+        if (puedeEnrocar(color, false)) {
+            lista[n++] = crearMovimiento(rey, rey - 2, 0, ENROQUE);
+        }
+
+        return n;
+    }
+
+    /**
+     * Genera los movimientos legales
+     * @return Posición siguiente al último movimiento escrito
+     */
+    public int generarLegales(int[] lista, int inicio) {
+        int fin = generarPseudolegales(lista, inicio);
+        int rey = casillaRey(turno);
+
+        // Sin jaque, solo pueden ser ilegales los movimientos del rey, la captura
+        // al paso y los de piezas alineadas con el rey (posiblemente clavadas)
+        long sospechosas = enJaque() ? -1L : LINEAS[rey] | 1L << rey;
+
+        int n = inicio;
+        for (int i = inicio; i < fin; i++) {
+            int movimiento = lista[i];
+            boolean revisar = (sospechosas & 1L << origen(movimiento)) != 0 || especial(movimiento) == AL_PASO;
+            if (!revisar || esLegal(movimiento)) {
+                lista[n++] = movimiento;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Comprueba que un movimiento pseudolegal no deja al propio rey en jaque
+     */
+    public boolean esLegal(int movimiento) {
+        int color = turno;
+        hacerMovimiento(movimiento);
+        boolean legal = !estaAtacada(casillaRey(color), color ^ 1);
+        deshacerMovimiento();
+        return legal;
+    }
+
+    /**
+     * Busca el movimiento legal que corresponde a una jugada SAN codificada
+     * @param codigoJugada Código de CodigoJugada
+     * @return El movimiento, SIN_MOVIMIENTO si no hay ninguno o MOVIMIENTO_AMBIGUO si hay varios
+     */
+    public int resolver(int codigoJugada) {
+        int color = turno;
+        int pieza = CodigoJugada.pieza(codigoJugada);
+
+        if (pieza == CodigoJugada.ENROQUE_CORTO || pieza == CodigoJugada.ENROQUE_LARGO) {
+            boolean corto = pieza == CodigoJugada.ENROQUE_CORTO;
+            if (!puedeEnrocar(color, corto)) {
+                return SIN_MOVIMIENTO;
+            }
+            int rey = casillaRey(color);
+            int movimiento = crearMovimiento(rey, corto ? rey + 2 : rey - 2, 0, ENROQUE);
+            return esLegal(movimiento) ? movimiento : SIN_MOVIMIENTO;
+        }
+
+        int destino = CodigoJugada.destino(codigoJugada);
+        if (tablero[destino] != VACIA && tablero[destino] / 6 == color) {
+            return SIN_MOVIMIENTO;
+        }
+
+        // La promoción es obligatoria al llegar a la última fila, y solo posible para peones
+        int promocion = CodigoJugada.promocion(codigoJugada);
+        boolean ultimaFila = destino / 8 == (color == BLANCAS ? 7 : 0);
+        if (pieza == CodigoJugada.PEON ? (promocion != 0) != ultimaFila : promocion != 0) {
+            return SIN_MOVIMIENTO;
+        }
+
+        boolean alPaso = pieza == CodigoJugada.PEON && destino == casillaAlPaso;
+        boolean captura = tablero[destino] != VACIA || (alPaso && CodigoJugada.esCaptura(codigoJugada));
+        if (captura != CodigoJugada.esCaptura(codigoJugada)) {
+            return SIN_MOVIMIENTO;
+        }
+
+        long candidatas = origenesPosibles(pieza, color, destino, captura);
+        if (CodigoJugada.columnaOrigen(codigoJugada) >= 0) {
+            candidatas &= COLUMNAS[CodigoJugada.columnaOrigen(codigoJugada)];
+        }
+        if (CodigoJugada.filaOrigen(codigoJugada) >= 0) {
+            candidatas &= FILAS[CodigoJugada.filaOrigen(codigoJugada)];
+        }
+
+        int especial = alPaso && captura && tablero[destino] == VACIA ? AL_PASO : NORMAL;
+        int encontrado = SIN_MOVIMIENTO;
+        while (candidatas != 0) {
+            int origen = Long.numberOfTrailingZeros(candidatas);
+            candidatas &= candidatas - 1;
+            int movimiento = crearMovimiento(origen, destino, promocion, especial);
+            if (esLegal(movimiento)) {
+                if (encontrado != SIN_MOVIMIENTO) {
+                    return MOVIMIENTO_AMBIGUO;
+                }
+                encontrado = movimiento;
+            }
+        }
+        return encontrado;
+    }
+
+    //-------------------------
+    // FEN
+    //-------------------------
+
+    /**
+     * Carga una posición en notación FEN y vacía el historial
+     */
+    public void cargarFEN(String fen) {
+        String[] campos = fen.trim().split("\\s+");
+        if (campos.length < 2) {
+            throw new IllegalArgumentException("FEN incompleto: " + fen);
+        }
+
+        java.util.Arrays.fill(piezas, 0L);
+        ocupacionColor[BLANCAS] = 0;
+        ocupacionColor[NEGRAS] = 0;
+        ocupacion = 0;
+        java.util.Arrays.fill(tablero, VACIA);
+
+        int fila = 7;
+        int columna = 0;
+        for (int i = 0; i < campos[0].length(); i++) {
+            char c = campos[0].charAt(i);
+            if (c == '/') {
+                fila--;
+                columna = 0;
+            } else if (c >= '1' && c <= '8') {
+                columna += c - '0';
+            } else {
+                int indice = "PNBRQKpnbrqk".indexOf(c);
+                if (indice < 0 || fila < 0 || columna > 7) {
+                    throw new IllegalArgumentException("FEN inválido: " + fen);
+                }
+                poner(fila * 8 + columna, indice);
+                columna++;
+            }
+        }
+
+        turno = campos[1].equals("b") ? NEGRAS : BLANCAS;
+
+        enroques = 0;
+        if (campos.length > 2) {
+            if (campos[2].indexOf('K') >= 0) enroques |= CORTO_BLANCAS;
+            if (campos[2].indexOf('Q') >= 0) enroques |= LARGO_BLANCAS;
+            if (campos[2].indexOf('k') >= 0) enroques |= CORTO_NEGRAS;
+            if (campos[2].indexOf('q') >= 0) enroques |= LARGO_NEGRAS;
+        }
+
+        casillaAlPaso = VACIA;
+        if (campos.length > 3 && !campos[3].equals("-")) {
+            casillaAlPaso = (campos[3].charAt(1) - '1') * 8 + (campos[3].charAt(0) - 'a');
+        }
+
+        reglaCincuenta = campos.length > 4 ? Integer.parseInt(campos[4]) : 0;
+        numeroJugada = campos.length > 5 ? Integer.parseInt(campos[5]) : 1;
+        profundidad = 0;
+        hash = calcularHash();
+    }
+
+    /**
+     * Vuelve a la posición inicial
+     */
+    public void reiniciar() {
+        cargarFEN(FEN_INICIAL);
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private int generarPeones(int[] lista, int n, int color, long rivales, long libres) {
+        long peones = piezas[color * 6 + CodigoJugada.PEON];
+        int avance = color == BLANCAS ? 8 : -8;
+        int filaInicial = color == BLANCAS ? 1 : 6;
+        int filaFinal = color == BLANCAS ? 7 : 0;
+        long objetivosAlPaso = casillaAlPaso != VACIA ? 1L << casillaAlPaso : 0;
+
+        while (peones != 0) {
+            int origen = Long.numberOfTrailingZeros(peones);
+            peones &= peones - 1;
+
+            int uno = origen + avance;
+            if ((libres & 1L << uno) != 0) {
+                n = agregarPeon(lista, n, origen, uno, filaFinal);
+                int dos = uno + avance;
+                if (origen / 8 == filaInicial && (libres & 1L << dos) != 0) {
+                    lista[n++] = crearMovimiento(origen, dos, 0, NORMAL);
+                }
+            }
+
+            long capturas = ATAQUES_PEON[color][origen] & rivales;
+            while (capturas != 0) {
+                int destino = Long.numberOfTrailingZeros(capturas);
+                capturas &= capturas - 1;
+                n = agregarPeon(lista, n, origen, destino, filaFinal);
+            }
+
+            if ((ATAQUES_PEON[color][origen] & objetivosAlPaso) != 0) {
+                lista[n++] = crearMovimiento(origen, casillaAlPaso, 0, AL_PASO);
+            }
+        }
+        return n;
+    }
+
+    private static int agregarPeon(int[] lista, int n, int origen, int destino, int filaFinal) {
+        if (destino / 8 == filaFinal) {
+            lista[n++] = crearMovimiento(origen, destino, CodigoJugada.DAMA, NORMAL);
+            lista[n++] = crearMovimiento(origen, destino, CodigoJugada.TORRE, NORMAL);
+            lista[n++] = crearMovimiento(origen, destino, CodigoJugada.ALFIL, NORMAL);
+            lista[n++] = crearMovimiento(origen, destino, CodigoJugada.CABALLO, NORMAL);
+        } else {
+            lista[n++] = crearMovimiento(origen, destino, 0, NORMAL);
+        }
+        return n;
+    }
+
+    private static int agregarDestinos(int[] lista, int n, int origen, long destinos) {
+        while (destinos != 0) {
+            lista[n++] = crearMovimiento(origen, Long.numberOfTrailingZeros(destinos), 0, NORMAL);
+            destinos &= destinos - 1;
+        }
+        return n;
+    }
+
+    /**
+     * Casillas desde las que una pieza del color indicado podría llegar al destino
+     */
+    private long origenesPosibles(int pieza, int color, int destino, boolean captura) {
+        long propias = piezas[color * 6 + pieza];
+        switch (pieza) {
+            case CodigoJugada.PEON:
+                if (captura) {
+                    return ATAQUES_PEON[color ^ 1][destino] & propias;
+                }
+                int atras = color == BLANCAS ? destino - 8 : destino + 8;
+                if (atras < 0 || atras > 63) {
+                    return 0;
+                }
+                if (tablero[atras] != VACIA) {
+                    return propias & 1L << atras;
+                }
+                int dobleAtras = color == BLANCAS ? destino - 16 : destino + 16;
+                boolean filaDoble = destino / 8 == (color == BLANCAS ? 3 : 4);
+                return filaDoble ? propias & 1L << dobleAtras : 0;
+            case CodigoJugada.CABALLO:
+                return ATAQUES_CABALLO[destino] & propias;
+            case CodigoJugada.ALFIL:
+                return ataquesAlfil(destino, ocupacion) & propias;
+            case CodigoJugada.TORRE:
+                return ataquesTorre(destino, ocupacion) & propias;
+            case CodigoJugada.DAMA:
+                return (ataquesAlfil(destino, ocupacion) | ataquesTorre(destino, ocupacion)) & propias;
+            default:
+                return ATAQUES_REY[destino] & propias;
+        }
+    }
+
+    /**
+     * Comprueba derechos, casillas libres y casillas no atacadas de un enroque
+     */
+    private boolean puedeEnrocar(int color, boolean corto) {
+        int rival = color ^ 1;
+        if (color == BLANCAS) {
+            if (corto) {
+                return (enroques & CORTO_BLANCAS) != 0
+                        && tablero[F1] == VACIA && tablero[G1] == VACIA
+                        && !estaAtacada(E1, rival) && !estaAtacada(F1, rival) && !estaAtacada(G1, rival);
+            }
+            return (enroques & LARGO_BLANCAS) != 0
+                    && tablero[D1] == VACIA && tablero[C1] == VACIA && tablero[B1] == VACIA
+                    && !estaAtacada(E1, rival) && !estaAtacada(D1, rival) && !estaAtacada(C1, rival);
+        }
+        if (corto) {
+            return (enroques & CORTO_NEGRAS) != 0
+                    && tablero[F8] == VACIA && tablero[G8] == VACIA
+                    && !estaAtacada(E8, rival) && !estaAtacada(F8, rival) && !estaAtacada(G8, rival);
+        }
+        return (enroques & LARGO_NEGRAS) != 0
+                && tablero[D8] == VACIA && tablero[C8] == VACIA && tablero[B8] == VACIA
+                && !estaAtacada(E8, rival) && !estaAtacada(D8, rival) && !estaAtacada(C8, rival);
+    }
+
+    /**
+     * Calcula la clave Zobrist desde cero
+     */
+    private long calcularHash() {
+        long clave = 0;
+        for (int casilla = 0; casilla < 64; casilla++) {
+            if (tablero[casilla] != VACIA) {
+                clave ^= ZOBRIST_PIEZA[tablero[casilla]][casilla];
+            }
+        }
+        if (turno == NEGRAS) {
+            clave ^= ZOBRIST_NEGRAS;
+        }
+        return clave ^ ZOBRIST_ENROQUE[enroques] ^ claveAlPaso();
+    }
+
+    /**
+     * Parte de la clave que corresponde a la captura al paso
+     * Solo cuenta si algún peón del bando que mueve puede capturar, de modo que un
+     * avance doble sin consecuencias no impide reconocer una repetición.
+     */
+    private long claveAlPaso() {
+        if (casillaAlPaso == VACIA
+                || (ATAQUES_PEON[turno ^ 1][casillaAlPaso] & piezas[turno * 6 + CodigoJugada.PEON]) == 0) {
+            return 0;
+        }
+        return ZOBRIST_AL_PASO[casillaAlPaso % 8];
+    }
+
+    private void moverTorreEnroque(int destinoRey, boolean deshacer) {
+        int desde;
+        int hasta;
+        switch (destinoRey) {
+            case G1: desde = H1; hasta = F1; break;
+            case C1: desde = A1; hasta = D1; break;
+            case G8: desde = H8; hasta = F8; break;
+            default: desde = A8; hasta = D8; break;
+        }
+        if (deshacer) {
+            mover(hasta, desde, tablero[hasta]);
+        } else {
+            mover(desde, hasta, tablero[desde]);
+        }
+    }
+
+    private int casillaRey(int color) {
+        return Long.numberOfTrailingZeros(piezas[color * 6 + CodigoJugada.REY]);
+    }
+
+    private void poner(int casilla, int pieza) {
+        long bit = 1L << casilla;
+        piezas[pieza] |= bit;
+        ocupacionColor[pieza / 6] |= bit;
+        ocupacion |= bit;
+        tablero[casilla] = pieza;
+        hash ^= ZOBRIST_PIEZA[pieza][casilla];
+    }
+
+    private void quitar(int casilla, int pieza) {
+        long bit = ~(1L << casilla);
+        piezas[pieza] &= bit;
+        ocupacionColor[pieza / 6] &= bit;
+        ocupacion &= bit;
+        tablero[casilla] = VACIA;
+        hash ^= ZOBRIST_PIEZA[pieza][casilla];
+    }
+
+    private void mover(int origen, int destino, int pieza) {
+        long cambio = 1L << origen | 1L << destino;
+        piezas[pieza] ^= cambio;
+        ocupacionColor[pieza / 6] ^= cambio;
+        ocupacion ^= cambio;
+        tablero[origen] = VACIA;
+        tablero[destino] = pieza;
+        hash ^= ZOBRIST_PIEZA[pieza][origen] ^ ZOBRIST_PIEZA[pieza][destino];
+    }
+
+    private void ampliarHistorial() {
+        int capacidad = historialMovimiento.length * 2;
+        historialMovimiento = java.util.Arrays.copyOf(historialMovimiento, capacidad);
+        historialCapturada = java.util.Arrays.copyOf(historialCapturada, capacidad);
+        historialEnroques = java.util.Arrays.copyOf(historialEnroques, capacidad);
+        historialAlPaso = java.util.Arrays.copyOf(historialAlPaso, capacidad);
+        historialCincuenta = java.util.Arrays.copyOf(historialCincuenta, capacidad);
+        historialHash = java.util.Arrays.copyOf(historialHash, capacidad);
+    }
+
+    private static long ataquesAlfil(int casilla, long ocupadas) {
+        return rayo(NORESTE, casilla, ocupadas) | rayo(NOROESTE, casilla, ocupadas)
+                | rayo(SURESTE, casilla, ocupadas) | rayo(SUROESTE, casilla, ocupadas);
+    }
+
+    private static long ataquesTorre(int casilla, long ocupadas) {
+        return rayo(NORTE, casilla, ocupadas) | rayo(SUR, casilla, ocupadas)
+                | rayo(ESTE, casilla, ocupadas) | rayo(OESTE, casilla, ocupadas);
+    }
+
+    /**
+     * Casillas alcanzadas en una dirección hasta la primera pieza (incluida)
+     */
+    private static long rayo(int direccion, int casilla, long ocupadas) {
+        long ataques = RAYOS[direccion][casilla];
+        long bloqueo = ataques & ocupadas;
+        if (bloqueo != 0) {
+            // Las direcciones N, E, NE y NO avanzan hacia bits más altos
+            int primera = direccion == NORTE || direccion == ESTE || direccion == NORESTE || direccion == NOROESTE
+                    ? Long.numberOfTrailingZeros(bloqueo)
+                    : 63 - Long.numberOfLeadingZeros(bloqueo);
+            ataques ^= RAYOS[direccion][primera];
+        }
+        return ataques;
+    }
+
+    private static long mezclar(long valor) {
+        valor = (valor ^ (valor >>> 30)) * 0xBF58476D1CE4E5B9L;
+        valor = (valor ^ (valor >>> 27)) * 0x94D049BB133111EBL;
+        return valor ^ (valor >>> 31);
+    }
+
+    private static long bitSiExiste(int fila, int columna) {
+        return fila >= 0 && fila < 8 && columna >= 0 && columna < 8 ? 1L << (fila * 8 + columna) : 0;
+    }
+}
@@ -4,6 +4,15 @@ public class ResultadoAnalisis {
     private boolean esValido;
     private String mensajeError;
     private int numeroTurnos;
+    private Partida partida;
+
+    // Datos del primer error cuando el resultado se crea desde un búfer de diagnósticos;
+    // el mensaje se construye solo si alguien lo pide
+    private int codigoError;
+    private int turnoError;
+    private int colorError;
+    private long posicionError = -1;
+    private String textoError;
 
     /**
      * Constructor para resultado exitoso
@@ -14,6 +23,17 @@ public class ResultadoAnalisis {
         this.mensajeError = null;
     }
 
+    /**
+     * Constructor para resultado exitoso que conserva la partida analizada,
+     * para que las etapas siguientes no tengan que volver a leer el texto
+     */
+    public ResultadoAnalisis(Partida partida) {
+        this.esValido = true;
+        this.numeroTurnos = partida.contarTurnos();
+        this.mensajeError = null;
+        this.partida = partida;
+    }
+
     /**
      * Constructor para resultado con error
      */
@@ -23,6 +43,20 @@ public class ResultadoAnalisis {
         this.numeroTurnos = 0;
     }
 
+    /**
+     * Constructor para resultado con error a partir del primer error registrado
+     */
+    public ResultadoAnalisis(Diagnosticos diagnosticos) {
+        this.esValido = false;
+        this.numeroTurnos = 0;
+        this.mensajeError = null;
+        this.codigoError = diagnosticos.obtenerCodigo(0);
+        this.turnoError = diagnosticos.obtenerTurno(0);
+        this.colorError = diagnosticos.obtenerColor(0);
+        this.posicionError = diagnosticos.obtenerPosicion(0);
+        this.textoError = diagnosticos.obtenerTexto(0);
+    }
+
     /**
      * Constructor general
      */
@@ -52,9 +86,26 @@ public class ResultadoAnalisis {
      * Obtiene el mensaje de error (si hay)
      */
     public String getMensajeError() {
+        if (mensajeError == null && codigoError != 0) {
+            mensajeError = Diagnosticos.formatear(codigoError, turnoError, colorError, textoError);
+        }
         return mensajeError;
     }
 
+    /**
+     * Obtiene el código del error (ver Diagnosticos), o 0 si no se conoce
+     */
+    public int getCodigoError() {
+        return codigoError;
+    }
+
+    /**
+     * Obtiene la posición del error en la entrada, o -1 si no se conoce
+     */
+    public long getPosicionError() {
+        return posicionError;
+    }
+
     /**
      * Obtiene el número de turnos analizados
      */
@@ -62,6 +113,13 @@ public class ResultadoAnalisis {
         return numeroTurnos;
     }
 
+    /**
+     * Obtiene la partida analizada (null si el resultado no la conserva)
+     */
+    public Partida getPartida() {
+        return partida;
+    }
+
     /**
      * Compatibilidad con versiones anteriores
      */
@@ -73,6 +131,6 @@ public class ResultadoAnalisis {
      * Compatibilidad con versiones anteriores
      */
     public Object getResultado() {
-        return esValido ? numeroTurnos : mensajeError;
+        return esValido ? numeroTurnos : getMensajeError();
     }
 }
@@ -0,0 +1,191 @@
+package modelo;
+
+/**
+ * Cuenta cuántas veces aparece cada posición, identificada por su clave Zobrist
+ *
+ * Es una tabla de direccionamiento abierto sobre arreglos de long e int, sin
+ * objetos por entrada, por lo que añadir y consultar una posición cuesta O(1)
+ * incluso con millones de posiciones. Además de las apariciones totales guarda
+ * en cuántas partidas distintas aparece cada posición, lo que permite detectar
+ * transposiciones entre partidas.
+ */
+public class TablaPosiciones {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Clave reservada para las casillas vacías de la tabla (y para posiciones desconocidas)
+    public static final long SIN_HASH = 0L;
+
+    private static final int CAPACIDAD_INICIAL = 64;
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private long[] claves;
+    private int[] apariciones;
+    private int[] partidas;
+    private int[] ultimaPartida;
+    private int cantidad;
+    private int mascara;
+
+    // Casillas con clave, incluidas las que se quedaron sin apariciones al quitar
+    private int ocupadas;
+
+    //-------------------------
+    // CONSTRUCTORES
+    //-------------------------
+
+    public TablaPosiciones() {
+        this(CAPACIDAD_INICIAL);
+    }
+
+    /**
+     * @param capacidadEsperada Número aproximado de posiciones distintas
+     */
+    public TablaPosiciones(int capacidadEsperada) {
+        int capacidad = Integer.highestOneBit(Math.max(CAPACIDAD_INICIAL, capacidadEsperada * 2 - 1)) * 2;
+        reservar(capacidad);
+    }
+
+    //-------------------------
+    // MÉTODOS PÚBLICOS
+    //-------------------------
+
+    /**
+     * Registra una aparición de una posición dentro de una partida
+     * @param hash Clave Zobrist (SIN_HASH se ignora)
+     * @param numeroPartida Identificador de la partida en la que aparece
+     * @return Apariciones de la posición contando esta
+     */
+    public int agregar(long hash, int numeroPartida) {
+        if (hash == SIN_HASH) {
+            return 0;
+        }
+        if ((ocupadas + 1) * 2 > claves.length) {
+            ampliar();
+        }
+
+        int indice = buscar(hash);
+        if (claves[indice] == SIN_HASH) {
+            claves[indice] = hash;
+            ultimaPartida[indice] = numeroPartida;
+            partidas[indice] = 1;
+            ocupadas++;
+        } else if (ultimaPartida[indice] != numeroPartida) {
+            ultimaPartida[indice] = numeroPartida;
+            partidas[indice]++;
+        }
+        if (apariciones[indice] == 0) {
+            cantidad++;
+        }
+        return ++apariciones[indice];
+    }
+
+    /**
+     * Quita una aparición de una posición, por ejemplo al deshacer una jugada
+     * El número de partidas de la posición no cambia.
+     * @return Apariciones que quedan de la posición
+     */
+    public int quitar(long hash) {
+        if (hash == SIN_HASH) {
+            return 0;
+        }
+        int indice = buscar(hash);
+        if (claves[indice] == SIN_HASH || apariciones[indice] == 0) {
+            return 0;
+        }
+        // La clave se queda en la tabla para no romper las secuencias de búsqueda
+        if (--apariciones[indice] == 0) {
+            cantidad--;
+        }
+        return apariciones[indice];
+    }
+
+    /**
+     * Número de veces que se ha registrado una posición
+     */
+    public int contarApariciones(long hash) {
+        if (hash == SIN_HASH) {
+            return 0;
+        }
+        int indice = buscar(hash);
+        return claves[indice] == SIN_HASH ? 0 : apariciones[indice];
+    }
+
+    /**
+     * Número de partidas distintas en las que aparece una posición
+     */
+    public int contarPartidas(long hash) {
+        if (hash == SIN_HASH) {
+            return 0;
+        }
+        int indice = buscar(hash);
+        return claves[indice] == SIN_HASH ? 0 : partidas[indice];
+    }
+
+    public boolean contiene(long hash) {
+        return contarApariciones(hash) > 0;
+    }
+
+    /**
+     * Número de posiciones distintas registradas
+     */
+    public int tamano() {
+        return cantidad;
+    }
+
+    public void limpiar() {
+        java.util.Arrays.fill(claves, SIN_HASH);
+        java.util.Arrays.fill(apariciones, 0);
+        cantidad = 0;
+        ocupadas = 0;
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    /**
+     * Busca la casilla de la tabla que tiene la clave o la primera vacía en su recorrido
+     */
+    private int buscar(long hash) {
+        // Las claves Zobrist ya están bien repartidas; basta con mezclar las mitades
+        int indice = (int) (hash ^ (hash >>> 32)) & mascara;
+        while (claves[indice] != SIN_HASH && claves[indice] != hash) {
+            indice = (indice + 1) & mascara;
+        }
+        return indice;
+    }
+
+    private void reservar(int capacidad) {
+        claves = new long[capacidad];
+        apariciones = new int[capacidad];
+        partidas = new int[capacidad];
+        ultimaPartida = new int[capacidad];
+        mascara = capacidad - 1;
+    }
+
+    private void ampliar() {
+        long[] clavesAnteriores = claves;
+        int[] aparicionesAnteriores = apariciones;
+        int[] partidasAnteriores = partidas;
+        int[] ultimaAnteriores = ultimaPartida;
+
+        reservar(claves.length * 2);
+        ocupadas = 0;
+        for (int i = 0; i < clavesAnteriores.length; i++) {
+            // Las claves sin apariciones se descartan al ampliar
+            if (clavesAnteriores[i] != SIN_HASH && aparicionesAnteriores[i] > 0) {
+                ocupadas++;
+                int indice = buscar(clavesAnteriores[i]);
+                claves[indice] = clavesAnteriores[i];
+                apariciones[indice] = aparicionesAnteriores[i];
+                partidas[indice] = partidasAnteriores[i];
+                ultimaPartida[indice] = ultimaAnteriores[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package analizador;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Comprueba el árbol de derivación que se obtiene del texto sin validar
+ *
+ * Las jugadas se emparejan en orden y los turnos se numeran desde 1, sin tener
+ * en cuenta los números escritos en el texto.
+ */
+class AnalizadorGramaticoTest {
+
+    //-------------------------
+    // PRUEBAS
+    //-------------------------
+
+    @Test
+    void numeraLosTurnosDesdeUno() {
+        assertEquals(derivacion(new String[][]{{"e4", "e5"}, {"d4", null}}),
+                new AnalizadorGramatico().analizarYObtenerArbol("3. e4 e5 7. d4"));
+        assertEquals(derivacion(new String[][]{{"e4", "e5"}, {"d4", null}}),
+                new AnalizadorGramatico().analizarYObtenerArbol("1. e4 e5 1. d4"));
+    }
+
+    @Test
+    void emparejaLasJugadasEnOrden() {
+        assertEquals(derivacion(new String[][]{{"e4", "d4"}, {"d5", null}}),
+                new AnalizadorGramatico().analizarYObtenerArbol("1. e4. 2. d4 d5"));
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private static String derivacion(String[][] turnos) {
+        StringBuilder texto = new StringBuilder("<partida>\n");
+        for (int i = 0; i < turnos.length; i++) {
+            texto.append("  <turno>\n");
+            texto.append("    <numero_turno>").append(i + 1).append("</numero_turno>\n");
+            texto.append("    <jugada_blanca>\n      <jugada>").append(turnos[i][0]).append("</jugada>\n    </jugada_blanca>\n");
+            if (turnos[i][1] != null) {
+                texto.append("    <jugada_negra>\n      <jugada>").append(turnos[i][1]).append("</jugada>\n    </jugada_negra>\n");
+            }
+            texto.append("  </turno>\n");
+        }
+        return texto.append("</partida>").toString();
+    }
+}
@@ -0,0 +1,187 @@
+package analizador;
+
+import main.Arbol;
+import modelo.Partida;
+import modelo.ResultadoAnalisis;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Comprueba que AnalizadorIncremental da lo mismo que analizar el texto entero
+ *
+ * Se aplican ediciones aleatorias (insertar, borrar y reemplazar) con semilla
+ * fija sobre partidas válidas, y tras cada edición se comparan los turnos, los
+ * códigos, las claves Zobrist del árbol y el primer error con los de
+ * AnalizadorSintactico. También se cancelan análisis a medias.
+ */
+class AnalizadorIncrementalTest {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    private static final long SEMILLA = 20240517L;
+
+    private static final int EDICIONES = 20_000;
+
+    private static final String[] APERTURAS = {
+            "1. e4 e5 2. Nf3 Nc6 3. Bb5 a6 4. Ba4 Nf6 5. O-O Be7 6. Re1 b5 7. Bb3 d6 8. c3 O-O",
+            "1. d4 Nf6 2. c4 e6 3. Nc3 Bb4 4. e3 O-O 5. Bd3 d5 6. Nf3 c5 7. O-O Nc6",
+            "1. e4 c5 2. Nf3 d6 3. d4 cxd4 4. Nxd4 Nf6 5. Nc3 a6 6. Be3 e5 7. Nb3 Be6",
+            "1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6 4. Qxf7#",
+            "1. a4 b5 2. axb5 a6 3. bxa6 Bb7 4. axb7 Nc6 5. bxa8=Q"
+    };
+
+    // Fragmentos que se insertan: jugadas, números de turno y caracteres sueltos
+    private static final String[] FRAGMENTOS = {
+            "e4", "e5", "Nf3", "Nf6", "Ng1", "Ng8", "Nc3", "Bb5", "O-O", "O-O-O", "Qxf7#", "exd5", "a8=Q",
+            "Nbd7", "R1e2", "+", "#", "x", "=", "-", "1.", "2.", "7.", "12.", "3...", ".", " ", "  ", "\n",
+            "0", "9", "a", "h", "K", "Z", "?"
+    };
+
+    //-------------------------
+    // PRUEBAS
+    //-------------------------
+
+    @Test
+    void coincideConElAnalisisCompletoTrasCadaEdicion() {
+        Random aleatorio = new Random(SEMILLA);
+        AnalizadorIncremental incremental = new AnalizadorIncremental();
+        String texto = generarPartida(aleatorio);
+
+        for (int i = 0; i < EDICIONES; i++) {
+            texto = editar(texto, aleatorio);
+            comparar(texto, incremental.analizar(texto), incremental, "edición " + i);
+        }
+    }
+
+    @Test
+    void continuaTrasCancelarUnAnalisis() {
+        Random aleatorio = new Random(SEMILLA + 1);
+        AnalizadorIncremental incremental = new AnalizadorIncremental();
+        String texto = generarPartida(aleatorio);
+
+        for (int i = 0; i < EDICIONES / 10; i++) {
+            texto = editar(texto, aleatorio);
+            int avisosAntesDeCancelar = aleatorio.nextInt(4);
+            ResultadoAnalisis resultado = incremental.analizar(texto, new Cancelador(avisosAntesDeCancelar));
+            if (resultado == null) {
+                // Tras cancelar, el texto actual o uno editado se analiza igual que desde cero
+                if (aleatorio.nextBoolean()) {
+                    texto = editar(texto, aleatorio);
+                }
+                resultado = incremental.analizar(texto);
+            }
+            comparar(texto, resultado, incremental, "edición " + i);
+        }
+    }
+
+    @Test
+    void cancelaAntesDeTerminarUnaPartidaLarga() {
+        String texto = generarPartida(new Random(SEMILLA));
+        AnalizadorIncremental incremental = new AnalizadorIncremental();
+
+        assertNull(incremental.analizar(texto, new Cancelador(0)));
+        comparar(texto, incremental.analizar(texto), incremental, "tras cancelar");
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private static void comparar(String texto, ResultadoAnalisis obtenido,
+                                 AnalizadorIncremental incremental, String nombre) {
+        ResultadoAnalisis esperado = new AnalizadorSintactico().analizar(texto);
+        String contexto = nombre + ": " + texto;
+
+        assertEquals(esperado.esValido(), obtenido.esValido(), contexto);
+        if (esperado.esValido()) {
+            Partida completa = esperado.getPartida();
+            Partida parcial = obtenido.getPartida();
+            assertEquals(completa.contarTurnos(), parcial.contarTurnos(), contexto);
+            for (int t = 0; t < completa.contarTurnos(); t++) {
+                assertEquals(completa.obtenerNumeroTurno(t), parcial.obtenerNumeroTurno(t), contexto);
+                assertEquals(completa.obtenerCodigoBlancas(t), parcial.obtenerCodigoBlancas(t), contexto);
+                assertEquals(completa.obtenerCodigoNegras(t), parcial.obtenerCodigoNegras(t), contexto);
+                assertEquals(completa.obtenerNotacionBlancas(t), parcial.obtenerNotacionBlancas(t), contexto);
+                assertEquals(completa.obtenerNotacionNegras(t), parcial.obtenerNotacionNegras(t), contexto);
+            }
+        } else {
+            assertEquals(esperado.getCodigoError(), obtenido.getCodigoError(), contexto);
+            assertEquals(esperado.getPosicionError(), obtenido.getPosicionError(), contexto);
+            assertEquals(esperado.getMensajeError(), obtenido.getMensajeError(), contexto);
+        }
+
+        // El árbol debe tener las claves de los turnos válidos, haya error o no
+        Arbol arbol = new Arbol();
+        arbol.construirDesdePartida(incremental.obtenerPartida());
+        Arbol reutilizado = incremental.obtenerArbol();
+        assertEquals(arbol.tamano(), reutilizado.tamano(), contexto);
+        for (int llave = Arbol.RAIZ; llave <= arbol.tamano(); llave++) {
+            assertEquals(arbol.obtenerHash(llave), reutilizado.obtenerHash(llave), contexto);
+            assertEquals(arbol.obtenerJugada(llave), reutilizado.obtenerJugada(llave), contexto);
+        }
+    }
+
+    /**
+     * Un primer turno seguido de idas y vueltas de caballos, con más turnos que un aviso
+     */
+    private static String generarPartida(Random aleatorio) {
+        StringBuilder texto = new StringBuilder(aleatorio.nextBoolean() ? "1. e4 e5" : "1. d4 d5");
+        int vueltas = 40 + aleatorio.nextInt(60);
+        for (int turno = 2; turno < vueltas; turno++) {
+            texto.append(' ').append(turno).append((turno & 1) == 0 ? ". Nf3 Nf6" : ". Ng1 Ng8");
+        }
+        return texto.toString();
+    }
+
+    private static String editar(String texto, Random aleatorio) {
+        int tipo = aleatorio.nextInt(10);
+        if (tipo == 0) {
+            // Volver a una partida válida para no quedarse siempre en un texto roto
+            String partida = aleatorio.nextBoolean() ? generarPartida(aleatorio)
+                    : APERTURAS[aleatorio.nextInt(APERTURAS.length)];
+            return partida.substring(0, aleatorio.nextInt(partida.length() + 1));
+        }
+
+        // Las ediciones caen sobre todo cerca del final, como al escribir
+        int longitud = texto.length();
+        int posicion = aleatorio.nextInt(3) == 0 ? aleatorio.nextInt(longitud + 1)
+                : Math.max(0, longitud - aleatorio.nextInt(12));
+        int fin = Math.min(longitud, posicion + 1 + aleatorio.nextInt(4));
+        String fragmento = FRAGMENTOS[aleatorio.nextInt(FRAGMENTOS.length)];
+
+        if (tipo <= 4) {
+            return texto.substring(0, posicion) + fragmento + texto.substring(posicion);
+        }
+        if (tipo <= 7) {
+            return texto.substring(0, posicion) + texto.substring(fin);
+        }
+        return texto.substring(0, posicion) + fragmento + texto.substring(fin);
+    }
+
+    /**
+     * Cancela el análisis tras un número de avisos
+     */
+    private static final class Cancelador implements AnalizadorIncremental.Seguimiento {
+
+        private int avisosRestantes;
+
+        Cancelador(int avisos) {
+            this.avisosRestantes = avisos;
+        }
+
+        @Override
+        public void avance(int procesados, int total) {
+        }
+
+        @Override
+        public boolean cancelado() {
+            return avisosRestantes-- <= 0;
+        }
+    }
+}
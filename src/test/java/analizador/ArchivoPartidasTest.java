@@ -0,0 +1,174 @@
+package analizador;
+
+import main.Arbol;
+import modelo.Diagnosticos;
+import modelo.Partida;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Comprueba que las partidas guardadas con EscritorArchivoPartidas se leen igual
+ *
+ * Las partidas de ejemplo salen de AnalizadorSintactico e incluyen jugadas sin
+ * código, turnos sin jugada negra y distintos resultados. Cada turno, cada texto
+ * y cada clave Zobrist leídos con ArchivoPartidas se comparan con el análisis y
+ * con Arbol.
+ */
+class ArchivoPartidasTest {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    private static final String[] EJEMPLOS = {
+            "1. e4 e5 2. Bc4 Nc6 3. Qh5 Nf6 4. Qxf7# 1-0",
+            "1. d4 d5 2. c4 e6 3. Nc3 Nf6 4. Bg5 Be7 5. e3 O-O 6. Nf3 Nbd7 1/2-1/2",
+            "1. e4 c5 2. Nf3 d6 3. d4 cxd4 4. Nxd4 Nf6 5. Nc3 a6 6. Be3 e5 7. Nb3 Be6 8. f3 Be7 9. Qd2 O-O 10. O-O-O",
+            "1. Nf3 Nf6 2. Ng1 Ng8 3. Nf3 Nf6 4. Ng1 Ng8 5. Nf3 Nf6 6. Ng1 Ng8 1/2-1/2",
+            "1. e4 d5 2. exd5 Qxd5 3. Nc3 Qa5 4. d4 c6 5. Nf3 Bf5 6. Bc4 e6 7. Bd2 Nbd7 8. Nd5 Qd8 0-1",
+            "1. e4 e5 2. Nff3 Nc6 3. Bb5",
+            "1. a4 b5 2. axb5 a6 3. bxa6 Bb7 4. axb7 Nc6 5. bxa8=Q"
+    };
+
+    //-------------------------
+    // PROPIEDADES
+    //-------------------------
+
+    private static final List<Partida> partidas = new ArrayList<>();
+
+    @TempDir
+    Path directorio;
+
+    //-------------------------
+    // PREPARACIÓN
+    //-------------------------
+
+    @BeforeAll
+    static void analizarEjemplos() {
+        AnalizadorSintactico analizador = new AnalizadorSintactico();
+        analizador.establecerComprobarLegalidad(false);
+        for (String texto : EJEMPLOS) {
+            // La marca de resultado se quita antes del análisis, que solo reconoce turnos
+            int resultado = leerResultado(texto);
+            String jugadas = resultado == Partida.RESULTADO_DESCONOCIDO ? texto : texto.substring(0, texto.lastIndexOf(' '));
+            Partida partida = analizador.analizar(jugadas, new Diagnosticos(1));
+            partida.establecerResultado(resultado);
+            partidas.add(partida);
+        }
+    }
+
+    //-------------------------
+    // PRUEBAS
+    //-------------------------
+
+    @Test
+    void conservaTurnosTextosYResultados() throws IOException {
+        Path ruta = escribirEjemplos();
+        try (ArchivoPartidas archivo = ArchivoPartidas.abrir(ruta, true)) {
+            assertEquals(partidas.size(), archivo.contarPartidas());
+            for (int i = 0; i < partidas.size(); i++) {
+                Partida original = partidas.get(i);
+                Partida cargada = archivo.cargarPartida(i);
+                String nombre = "partida " + (i + 1);
+
+                assertEquals(original.toString(), cargada.toString(), nombre);
+                assertEquals(original.obtenerResultado(), archivo.obtenerResultado(i), nombre);
+                assertEquals(original.obtenerResultado(), cargada.obtenerResultado(), nombre);
+                assertEquals(original.contarJugadas(), archivo.contarJugadas(i), nombre);
+                assertEquals(original.contarJugadas(), cargada.contarJugadas(), nombre);
+                assertEquals(original.contarTurnos(), archivo.contarTurnos(i), nombre);
+                for (int t = 0; t < original.contarTurnos(); t++) {
+                    assertEquals(original.obtenerNumeroTurno(t), archivo.obtenerNumeroTurno(i, t), nombre);
+                    assertEquals(original.obtenerCodigoBlancas(t), archivo.obtenerCodigoBlancas(i, t), nombre);
+                    assertEquals(original.obtenerCodigoNegras(t), archivo.obtenerCodigoNegras(i, t), nombre);
+                }
+            }
+        }
+    }
+
+    @Test
+    void guardaLasMismasClavesQueArbol() throws IOException {
+        Path ruta = escribirEjemplos();
+        try (ArchivoPartidas archivo = ArchivoPartidas.abrir(ruta)) {
+            for (int i = 0; i < partidas.size(); i++) {
+                String nombre = "partida " + (i + 1);
+                Arbol esperado = new Arbol();
+                esperado.construirDesdePartida(partidas.get(i));
+                Arbol cargado = archivo.cargarArbol(i);
+
+                assertEquals(esperado.tamano(), cargado.tamano(), nombre);
+                assertEquals(esperado.hayTripleRepeticion(), cargado.hayTripleRepeticion(), nombre);
+                for (int llave = Arbol.RAIZ; llave <= esperado.tamano(); llave++) {
+                    assertEquals(esperado.obtenerHash(llave), archivo.obtenerHash(i, llave - 1), nombre);
+                    assertEquals(esperado.obtenerHash(llave), cargado.obtenerHash(llave), nombre);
+                    assertEquals(esperado.obtenerJugada(llave), cargado.obtenerJugada(llave), nombre);
+                }
+            }
+        }
+    }
+
+    @Test
+    void detectaUnArchivoDanado() throws IOException {
+        Path ruta = escribirEjemplos();
+        byte[] bytes = Files.readAllBytes(ruta);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(ruta, bytes);
+
+        try (ArchivoPartidas archivo = ArchivoPartidas.abrir(ruta)) {
+            assertFalse(archivo.verificar());
+        }
+        assertThrows(IOException.class, () -> ArchivoPartidas.abrir(ruta, true).close());
+    }
+
+    @Test
+    void rechazaLaPartidaQuePasariaDelTamanoMaximo() throws IOException {
+        Path completo = escribirEjemplos();
+        long tamano = Files.size(completo);
+
+        // Con un byte menos no cabe la última partida; las anteriores siguen legibles
+        Path ruta = directorio.resolve("limitado.pgnb");
+        try (EscritorArchivoPartidas escritor = new EscritorArchivoPartidas(ruta, tamano - 1)) {
+            for (int i = 0; i + 1 < partidas.size(); i++) {
+                escritor.agregar(partidas.get(i));
+            }
+            assertThrows(IOException.class, () -> escritor.agregar(partidas.get(partidas.size() - 1)));
+        }
+        try (ArchivoPartidas archivo = ArchivoPartidas.abrir(ruta, true)) {
+            assertEquals(partidas.size() - 1, archivo.contarPartidas());
+            assertTrue(Files.size(ruta) < tamano);
+            assertEquals(partidas.get(0).toString(), archivo.cargarPartida(0).toString());
+        }
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private Path escribirEjemplos() throws IOException {
+        Path ruta = directorio.resolve("partidas.pgnb");
+        EscritorArchivoPartidas.escribir(ruta, partidas);
+        return ruta;
+    }
+
+    private static int leerResultado(String texto) {
+        if (texto.endsWith("1-0")) {
+            return Partida.VICTORIA_BLANCAS;
+        }
+        if (texto.endsWith("0-1")) {
+            return Partida.VICTORIA_NEGRAS;
+        }
+        return texto.endsWith("1/2-1/2") ? Partida.TABLAS : Partida.RESULTADO_DESCONOCIDO;
+    }
+}
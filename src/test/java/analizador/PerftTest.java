@@ -0,0 +1,51 @@
+package analizador;
+
+import modelo.Posicion;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Comprueba el generador de movimientos de Posicion con los recuentos de Perft
+ *
+ * Cada posición de referencia se cuenta hasta profundidad 3, y hasta 4 en las
+ * que a esa profundidad no pasan de LIMITE_NODOS. Al terminar, la posición debe
+ * quedar como estaba.
+ */
+class PerftTest {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    private static final int PROFUNDIDAD_MINIMA = 3;
+    private static final int PROFUNDIDAD_MAXIMA = 4;
+
+    // Nodos a partir de los que una posición se considera cara
+    private static final long LIMITE_NODOS = 3_000_000;
+
+    //-------------------------
+    // PRUEBAS
+    //-------------------------
+
+    @Test
+    void coincideConLosRecuentosDeReferencia() {
+        for (int i = 0; i < Perft.POSICIONES.length; i++) {
+            String fen = Perft.POSICIONES[i];
+            long[] esperados = Perft.NODOS_ESPERADOS[i];
+            for (int profundidad = 1; profundidad <= PROFUNDIDAD_MAXIMA; profundidad++) {
+                long esperado = esperados[profundidad - 1];
+                if (profundidad > PROFUNDIDAD_MINIMA && esperado > LIMITE_NODOS) {
+                    break;
+                }
+                Posicion posicion = new Posicion(fen);
+                long hash = posicion.obtenerHash();
+
+                assertEquals(esperado, new Perft(posicion, profundidad).contar(profundidad),
+                        fen + " a profundidad " + profundidad);
+                assertEquals(hash, posicion.obtenerHash(), fen + " no se restaura");
+                assertEquals(0, posicion.obtenerProfundidad(), fen + " no se restaura");
+            }
+        }
+    }
+}
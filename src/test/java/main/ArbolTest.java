@@ -0,0 +1,74 @@
+package main;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Comprueba que cada llave del árbol tiene una sola vista Nodo
+ *
+ * Las vistas se piden por primera vez desde un stream paralelo, así que varios
+ * hilos compiten por crear la del mismo padre.
+ */
+class ArbolTest {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    private static final int NODOS = 1 << 16;
+
+    private static final int REPETICIONES = 20;
+
+    //-------------------------
+    // PRUEBAS
+    //-------------------------
+
+    @Test
+    void agrupaPorPadreSinPartirGrupos() {
+        for (int i = 0; i < REPETICIONES; i++) {
+            Arbol arbol = crearArbol();
+            ConcurrentMap<Arbol.Nodo, List<Arbol.Nodo>> grupos = arbol.stream().parallel()
+                    .filter(nodo -> nodo.llave != Arbol.RAIZ)
+                    .collect(Collectors.groupingByConcurrent(Arbol.Nodo::obtenerPadre));
+
+            assertEquals(NODOS / 2, grupos.size());
+            for (Map.Entry<Arbol.Nodo, List<Arbol.Nodo>> grupo : grupos.entrySet()) {
+                assertSame(arbol.obtenerNodo(grupo.getKey().llave), grupo.getKey());
+                int hijos = Arbol.hijoDerecho(grupo.getKey().llave) <= NODOS ? 2 : 1;
+                assertEquals(hijos, grupo.getValue().size());
+            }
+        }
+    }
+
+    @Test
+    void devuelveLaMismaVistaDesdeVariosHilos() {
+        Arbol arbol = crearArbol();
+        List<Arbol.Nodo> padres = arbol.stream().parallel()
+                .filter(nodo -> nodo.llave != Arbol.RAIZ)
+                .map(Arbol.Nodo::obtenerPadre)
+                .collect(Collectors.toList());
+
+        for (Arbol.Nodo padre : padres) {
+            assertSame(arbol.obtenerNodo(padre.llave), padre);
+        }
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private static Arbol crearArbol() {
+        Arbol arbol = new Arbol();
+        for (int llave = Arbol.RAIZ + 1; llave <= NODOS; llave++) {
+            arbol.agregarJugada("j" + llave, llave);
+        }
+        return arbol;
+    }
+}
@@ -0,0 +1,195 @@
+package util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Comprueba que ValidadorSAN acepta el mismo lenguaje que las expresiones regulares
+ * a las que sustituyó
+ *
+ * Se comparan esJugadaValida y clasificar con los patrones originales sobre casos
+ * límite, cadenas aleatorias y jugadas generadas con la gramática y luego alteradas,
+ * todo con semilla fija. La clasificación se comprueba también dentro de un texto
+ * más largo, como la usa el lector.
+ */
+class ValidadorSANTest {
+
+    //-------------------------
+    // CONSTANTES
+    //-------------------------
+
+    // Patrones del validador original
+    private static final Pattern PATRON_ENROQUE = Pattern.compile("^O-O(-O)?$");
+    private static final Pattern PATRON_MOVIMIENTO_PIEZA = Pattern.compile("^[KQRBN][a-h1-8]?[a-h1-8]?x?[a-h][1-8](=[QRBN])?[+#]?$");
+    private static final Pattern PATRON_MOVIMIENTO_PEON = Pattern.compile("^([a-h]x)?[a-h][1-8](=[QRBN])?[+#]?$");
+
+    private static final long SEMILLA = 1234567L;
+
+    private static final int CADENAS = 300_000;
+
+    // Caracteres de los patrones, sus vecinos en ASCII y alguno fuera de ASCII
+    private static final String ALFABETO = "abcdefghi0123456789KQRBNOPkqrbnox=+#-. @`éĀ";
+
+    private static final String[] CASOS_LIMITE = {
+            "", "e", "e4", "e9", "i4", "e0", "E4", "exd5", "xd5", "exd", "e4+", "e4#", "e4+#", "e4++",
+            "e8=Q", "e8=K", "e8=", "e8Q", "exd8=N+", "ab8=Q", "Nf3", "Nbd7", "R1e2", "Qh4xe1", "Qh4xe1#",
+            "Nxf3", "Nx", "N", "Kxx1", "Ka1a2a3", "Nf3=Q", "Bxe5=R#", "O-O", "O-O-O", "O-O+", "O-O-O#",
+            "O-", "O-O-", "O-O-O-O", "0-0", "o-o", "OO", "P e4", "Nf3 ", " Nf3", "e4é", "Āe4"
+    };
+
+    //-------------------------
+    // PRUEBAS
+    //-------------------------
+
+    @Test
+    void coincideEnLosCasosLimite() {
+        for (String caso : CASOS_LIMITE) {
+            comparar(caso);
+        }
+    }
+
+    @Test
+    void coincideEnCadenasAleatorias() {
+        Random aleatorio = new Random(SEMILLA);
+        for (int i = 0; i < CADENAS; i++) {
+            StringBuilder cadena = new StringBuilder();
+            int longitud = aleatorio.nextInt(10);
+            for (int j = 0; j < longitud; j++) {
+                cadena.append(ALFABETO.charAt(aleatorio.nextInt(ALFABETO.length())));
+            }
+            comparar(cadena.toString());
+        }
+    }
+
+    @Test
+    void coincideEnJugadasGeneradasYAlteradas() {
+        Random aleatorio = new Random(SEMILLA + 1);
+        for (int i = 0; i < CADENAS; i++) {
+            StringBuilder jugada = new StringBuilder(generarJugada(aleatorio));
+            // Un tercio se deja intacta; el resto recibe una o dos alteraciones
+            int alteraciones = aleatorio.nextInt(3);
+            for (int j = 0; j < alteraciones; j++) {
+                alterar(jugada, aleatorio);
+            }
+            comparar(jugada.toString());
+        }
+    }
+
+    @Test
+    void rechazaNull() {
+        assertFalse(ValidadorSAN.esJugadaValida(null));
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private static void comparar(String jugada) {
+        int esperada = clasificarConPatrones(jugada);
+
+        assertEquals(esperada != ValidadorSAN.INVALIDA, ValidadorSAN.esJugadaValida(jugada), jugada);
+        if (jugada.isEmpty()) {
+            return;
+        }
+        assertEquals(esperada, ValidadorSAN.clasificar(jugada), jugada);
+
+        // La misma jugada dentro de un texto con otros caracteres alrededor
+        String texto = "1. " + jugada + " Nf3";
+        assertEquals(esperada, ValidadorSAN.clasificar(texto, 3, 3 + jugada.length()), jugada);
+    }
+
+    /**
+     * Clasificación obtenida con los patrones originales
+     */
+    private static int clasificarConPatrones(String jugada) {
+        Matcher enroque = PATRON_ENROQUE.matcher(jugada);
+        if (enroque.matches()) {
+            return ValidadorSAN.TIPO_ENROQUE | (enroque.group(1) != null ? ValidadorSAN.ENROQUE_LARGO : 0);
+        }
+
+        int tipo;
+        if (PATRON_MOVIMIENTO_PIEZA.matcher(jugada).matches()) {
+            tipo = ValidadorSAN.TIPO_PIEZA;
+        } else if (PATRON_MOVIMIENTO_PEON.matcher(jugada).matches()) {
+            tipo = ValidadorSAN.TIPO_PEON;
+        } else {
+            return ValidadorSAN.INVALIDA;
+        }
+
+        int marcas = 0;
+        if (jugada.indexOf('x') >= 0) {
+            marcas |= ValidadorSAN.CAPTURA;
+        }
+        if (jugada.indexOf('=') >= 0) {
+            marcas |= ValidadorSAN.PROMOCION;
+        }
+        if (jugada.endsWith("+")) {
+            marcas |= ValidadorSAN.JAQUE;
+        }
+        if (jugada.endsWith("#")) {
+            marcas |= ValidadorSAN.MATE;
+        }
+        return tipo | marcas;
+    }
+
+    /**
+     * Jugada formada con las piezas de alguno de los tres patrones
+     */
+    private static String generarJugada(Random aleatorio) {
+        StringBuilder jugada = new StringBuilder();
+        int tipo = aleatorio.nextInt(3);
+        if (tipo == 0) {
+            return aleatorio.nextBoolean() ? "O-O" : "O-O-O";
+        }
+        if (tipo == 1) {
+            jugada.append("KQRBN".charAt(aleatorio.nextInt(5)));
+            int desambiguacion = aleatorio.nextInt(3);
+            for (int i = 0; i < desambiguacion; i++) {
+                jugada.append("abcdefgh12345678".charAt(aleatorio.nextInt(16)));
+            }
+        } else if (aleatorio.nextBoolean()) {
+            jugada.append((char) ('a' + aleatorio.nextInt(8)));
+        }
+        if (aleatorio.nextBoolean()) {
+            jugada.append('x');
+        }
+        jugada.append((char) ('a' + aleatorio.nextInt(8))).append((char) ('1' + aleatorio.nextInt(8)));
+        if (aleatorio.nextInt(4) == 0) {
+            jugada.append('=').append("QRBNK".charAt(aleatorio.nextInt(5)));
+        }
+        int sufijo = aleatorio.nextInt(3);
+        if (sufijo > 0) {
+            jugada.append(sufijo == 1 ? '+' : '#');
+        }
+        return jugada.toString();
+    }
+
+    /**
+     * Inserta, borra o cambia un carácter de la jugada
+     */
+    private static void alterar(StringBuilder jugada, Random aleatorio) {
+        char c = ALFABETO.charAt(aleatorio.nextInt(ALFABETO.length()));
+        int posicion = aleatorio.nextInt(jugada.length() + 1);
+        switch (aleatorio.nextInt(3)) {
+            case 0:
+                jugada.insert(posicion, c);
+                break;
+            case 1:
+                if (posicion < jugada.length()) {
+                    jugada.deleteCharAt(posicion);
+                }
+                break;
+            default:
+                if (posicion < jugada.length()) {
+                    jugada.setCharAt(posicion, c);
+                }
+                break;
+        }
+    }
+}
@@ -1,16 +1,62 @@
 package util;
 
-import java.util.regex.Pattern;
-
 /**
  * Clase utilitaria para validar notación algebraica estándar (SAN) de ajedrez
+ *
+ * El reconocimiento se hace en una sola pasada, de derecha a izquierda, sobre
+ * una tabla de clases de caracteres. No crea objetos, por lo que puede usarse
+ * directamente sobre el búfer del lector sin construir un String por jugada.
+ * Acepta exactamente el mismo lenguaje que las expresiones:
+ * <pre>
+ *   O-O(-O)?
+ *   [KQRBN][a-h1-8]?[a-h1-8]?x?[a-h][1-8](=[QRBN])?[+#]?
+ *   ([a-h]x)?[a-h][1-8](=[QRBN])?[+#]?
+ * </pre>
  */
 public class ValidadorSAN {
 
-    // Patrones para validar diferentes tipos de movimientos
-    private static final Pattern PATRON_ENROQUE = Pattern.compile("^O-O(-O)?$");
-    private static final Pattern PATRON_MOVIMIENTO_PIEZA = Pattern.compile("^[KQRBN][a-h1-8]?[a-h1-8]?x?[a-h][1-8](=[QRBN])?[+#]?$");
-    private static final Pattern PATRON_MOVIMIENTO_PEON = Pattern.compile("^([a-h]x)?[a-h][1-8](=[QRBN])?[+#]?$");
+    //-------------------------
+    // CLASIFICACIÓN
+    //-------------------------
+
+    // Tipo de jugada (dos bits inferiores del resultado de clasificar)
+    public static final int INVALIDA = 0;
+    public static final int TIPO_ENROQUE = 1;
+    public static final int TIPO_PIEZA = 2;
+    public static final int TIPO_PEON = 3;
+    public static final int MASCARA_TIPO = 3;
+
+    // Marcas adicionales
+    public static final int CAPTURA = 1 << 2;
+    public static final int PROMOCION = 1 << 3;
+    public static final int JAQUE = 1 << 4;
+    public static final int MATE = 1 << 5;
+    public static final int ENROQUE_LARGO = 1 << 6;
+
+    //-------------------------
+    // TABLA DE CARACTERES
+    //-------------------------
+
+    private static final byte COLUMNA = 1;      // a-h
+    private static final byte FILA = 2;         // 1-8
+    private static final byte PIEZA = 4;        // K Q R B N
+    private static final byte PROMOCIONABLE = 8; // Q R B N
+
+    private static final byte[] CLASES = new byte[128];
+
+    static {
+        for (char c = 'a'; c <= 'h'; c++) {
+            CLASES[c] = COLUMNA;
+        }
+        for (char c = '1'; c <= '8'; c++) {
+            CLASES[c] = FILA;
+        }
+        CLASES['K'] = PIEZA;
+        CLASES['Q'] = PIEZA | PROMOCIONABLE;
+        CLASES['R'] = PIEZA | PROMOCIONABLE;
+        CLASES['B'] = PIEZA | PROMOCIONABLE;
+        CLASES['N'] = PIEZA | PROMOCIONABLE;
+    }
 
     /**
      * Verifica si una jugada en notación SAN es válida
@@ -23,22 +69,141 @@ public class ValidadorSAN {
             return false;
         }
 
-        // Verificar si es un enroque
-        if (PATRON_ENROQUE.matcher(notacion).matches()) {
-            return true;
+        return clasificar(notacion, 0, notacion.length()) != INVALIDA;
+    }
+
+    /**
+     * Clasifica una jugada completa
+     * @param notacion Texto de la jugada
+     * @return INVALIDA, o el tipo combinado con sus marcas
+     */
+    public static int clasificar(CharSequence notacion) {
+        return clasificar(notacion, 0, notacion.length());
+    }
+
+    /**
+     * Clasifica la jugada contenida en notacion[inicio, fin)
+     * @param notacion Texto que contiene la jugada
+     * @param inicio Primer carácter de la jugada
+     * @param fin Posición siguiente al último carácter
+     * @return INVALIDA, o el tipo combinado con sus marcas
+     */
+    public static int clasificar(CharSequence notacion, int inicio, int fin) {
+        int longitud = fin - inicio;
+        if (longitud < 2) {
+            return INVALIDA;
+        }
+
+        // Enroque: solo se aceptan las dos formas exactas
+        if (notacion.charAt(inicio) == 'O') {
+            return clasificarEnroque(notacion, inicio, longitud);
+        }
+
+        int marcas = 0;
+        int pos = fin - 1;
+
+        // Sufijo de jaque o mate
+        char c = notacion.charAt(pos);
+        if (c == '+') {
+            marcas |= JAQUE;
+            pos--;
+        } else if (c == '#') {
+            marcas |= MATE;
+            pos--;
+        }
+
+        // Promoción "=X"
+        if (pos - 1 >= inicio && notacion.charAt(pos - 1) == '='
+                && (clase(notacion.charAt(pos)) & PROMOCIONABLE) != 0) {
+            marcas |= PROMOCION;
+            pos -= 2;
+        }
+
+        // Casilla de destino
+        if (pos - 1 < inicio
+                || clase(notacion.charAt(pos)) != FILA
+                || clase(notacion.charAt(pos - 1)) != COLUMNA) {
+            return INVALIDA;
+        }
+        pos -= 2;
+
+        // Captura
+        if (pos >= inicio && notacion.charAt(pos) == 'x') {
+            marcas |= CAPTURA;
+            pos--;
+        }
+
+        int restantes = pos - inicio + 1;
+        if (restantes == 0) {
+            // Avance de peón (no puede haber captura sin columna de origen)
+            return (marcas & CAPTURA) == 0 ? TIPO_PEON | marcas : INVALIDA;
+        }
+
+        char primero = notacion.charAt(inicio);
+        if ((clase(primero) & PIEZA) != 0) {
+            // Pieza seguida de hasta dos caracteres de desambiguación
+            if (restantes > 3) {
+                return INVALIDA;
+            }
+            for (int i = inicio + 1; i <= pos; i++) {
+                int clase = clase(notacion.charAt(i));
+                if (clase != COLUMNA && clase != FILA) {
+                    return INVALIDA;
+                }
+            }
+            return TIPO_PIEZA | marcas;
         }
 
-        // Verificar si es un movimiento de pieza
-        if (PATRON_MOVIMIENTO_PIEZA.matcher(notacion).matches()) {
-            return true;
+        // Captura de peón: exactamente la columna de origen antes de la "x"
+        if (restantes == 1 && (marcas & CAPTURA) != 0 && clase(primero) == COLUMNA) {
+            return TIPO_PEON | marcas;
         }
 
-        // Verificar si es un movimiento de peón
-        if (PATRON_MOVIMIENTO_PEON.matcher(notacion).matches()) {
-            return true;
+        return INVALIDA;
+    }
+
+    /**
+     * Indica si el resultado de clasificar corresponde a una jugada válida
+     */
+    public static boolean esValida(int clasificacion) {
+        return clasificacion != INVALIDA;
+    }
+
+    /**
+     * Obtiene el tipo (enroque, pieza o peón) de una clasificación
+     */
+    public static int tipo(int clasificacion) {
+        return clasificacion & MASCARA_TIPO;
+    }
+
+    /**
+     * Comprueba si una clasificación tiene una marca concreta
+     */
+    public static boolean tiene(int clasificacion, int marca) {
+        return (clasificacion & marca) != 0;
+    }
+
+    //-------------------------
+    // MÉTODOS PRIVADOS
+    //-------------------------
+
+    private static int clasificarEnroque(CharSequence notacion, int inicio, int longitud) {
+        if (longitud != 3 && longitud != 5) {
+            return INVALIDA;
+        }
+        if (notacion.charAt(inicio + 1) != '-' || notacion.charAt(inicio + 2) != 'O') {
+            return INVALIDA;
         }
+        if (longitud == 3) {
+            return TIPO_ENROQUE;
+        }
+        if (notacion.charAt(inicio + 3) != '-' || notacion.charAt(inicio + 4) != 'O') {
+            return INVALIDA;
+        }
+        return TIPO_ENROQUE | ENROQUE_LARGO;
+    }
 
-        // Si no coincide con ningún patrón, no es válido
-        return false;
+    private static int clase(char c) {
+        return c < 128 ? CLASES[c] : 0;
     }
 }